@@ -0,0 +1,61 @@
+package mlp.benchmarks;
+
+import mlp.activationfunction.ActivationFunction;
+import mlp.activationfunction.ActivationFunctions;
+import mlp.matrix.Matrix;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * every activation function of ActivationFunctions on the hidden layer
+ * activations of a batch (70 x 100), in the three ways the library uses them:
+ * apply in place (on a copy, see ElementwiseBenchmark.set for the cost of that),
+ * activate into another matrix and deriveFromOutput, the backward pass
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ActivationBenchmark {
+    /**
+     * name of the constant in ActivationFunctions
+     */
+    @Param({"SIGMOID", "HEAVISIDE", "HYPERBOLIC_TANGENT", "IDENTITY", "RELU", "SOFTPLUS", "SOFTSIGN", "LEAKY_RELU"})
+    public String function;
+
+    private ActivationFunction g;
+    private Matrix z, a, c;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        g = (ActivationFunction) ActivationFunctions.class.getField(function).get(null);
+
+        // pre-activations around 0, where all functions do real work
+        z = Matrix.random(70, 100).multiply(4).add(-2);
+        a = Matrix.zeros(70, 100).activate(g, z);
+        c = Matrix.zeros(70, 100);
+    }
+
+    @Benchmark
+    public Matrix apply() {
+        return c.set(z).apply(g, false);
+    }
+
+    @Benchmark
+    public Matrix applyDerivative() {
+        return c.set(z).apply(g, true);
+    }
+
+    @Benchmark
+    public Matrix activate() {
+        return c.activate(g, z);
+    }
+
+    @Benchmark
+    public Matrix deriveFromOutput() {
+        return c.deriveFromOutput(g, a);
+    }
+}
@@ -0,0 +1,78 @@
+package mlp.benchmarks;
+
+import mlp.matrix.Matrix;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * element wise operations on activations of a batch of 100 samples
+ * <p>
+ * the operations work in place, so every one starts with a copy of a
+ * into c (otherwise repeated products would run into denormal numbers);
+ * set is that copy alone, the baseline to subtract
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ElementwiseBenchmark {
+    @Param({"70x100", "784x100"})
+    public String shape;
+
+    private Matrix a, b, c, v, sums;
+
+    @Setup
+    public void setup() {
+        String[] s = shape.split("x");
+        int rows = Integer.parseInt(s[0]), cols = Integer.parseInt(s[1]);
+
+        a = Matrix.random(rows, cols);
+        b = Matrix.random(rows, cols);
+        c = Matrix.zeros(rows, cols);
+        v = Matrix.random(rows, 1);
+        sums = Matrix.zeros(rows, 1);
+    }
+
+    @Benchmark
+    public Matrix set() {
+        return c.set(a);
+    }
+
+    @Benchmark
+    public Matrix add() {
+        return c.set(a).add(b);
+    }
+
+    @Benchmark
+    public Matrix subtract() {
+        return c.set(a).subtract(b);
+    }
+
+    @Benchmark
+    public Matrix multiply() {
+        return c.set(a).multiply(b);
+    }
+
+    @Benchmark
+    public Matrix multiplyScalar() {
+        return c.set(a).multiply(0.5);
+    }
+
+    @Benchmark
+    public Matrix addScaled() {
+        return c.set(a).addScaled(b, -1e-3);
+    }
+
+    @Benchmark
+    public Matrix addColumnVector() {
+        return c.set(a).addColumnVector(v);
+    }
+
+    @Benchmark
+    public Matrix rowSums() {
+        return a.rowSums(sums);
+    }
+}
@@ -0,0 +1,41 @@
+package mlp.benchmarks;
+
+import mlp.matrix.Matrix;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * runs the benchmarks like org.openjdk.jmh.Main (same command line options),
+ * but by default with the gc profiler (allocation rate and bytes per operation)
+ * and the results written as JSON to results/, one file per run to compare across versions
+ */
+public class Main {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd);
+
+        if (cmd.getProfilers().isEmpty())
+            options.addProfiler(GCProfiler.class);
+
+        if (!cmd.getResult().hasValue()) {
+            new File("results").mkdirs();
+            // "scalar" or "vector"
+            String name = Matrix.kernels().split(" ")[0] + "-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+            options.resultFormat(ResultFormatType.JSON)
+                    .result("results/" + name + ".json");
+        }
+
+        System.out.println("kernels: " + Matrix.kernels());
+        new Runner(options.build()).run();
+    }
+}
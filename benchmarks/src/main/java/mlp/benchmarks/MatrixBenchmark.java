@@ -0,0 +1,83 @@
+package mlp.benchmarks;
+
+import mlp.matrix.FloatMatrix;
+import mlp.matrix.Matrix;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the three matrix products of a training step of one layer
+ * with layer out x in and a batch of m samples:
+ * forward W · X (out x in times in x m), backward Wᵀ · D and gradient D · Xᵀ,
+ * at the layer shapes of the pattern recognition network
+ * <p>
+ * the products write into preallocated matrices like the training loop does,
+ * dot and transpose are the allocating versions
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MatrixBenchmark {
+    /**
+     * out x in of the weight matrix
+     */
+    @Param({"70x784", "70x70", "62x70"})
+    public String layer;
+
+    @Param({"1", "32", "100"})
+    public int batch;
+
+    private Matrix W, X, Z, D, B, G;
+    private FloatMatrix floatW, floatX, floatZ;
+
+    @Setup
+    public void setup() {
+        String[] shape = layer.split("x");
+        int out = Integer.parseInt(shape[0]), in = Integer.parseInt(shape[1]);
+
+        W = Matrix.random(out, in);
+        X = Matrix.random(in, batch);
+        Z = Matrix.zeros(out, batch);
+        D = Matrix.random(out, batch);
+        B = Matrix.zeros(in, batch);
+        G = Matrix.zeros(out, in);
+
+        floatW = new FloatMatrix(W);
+        floatX = new FloatMatrix(X);
+        floatZ = FloatMatrix.zeros(out, batch);
+    }
+
+    @Benchmark
+    public Matrix forward() {
+        return Matrix.dot(W, X, Z, false);
+    }
+
+    @Benchmark
+    public Matrix backward() {
+        return Matrix.dotTransA(W, D, B, false);
+    }
+
+    @Benchmark
+    public Matrix gradient() {
+        return Matrix.dotTransB(D, X, G, false);
+    }
+
+    @Benchmark
+    public FloatMatrix forwardFloat() {
+        return FloatMatrix.dot(floatW, floatX, floatZ, false);
+    }
+
+    @Benchmark
+    public Matrix dot() {
+        return W.dot(X);
+    }
+
+    @Benchmark
+    public Matrix transpose() {
+        return Matrix.transpose(X);
+    }
+}
@@ -0,0 +1,123 @@
+package mlp.benchmarks;
+
+import mlp.InferenceModel;
+import mlp.MLP2;
+import mlp.ModelFile;
+import mlp.Precision;
+import mlp.activationfunction.ActivationFunctions;
+import mlp.data.ArrayDataset;
+import mlp.matrix.Arena;
+import mlp.matrix.Matrix;
+import mlp.quantization.QuantizedModel;
+import mlp.quantization.Quantizer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the pattern recognition network (784, 70, 70, 70, 62):
+ * latency of a single prediction and training throughput in samples per second
+ */
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NetworkBenchmark {
+    private static final int BATCH = 100;
+
+    @Param({"DOUBLE", "FLOAT"})
+    public Precision precision;
+
+    private MLP2 nn;
+    private InferenceModel model, mappedModel;
+    private QuantizedModel quantizedModel;
+    private Arena arena;
+    private Path file;
+    private double[] in, out;
+    private Matrix X, Y;
+
+    @Setup
+    public void setup() throws IOException {
+        nn = new MLP2(new int[]{784, 70, 70, 70, 62}, ActivationFunctions.SIGMOID, ActivationFunctions.IDENTITY, 1e-3, 0.5);
+        nn.precision = precision;
+        model = nn.exportInferenceModel();
+
+        file = Files.createTempFile("network", ".bin");
+        ModelFile.save(nn, file);
+        arena = new Arena();
+        mappedModel = ModelFile.loadInferenceModel(file, arena);
+
+        in = Matrix.random(784, 1).flatten();
+        out = new double[62];
+
+        X = Matrix.random(784, BATCH);
+        Y = Matrix.zeros(62, BATCH);
+        for (int j = 0; j < BATCH; j++)
+            Y.set(j % 62, j, 1);
+
+        quantizedModel = Quantizer.quantize(nn, new ArrayDataset(Matrix.transpose(X).toArray(), Matrix.transpose(Y).toArray()), BATCH);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        arena.close();
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * MLP2.feedForward, always in double
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public double[] feedForward() {
+        return nn.feedForward(in);
+    }
+
+    /**
+     * the allocation free inference path, in the precision of the network
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public double[] predict() {
+        model.predict(in, out);
+        return out;
+    }
+
+    /**
+     * predict on the weights in the mapped model file (in DOUBLE precision, FLOAT files are copied to the heap)
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public double[] predictMapped() {
+        mappedModel.predict(in, out);
+        return out;
+    }
+
+    /**
+     * predict with int8 weights and activations (the same for both precisions)
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public double[] predictQuantized() {
+        quantizedModel.predict(in, out);
+        return out;
+    }
+
+    /**
+     * one training step on a batch of 100, reported per sample
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BATCH)
+    public double fit() {
+        return nn.fit(X, Y);
+    }
+}
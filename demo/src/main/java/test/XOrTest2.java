@@ -3,6 +3,7 @@ package test;
 import mlp.MLP2;
 import mlp.activationfunction.ActivationFunction;
 import mlp.activationfunction.ActivationFunctions;
+import mlp.training.ConsoleListener;
 
 import java.util.Arrays;
 
@@ -21,6 +22,8 @@ public class XOrTest2 {
     public static void main(String[] args) {
         MLP2 nn = new MLP2(new int[]{2, 16, 16, 16, 16, 1}, ActivationFunctions.LEAKY_RELU, ActivationFunctions.SIGMOID, 1e-3, 0.5);
 
+        nn.addListener(new ConsoleListener(1000));
+
         double[] loss = nn.fit(X, Y, 1, 10000);
         for (double[] d : X) {
             double[] output = nn.feedForward(d);
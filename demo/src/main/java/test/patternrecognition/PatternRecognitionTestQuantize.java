@@ -0,0 +1,61 @@
+package test.patternrecognition;
+
+import mlp.InferenceModel;
+import mlp.MLP2;
+import mlp.data.Dataset;
+import mlp.data.TensorFileDataset;
+import mlp.quantization.QuantizationReport;
+import mlp.quantization.QuantizedModel;
+import mlp.quantization.Quantizer;
+import mlp.utils.NNUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static mlp.utils.Log.l;
+
+/**
+ * quantize the trained pattern recognition network to int8
+ * and compare it to the double model on the pattern images
+ */
+public class PatternRecognitionTestQuantize {
+
+    private static final int CALIBRATION_SAMPLES = 1000;
+
+    public static void main(String[] args) throws IOException {
+        MLP2 nn = NNUtils.load();
+
+        Path cache = Path.of("patterns.data");
+        Dataset data = Files.exists(cache)
+                ? new TensorFileDataset(cache)
+                : TensorFileDataset.compile(new File("img/patterns"), 28, 28, cache);
+
+        InferenceModel model = nn.exportInferenceModel();
+        QuantizedModel quantized = Quantizer.quantize(nn, data, CALIBRATION_SAMPLES);
+
+        long doubleBytes = 0;
+        for (int l = 0; l < nn.weight.length; l++)
+            doubleBytes += 8L * nn.weight[l].rows * nn.weight[l].cols;
+        l("weights: %d bytes in double, %d bytes in int8", doubleBytes, quantized.weightBytes());
+
+        // compared on the same images it was calibrated on, there is no separate test set
+        QuantizationReport report = QuantizationReport.compare(model, quantized, data);
+        l(report);
+
+        // latency of single predictions
+        double[] in = new double[model.inputSize()], out = new double[model.outputSize()];
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < 20_000; i++)
+                model.predict(in, out);
+            long middle = System.nanoTime();
+            for (int i = 0; i < 20_000; i++)
+                quantized.predict(in, out);
+            long end = System.nanoTime();
+
+            l("predict: %.2f us double, %.2f us int8", (middle - start) / 20_000 / 1e3, (end - middle) / 20_000 / 1e3);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package test.patternrecognition;
+
+import mlp.Checkpoint;
+import mlp.Loss;
+import mlp.MLP2;
+import mlp.activationfunction.ActivationFunctions;
+import mlp.data.Dataset;
+import mlp.data.TensorFileDataset;
+import mlp.optimizer.Adam;
+import mlp.training.Checkpointer;
+import mlp.training.ConsoleListener;
+import mlp.training.CsvMetricsWriter;
+import mlp.utils.NNUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static mlp.utils.Log.*;
+
+
+public class PatternRecognitionTestTrain {
+
+    /**
+     * the preprocessed images, delete it after changing img/patterns
+     */
+    private static final String DATASET_FILE_NAME = "patterns.data";
+
+    /**
+     * training is continued from the newest checkpoint in here, delete it to start over
+     */
+    private static final Path CHECKPOINTS = Path.of("checkpoints");
+
+    private static final int EPOCHS = 11;
+
+    public static void main(String[] args) {
+        // the images are decoded once into a dataset file that is memory mapped afterwards
+        Dataset data;
+        try {
+            Path cache = Path.of(DATASET_FILE_NAME);
+            data = Files.exists(cache)
+                    ? new TensorFileDataset(cache)
+                    : TensorFileDataset.compile(new File("img/patterns"), 28, 28, cache);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        l("Found " + data.size() + " images of " + data.outputSize() + " patterns");
+
+        // continue an interrupted training or create the nn instance
+        MLP2 nn;
+        try {
+            nn = Checkpoint.loadLatest(CHECKPOINTS);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        boolean resumed = nn != null;
+        if (resumed)
+            l("resuming at epoch " + nn.epoch + ", batch " + nn.batch);
+        else {
+            nn = new MLP2(new int[]{784, 70, 70, 70, 62}, ActivationFunctions.SIGMOID, ActivationFunctions.IDENTITY, 1e-3, 1e-3);
+            // classification: the outputs are the logits of the 62 patterns,
+            // squared error with plain gradient descent stays on a plateau for hundreds of epochs
+            nn.lossFunction = Loss.SOFTMAX_CROSS_ENTROPY;
+            nn.optimizer = new Adam();
+        }
+        // split every batch across all cores
+        nn.setParallelism(Runtime.getRuntime().availableProcessors());
+        // print the progress of every epoch
+        nn.addListener(new ConsoleListener());
+
+        // fit data, the loss is written while training (see plot_loss.ipynb)
+        // and a checkpoint every 10 seconds and after every epoch
+        try (CsvMetricsWriter metrics = new CsvMetricsWriter(Path.of("loss.csv"), Path.of("steps.csv"), 1, 1000, resumed);
+             Checkpointer checkpointer = new Checkpointer(CHECKPOINTS, 0, 10_000, true, 3)) {
+            nn.addListener(metrics);
+            nn.addListener(checkpointer);
+            nn.fit(data, 100, Math.max(0, EPOCHS - nn.epoch));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        l("saving nn");
+        NNUtils.save(nn);
+    }
+
+
+    public static double[] loadImage(String path, int sizeX, int sizeY, boolean color) {
+        BufferedImage imgCopy, img;
+
+        if (color)
+            imgCopy = new BufferedImage(
+                    sizeX,
+                    sizeY,
+                    BufferedImage.TYPE_INT_ARGB);
+        else
+            imgCopy = new BufferedImage(
+                    sizeX,
+                    sizeY,
+                    BufferedImage.TYPE_BYTE_GRAY);
+
+        try {
+            img = ImageIO.read(new File(path));
+        } catch (IOException ex) {
+            System.out.println(path + " not loaded");
+            return null;
+        }
+
+
+        Graphics2D g = imgCopy.createGraphics();
+        g.drawImage(img, 0, 0, null);
+        g.dispose();
+
+        double[] data = new double[sizeX * sizeY];
+
+        for (int i = 0; i < sizeX; i++)
+            for (int j = 0; j < sizeY; j++) {
+                int[] d = new int[3];
+                imgCopy.getRaster().getPixel(i, j, d);
+
+                data[i * sizeX + j] = ((double) d[0]) / 255.0;
+            }
+
+        return data;
+    }
+}
\ No newline at end of file
@@ -1,5 +1,6 @@
 package test.patternrecognition;
 
+import mlp.InferenceModel;
 import mlp.MLP2;
 import mlp.matrix.ArrayUtils;
 import mlp.utils.Log;
@@ -27,10 +28,13 @@ public class PatternRecognitionTestUse {
 
         nn.printNetwork();
 
+        InferenceModel model = nn.exportInferenceModel();
+        double[] output = new double[model.outputSize()];
+
         // load image and classify
         for (File testFile : Objects.requireNonNull(new File("img/test").listFiles())) {
             double[] image = PatternRecognitionTestTrain.loadImage(testFile.getPath(), 28, 28, false);
-            double[] output = nn.feedForward(image);
+            model.predict(image, output);
 
             Log.l(testFile.getName() + ": " + PATTERNS[ArrayUtils.argMax(output)]);
         }
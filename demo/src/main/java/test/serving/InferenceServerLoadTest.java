@@ -0,0 +1,87 @@
+package test.serving;
+
+import mlp.InferenceModel;
+import mlp.serving.Histogram;
+import mlp.serving.InferenceServer;
+import mlp.utils.NNUtils;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static mlp.utils.Log.l;
+
+/**
+ * load on the inference server over loopback, once with every request predicted on its own
+ * and once with micro batching, and compare throughput and latency
+ */
+public class InferenceServerLoadTest {
+
+    private static final int CLIENTS = 64, SECONDS = 10;
+
+    public static void main(String[] args) throws Exception {
+        InferenceModel model = NNUtils.load().exportInferenceModel();
+
+        // random images as request bodies, the values do not change the work
+        Random random = new Random(42);
+        String[] bodies = new String[16];
+        for (int i = 0; i < bodies.length; i++) {
+            StringBuilder sb = new StringBuilder("[");
+            for (int j = 0; j < model.inputSize(); j++)
+                sb.append(j > 0 ? "," : "").append(random.nextDouble());
+            bodies[i] = sb.append(']').toString();
+        }
+
+        run("per request", model, 1, 0, bodies);
+        run("batched", model, 32, 2000, bodies);
+    }
+
+    private static void run(String name, InferenceModel model, int maxBatch, long maxDelayMicros, String[] bodies) throws Exception {
+        try (InferenceServer server = new InferenceServer(model, 0, maxBatch, maxDelayMicros, 1024)) {
+            HttpClient client = HttpClient.newHttpClient();
+            URI uri = URI.create("http://127.0.0.1:" + server.port() + "/predict");
+
+            Histogram latency = new Histogram();
+            AtomicLong errors = new AtomicLong();
+            long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(SECONDS);
+
+            ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+            for (int c = 0; c < CLIENTS; c++) {
+                int id = c;
+                clients.execute(() -> {
+                    for (int i = id; System.nanoTime() < end; i++) {
+                        HttpRequest request = HttpRequest.newBuilder(uri)
+                                .POST(HttpRequest.BodyPublishers.ofString(bodies[i % bodies.length])).build();
+                        long start = System.nanoTime();
+                        try {
+                            if (client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode() != 200)
+                                errors.incrementAndGet();
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        latency.record(System.nanoTime() - start);
+                    }
+                });
+            }
+            clients.shutdown();
+            clients.awaitTermination(SECONDS + 30, TimeUnit.SECONDS);
+
+            l("%s: %.0f requests/s, p50 %.2f ms, p99 %.2f ms, %d errors",
+                    name, latency.count() / (double) SECONDS,
+                    latency.percentile(50) / 1e6, latency.percentile(99) / 1e6, errors.get());
+            if (server.batcher != null)
+                l("%s: mean batch size %.1f, p99 queue wait %.2f ms", name,
+                        server.batcher.batchSize.mean(), server.batcher.queueWait.percentile(99) / 1e6);
+
+            String metrics = client.send(HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + "/metrics")).build(),
+                    HttpResponse.BodyHandlers.ofString()).body();
+            l(metrics);
+        }
+    }
+}
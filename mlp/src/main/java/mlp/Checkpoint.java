@@ -0,0 +1,296 @@
+package mlp;
+
+import mlp.optimizer.Optimizer;
+import mlp.optimizer.SGD;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * training state of a network in a file, to resume training after a crash
+ * <p>
+ * layout, all numbers little endian:
+ * <pre>
+ * magic          4 bytes "MLPC"
+ * version        int
+ * epoch, batch   2 ints, position of training (see MLP2.epoch)
+ * batch size     int, of those batches (since version 2, version 1 files have none)
+ * step           long
+ * seed           long, of the sample order
+ * model size     int, n
+ * model          n bytes, the network as model file (see ModelFile, with its own checksum)
+ * states         int, number of state blocks
+ * state blocks   name (a short length and that many UTF-8 bytes), int length, length doubles
+ * checksum       int, CRC32 of all bytes before it
+ * </pre>
+ * the state blocks hold the optimizer: first a block "optimizer.name" (see Optimizer.name)
+ * with its configuration followed by the number of steps it took, then one block per state buffer.
+ * checkpoints are written to a temporary file and renamed when complete,
+ * so an existing checkpoint is never damaged by a crash while writing.
+ * <p>
+ * the sample order is restored from the seed only, that is for the RandomSampler of
+ * MLP2.fit(Dataset, int, int). a training with another Sampler resumes in the same order
+ * only if the sampler is created the same way again.
+ */
+public class Checkpoint {
+    public static final int VERSION = 2;
+
+    private static final byte[] MAGIC = {'M', 'L', 'P', 'C'};
+    private static final Pattern NAME = Pattern.compile("checkpoint-(\\d{1,18})\\.mlpc");
+
+    private Checkpoint() {
+    }
+
+    /**
+     * copy the training state of the network into a buffer, quick enough
+     * for the training thread, the buffer can be written by another thread afterwards
+     *
+     * @return checkpoint from position 0 to the limit
+     */
+    public static ByteBuffer snapshot(MLP2 nn) {
+        ByteBuffer model = ModelFile.encode(nn);
+
+        Optimizer optimizer = nn.optimizer != null ? nn.optimizer : new SGD();
+        double[] configuration = Arrays.copyOf(optimizer.configuration(), optimizer.configuration().length + 1);
+        configuration[configuration.length - 1] = optimizer.steps();
+
+        String[] names = optimizer.stateNames();
+        double[][] states = new double[names.length][];
+        for (int i = 0; i < names.length; i++)
+            states[i] = optimizer.state(names[i]);
+
+        // no state before the first step
+        int blocks = states.length > 0 && states[0] == null ? 1 : 1 + states.length;
+
+        int size = MAGIC.length + 5 * Integer.BYTES + 2 * Long.BYTES + model.remaining() + Integer.BYTES + Integer.BYTES
+                + blockSize("optimizer." + optimizer.name(), configuration.length);
+        for (int i = 1; i < blocks; i++)
+            size += blockSize(names[i - 1], states[i - 1].length);
+
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.put(MAGIC)
+                .putInt(VERSION)
+                .putInt(nn.epoch)
+                .putInt(nn.batch)
+                .putInt(nn.batchSize)
+                .putLong(nn.step)
+                .putLong(nn.seed)
+                .putInt(model.remaining())
+                .put(model)
+                .putInt(blocks);
+
+        putBlock(buffer, "optimizer." + optimizer.name(), configuration);
+        for (int i = 1; i < blocks; i++)
+            putBlock(buffer, names[i - 1], states[i - 1]);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().flip());
+        buffer.putInt((int) crc.getValue());
+
+        return buffer.flip();
+    }
+
+    private static int blockSize(String name, int length) {
+        return Short.BYTES + name.getBytes(StandardCharsets.UTF_8).length + Integer.BYTES + length * Double.BYTES;
+    }
+
+    private static void putBlock(ByteBuffer buffer, String name, double[] values) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length).put(bytes).putInt(values.length);
+        buffer.asDoubleBuffer().put(values);
+        buffer.position(buffer.position() + values.length * Double.BYTES);
+    }
+
+    /**
+     * write a snapshot to a file, replacing it in one step when complete
+     *
+     * @param snapshot see snapshot, from its position to its limit
+     * @param path     checkpoint file
+     */
+    public static void write(ByteBuffer snapshot, Path path) throws IOException {
+        ModelFile.write(snapshot, path);
+    }
+
+    /**
+     * write the training state of the network to a file
+     *
+     * @param nn   network
+     * @param path checkpoint file, replaced if it exists
+     */
+    public static void save(MLP2 nn, Path path) throws IOException {
+        write(snapshot(nn), path);
+    }
+
+    /**
+     * @return checkpoint file of a step in a checkpoint directory
+     */
+    public static Path path(Path directory, long step) {
+        return directory.resolve("checkpoint-" + step + ".mlpc");
+    }
+
+    /**
+     * read a network with its training state, training continues where the checkpoint was taken
+     *
+     * @param path checkpoint file
+     * @return network
+     */
+    public static MLP2 load(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+
+        int end = buffer.limit() - Integer.BYTES;
+        if (end < MAGIC.length)
+            throw new IOException(path + " is not a checkpoint: too short");
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position(0).limit(end));
+        if ((int) crc.getValue() != buffer.getInt(end))
+            throw new IOException(path + " is not a checkpoint or is corrupted: checksum mismatch");
+
+        for (byte b : MAGIC)
+            if (buffer.get() != b)
+                throw new IOException(path + " is not a checkpoint: wrong magic number");
+
+        int version = buffer.getInt();
+        if (version < 1 || version > VERSION)
+            throw new IOException(path + " has checkpoint version " + version + ", expected 1 to " + VERSION);
+
+        // version 1 has no batch size, resuming it cannot be checked
+        int epoch = buffer.getInt(), batch = buffer.getInt(), batchSize = version > 1 ? buffer.getInt() : 0;
+        long step = buffer.getLong(), seed = buffer.getLong();
+
+        int modelSize = buffer.getInt();
+        if (modelSize < 0 || modelSize > end - buffer.position())
+            throw new IOException(path + " has a corrupted header");
+
+        ByteBuffer model = buffer.slice().limit(modelSize).order(ByteOrder.LITTLE_ENDIAN);
+        ModelFile.verify(model, path);
+        MLP2 nn = ModelFile.decode(model, path);
+        buffer.position(buffer.position() + modelSize);
+
+        try {
+            readOptimizer(buffer, end, nn);
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            throw new IOException(path + " has corrupted optimizer state: " + e.getMessage(), e);
+        }
+
+        nn.epoch = epoch;
+        nn.batch = batch;
+        nn.batchSize = batchSize;
+        nn.step = step;
+        nn.seed = seed;
+
+        return nn;
+    }
+
+    private static void readOptimizer(ByteBuffer buffer, int end, MLP2 nn) {
+        int blocks = buffer.getInt();
+        if (blocks < 1)
+            throw new IllegalArgumentException("no optimizer block");
+
+        String[] names = new String[blocks];
+        double[][] values = new double[blocks][];
+        for (int i = 0; i < blocks; i++) {
+            byte[] name = new byte[buffer.getShort() & 0xFFFF];
+            buffer.get(name);
+            names[i] = new String(name, StandardCharsets.UTF_8);
+
+            int length = buffer.getInt();
+            if (length < 0 || (long) length * Double.BYTES > end - buffer.position())
+                throw new IllegalArgumentException("block " + names[i] + " is too long");
+
+            values[i] = new double[length];
+            buffer.asDoubleBuffer().get(values[i]);
+            buffer.position(buffer.position() + length * Double.BYTES);
+        }
+
+        if (!names[0].startsWith("optimizer.") || values[0].length < 1)
+            throw new IllegalArgumentException("first block is not an optimizer");
+
+        double[] configuration = values[0];
+        Optimizer optimizer = Optimizer.create(names[0].substring("optimizer.".length()),
+                Arrays.copyOf(configuration, configuration.length - 1));
+
+        if (blocks > 1) {
+            String[] expected = optimizer.stateNames();
+            if (!Arrays.equals(expected, Arrays.copyOfRange(names, 1, blocks)))
+                throw new IllegalArgumentException("optimizer " + optimizer.name() + " has states " + Arrays.toString(expected));
+
+            optimizer.restore(nn, (long) configuration[configuration.length - 1], Arrays.copyOfRange(values, 1, blocks));
+        }
+
+        nn.optimizer = optimizer;
+    }
+
+    /**
+     * find the newest checkpoint in a directory that can be read,
+     * damaged or unreadable ones are skipped.
+     * the newest is the last one written, not the one of the highest step,
+     * so checkpoints of an earlier run that got further do not win over the current run
+     *
+     * @param directory directory the checkpoints were written to (see path)
+     * @return network of the latest valid checkpoint, null if there is none
+     */
+    public static MLP2 loadLatest(Path directory) throws IOException {
+        for (Path path : list(directory)) {
+            try {
+                return load(path);
+            } catch (IOException | RuntimeException e) {
+                // try the one before
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return checkpoint files in a directory, newest (last modified, then highest step) first
+     */
+    public static List<Path> list(Path directory) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        if (!Files.isDirectory(directory))
+            return paths;
+
+        Map<Path, FileTime> modified = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                if (!NAME.matcher(file.getFileName().toString()).matches())
+                    continue;
+
+                try {
+                    modified.put(file, Files.getLastModifiedTime(file));
+                    paths.add(file);
+                } catch (NoSuchFileException e) {
+                    // deleted meanwhile
+                }
+            }
+        }
+
+        paths.sort(Comparator.<Path, FileTime>comparing(modified::get)
+                .thenComparingLong(Checkpoint::step)
+                .reversed());
+        return paths;
+    }
+
+    private static long step(Path path) {
+        Matcher m = NAME.matcher(path.getFileName().toString());
+        return m.matches() ? Long.parseLong(m.group(1)) : -1;
+    }
+}
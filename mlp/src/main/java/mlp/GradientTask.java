@@ -0,0 +1,53 @@
+package mlp;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * computes the gradients of a batch in parallel
+ * <p>
+ * the batch columns are split into a fixed number of shards, every shard has
+ * its own workspace and the results are summed up pairwise in a binary tree
+ * (into the gradients of the leftmost shard).
+ * shard boundaries and summation order only depend on the batch size and the
+ * number of shards, never on thread scheduling, so the result is deterministic.
+ */
+class GradientTask extends RecursiveTask<Gradients> {
+    private final MLP2 nn;
+    private final Workspace[] shards;
+    private final int firstShard, lastShard;
+
+    /**
+     * @param nn     network
+     * @param shards one workspace per shard of the batch
+     */
+    GradientTask(MLP2 nn, Workspace[] shards) {
+        this(nn, shards, 0, shards.length);
+    }
+
+    private GradientTask(MLP2 nn, Workspace[] shards, int firstShard, int lastShard) {
+        this.nn = nn;
+        this.shards = shards;
+        this.firstShard = firstShard;
+        this.lastShard = lastShard;
+    }
+
+    @Override
+    protected Gradients compute() {
+        if (lastShard - firstShard == 1) {
+            // compute gradients of the columns of this shard
+            nn.computeGradients(shards[firstShard]);
+
+            return shards[firstShard].gradients;
+        }
+
+        int middle = (firstShard + lastShard) / 2;
+
+        GradientTask left = new GradientTask(nn, shards, firstShard, middle),
+                right = new GradientTask(nn, shards, middle, lastShard);
+
+        left.fork();
+        Gradients rightGradients = right.compute();
+
+        return left.join().add(rightGradients);
+    }
+}
@@ -0,0 +1,51 @@
+package mlp;
+
+import mlp.matrix.Matrix;
+
+/**
+ * gradients of the loss with respect to all weights and biases of a network,
+ * summed over the samples of a batch (or of a part of a batch)
+ */
+public class Gradients {
+    /**
+     * one gradient matrix per weight matrix and bias vector of the network
+     */
+    public final Matrix[] weight, bias;
+
+    /**
+     * summed loss of the samples the gradients were computed from
+     */
+    public double loss;
+
+    /**
+     * zero gradients matching the shapes of the network
+     *
+     * @param nn network
+     */
+    public Gradients(MLP2 nn) {
+        weight = new Matrix[nn.weight.length];
+        bias = new Matrix[nn.bias.length];
+
+        for (int i = 0; i < weight.length; i++) {
+            weight[i] = Matrix.zeros(nn.weight[i].rows, nn.weight[i].cols);
+            bias[i] = Matrix.zeros(nn.bias[i].rows, nn.bias[i].cols);
+        }
+    }
+
+    /**
+     * add other gradients to these
+     *
+     * @param other gradients of the same network
+     * @return this
+     */
+    public Gradients add(Gradients other) {
+        for (int i = 0; i < weight.length; i++) {
+            weight[i].add(other.weight[i]);
+            bias[i].add(other.bias[i]);
+        }
+
+        loss += other.loss;
+
+        return this;
+    }
+}
@@ -0,0 +1,341 @@
+package mlp;
+
+import mlp.activationfunction.ActivationFunction;
+import mlp.matrix.FloatMatrix;
+import mlp.matrix.Matrix;
+import mlp.matrix.OffHeapMatrix;
+
+/**
+ * immutable snapshot of a trained network for inference only
+ * <p>
+ * holds private copies of weights and biases, so the network it was exported from
+ * can keep training. any number of threads can predict concurrently,
+ * every thread uses its own scratch buffers, which are allocated on the first call
+ * (and again only when a bigger batch than before is predicted), so steady state
+ * predictions do not allocate.
+ * <p>
+ * a model exported in FLOAT precision holds its weights as float and computes
+ * in float, inputs and outputs are still double arrays.
+ * <p>
+ * a model loaded into an Arena (see ModelFile.loadInferenceModel(Path, Arena)) computes directly
+ * on the weights in the mapped model file instead of copies on the heap,
+ * it can only be used until the arena is closed.
+ */
+public final class InferenceModel implements Predictor {
+    private final int[] layerStructure;
+    private final Matrix[] weight, bias, biasRow;
+    private final ActivationFunction activationFunction, outputActivationFunction;
+
+    /**
+     * in FLOAT precision the weights are only kept as float
+     * (weight, bias and biasRow are null then) and the other way around
+     */
+    private final Precision precision;
+    private final FloatMatrix[] floatWeight, floatBias, floatBiasRow;
+
+    /**
+     * weights in native memory instead of weight (which is null then), DOUBLE precision
+     */
+    private final OffHeapMatrix[] offHeapWeight;
+
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * snapshot of the current weights of a network,
+     * must not run concurrently with a training step of that network
+     *
+     * @param nn network to copy
+     */
+    public InferenceModel(MLP2 nn) {
+        this(nn.layerStructure.clone(), nn.activationFunction, nn.outputActivationFunction,
+                nn.precision == Precision.FLOAT ? null : copy(nn.weight),
+                nn.precision == Precision.FLOAT ? null : copy(nn.bias),
+                nn.precision == Precision.FLOAT ? floatCopy(nn.weight) : null,
+                nn.precision == Precision.FLOAT ? floatCopy(nn.bias) : null);
+    }
+
+    /**
+     * model on the given matrices without copying them,
+     * either the double or the float weights and biases are set (FLOAT precision then)
+     */
+    InferenceModel(int[] layerStructure, ActivationFunction activationFunction, ActivationFunction outputActivationFunction,
+                   Matrix[] weight, Matrix[] bias, FloatMatrix[] floatWeight, FloatMatrix[] floatBias) {
+        this(layerStructure, activationFunction, outputActivationFunction, weight, null, bias, floatWeight, floatBias);
+    }
+
+    /**
+     * model on weights in native memory, with the biases on the heap
+     */
+    InferenceModel(int[] layerStructure, ActivationFunction activationFunction, ActivationFunction outputActivationFunction,
+                   OffHeapMatrix[] weight, Matrix[] bias) {
+        this(layerStructure, activationFunction, outputActivationFunction, null, weight, bias, null, null);
+    }
+
+    private InferenceModel(int[] layerStructure, ActivationFunction activationFunction, ActivationFunction outputActivationFunction,
+                           Matrix[] weight, OffHeapMatrix[] offHeapWeight, Matrix[] bias,
+                           FloatMatrix[] floatWeight, FloatMatrix[] floatBias) {
+        this.layerStructure = layerStructure;
+        this.activationFunction = activationFunction;
+        this.outputActivationFunction = outputActivationFunction;
+        this.weight = weight;
+        this.offHeapWeight = offHeapWeight;
+        this.bias = bias;
+        this.floatWeight = floatWeight;
+        this.floatBias = floatBias;
+
+        if (floatWeight != null) {
+            precision = Precision.FLOAT;
+            biasRow = null;
+            floatBiasRow = new FloatMatrix[floatBias.length];
+            for (int i = 0; i < floatBias.length; i++)
+                floatBiasRow[i] = new FloatMatrix(floatBias[i].data, 1, floatBias[i].rows, floatBias[i].offset, floatBias[i].rows);
+        } else {
+            precision = Precision.DOUBLE;
+            floatBiasRow = null;
+            biasRow = new Matrix[bias.length];
+            // same storage, as row vector for the row-major batches
+            for (int i = 0; i < bias.length; i++)
+                biasRow[i] = new Matrix(bias[i].data, 1, bias[i].rows, bias[i].offset, bias[i].rows);
+        }
+    }
+
+    private static Matrix[] copy(Matrix[] ms) {
+        Matrix[] copy = new Matrix[ms.length];
+        for (int i = 0; i < ms.length; i++)
+            copy[i] = Matrix.c(ms[i]);
+        return copy;
+    }
+
+    private static FloatMatrix[] floatCopy(Matrix[] ms) {
+        FloatMatrix[] copy = new FloatMatrix[ms.length];
+        for (int i = 0; i < ms.length; i++)
+            copy[i] = new FloatMatrix(ms[i]);
+        return copy;
+    }
+
+    /**
+     * feed one input through the network
+     *
+     * @param in  input, layerStructure[0] values
+     * @param out receives the output, size of the last layer
+     */
+    @Override
+    public void predict(double[] in, double[] out) {
+        checkLength(in.length, layerStructure[0], "input");
+        checkLength(out.length, outputSize(), "output");
+
+        if (precision == Precision.FLOAT) {
+            predictFloat(in, out);
+            return;
+        }
+
+        Matrix[] a = scratch.get().vector;
+        System.arraycopy(in, 0, a[0].data, 0, in.length);
+
+        for (int l = 0; l < bias.length; l++) {
+            if (offHeapWeight != null)
+                Matrix.dot(offHeapWeight[l], a[l], a[l + 1], false);
+            else
+                Matrix.dot(weight[l], a[l], a[l + 1], false);
+
+            a[l + 1].addColumnVector(bias[l])
+                    .apply(l == bias.length - 1 ? outputActivationFunction : activationFunction, false);
+        }
+
+        System.arraycopy(a[a.length - 1].data, 0, out, 0, out.length);
+    }
+
+    private void predictFloat(double[] in, double[] out) {
+        FloatMatrix[] a = scratch.get().floatVector();
+        for (int i = 0; i < in.length; i++)
+            a[0].data[i] = (float) in[i];
+
+        for (int l = 0; l < floatWeight.length; l++) {
+            FloatMatrix.dot(floatWeight[l], a[l], a[l + 1], false)
+                    .addColumnVector(floatBias[l]);
+            a[l + 1].activate(l == floatWeight.length - 1 ? outputActivationFunction : activationFunction, a[l + 1]);
+        }
+
+        float[] y = a[a.length - 1].data;
+        for (int i = 0; i < out.length; i++)
+            out[i] = y[i];
+    }
+
+    /**
+     * feed many inputs through the network as one batch,
+     * each layer is a single matrix product for all inputs
+     *
+     * @param in  inputs, each layerStructure[0] values
+     * @param out receives one output per input, each of the size of the last layer
+     */
+    @Override
+    public void predictBatch(double[][] in, double[][] out) {
+        if (in.length != out.length)
+            throw new IllegalArgumentException("inputs and outputs must be of same length");
+
+        int n = in.length;
+        if (n == 0) return;
+
+        if (precision == Precision.FLOAT) {
+            predictBatchFloat(in, out);
+            return;
+        }
+
+        Matrix[] a = scratch.get().batch(n);
+
+        // one sample per row
+        Matrix X = a[0];
+        for (int i = 0; i < n; i++) {
+            checkLength(in[i].length, layerStructure[0], "input");
+            System.arraycopy(in[i], 0, X.data, i * X.stride, X.cols);
+        }
+
+        forward(a);
+
+        Matrix Y = a[a.length - 1];
+        for (int i = 0; i < n; i++) {
+            checkLength(out[i].length, outputSize(), "output");
+            System.arraycopy(Y.data, i * Y.stride, out[i], 0, Y.cols);
+        }
+    }
+
+    private void predictBatchFloat(double[][] in, double[][] out) {
+        int n = in.length;
+        FloatMatrix[] a = scratch.get().floatBatch(n);
+
+        FloatMatrix X = a[0];
+        for (int i = 0; i < n; i++) {
+            checkLength(in[i].length, layerStructure[0], "input");
+            for (int j = 0; j < X.cols; j++)
+                X.data[i * X.stride + j] = (float) in[i][j];
+        }
+
+        for (int l = 0; l < floatWeight.length; l++) {
+            FloatMatrix.dotTransB(a[l], floatWeight[l], a[l + 1], false)
+                    .addRowVector(floatBiasRow[l]);
+            a[l + 1].activate(l == floatWeight.length - 1 ? outputActivationFunction : activationFunction, a[l + 1]);
+        }
+
+        FloatMatrix Y = a[a.length - 1];
+        for (int i = 0; i < n; i++) {
+            checkLength(out[i].length, outputSize(), "output");
+            for (int j = 0; j < Y.cols; j++)
+                out[i][j] = Y.data[i * Y.stride + j];
+        }
+    }
+
+    /**
+     * batch forward pass on row-major samples: a[l + 1] = g(a[l] * W^T + b^T)
+     */
+    private void forward(Matrix[] a) {
+        for (int l = 0; l < bias.length; l++) {
+            if (offHeapWeight != null)
+                Matrix.dotTransB(a[l], offHeapWeight[l], a[l + 1], false);
+            else
+                Matrix.dotTransB(a[l], weight[l], a[l + 1], false);
+
+            a[l + 1].addRowVector(biasRow[l])
+                    .apply(l == bias.length - 1 ? outputActivationFunction : activationFunction, false);
+        }
+    }
+
+    /**
+     * @return precision the model computes in
+     */
+    public Precision precision() {
+        return precision;
+    }
+
+    @Override
+    public int inputSize() {
+        return layerStructure[0];
+    }
+
+    @Override
+    public int outputSize() {
+        return layerStructure[layerStructure.length - 1];
+    }
+
+    /**
+     * @return copy of the layer structure
+     */
+    public int[] layerStructure() {
+        return layerStructure.clone();
+    }
+
+    private static void checkLength(int length, int expected, String what) {
+        if (length != expected)
+            throw new IllegalArgumentException(what + " has length " + length + ", expected " + expected);
+    }
+
+    /**
+     * per thread buffers
+     */
+    private class Scratch {
+        /**
+         * activations for single predictions, one column vector per layer
+         */
+        final Matrix[] vector = new Matrix[layerStructure.length];
+
+        /**
+         * the same for FLOAT precision, single predictions allocated on first use,
+         * a model only ever uses one of the two so they share the capacity
+         */
+        private FloatMatrix[] floatVector, floatBatch;
+
+        /**
+         * activations for batch predictions (one sample per row) and their capacity
+         */
+        private Matrix[] batch;
+        private int capacity;
+
+        Scratch() {
+            if (precision == Precision.DOUBLE)
+                for (int l = 0; l < vector.length; l++)
+                    vector[l] = Matrix.zeros(layerStructure[l], 1);
+        }
+
+        /**
+         * @return activation buffers with exactly n rows
+         */
+        Matrix[] batch(int n) {
+            if (n > capacity) {
+                capacity = Math.max(n, 2 * capacity);
+                batch = new Matrix[layerStructure.length];
+                for (int l = 0; l < batch.length; l++)
+                    batch[l] = Matrix.zeros(capacity, layerStructure[l]);
+            }
+
+            // the buffers are compact and private, so using only
+            // the first n rows of the storage is just a smaller row count
+            for (Matrix m : batch)
+                m.rows = n;
+
+            return batch;
+        }
+
+        FloatMatrix[] floatVector() {
+            if (floatVector == null) {
+                floatVector = new FloatMatrix[layerStructure.length];
+                for (int l = 0; l < floatVector.length; l++)
+                    floatVector[l] = FloatMatrix.zeros(layerStructure[l], 1);
+            }
+
+            return floatVector;
+        }
+
+        FloatMatrix[] floatBatch(int n) {
+            if (n > capacity) {
+                capacity = Math.max(n, 2 * capacity);
+                floatBatch = new FloatMatrix[layerStructure.length];
+                for (int l = 0; l < floatBatch.length; l++)
+                    floatBatch[l] = FloatMatrix.zeros(capacity, layerStructure[l]);
+            }
+
+            for (FloatMatrix m : floatBatch)
+                m.rows = n;
+
+            return floatBatch;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package mlp;
+
+/**
+ * loss function of training (see MLP2.lossFunction)
+ */
+public enum Loss {
+    /**
+     * squared error, the last delta is output - expected output.
+     * the reported loss is the distance between output and expected output, per sample
+     */
+    SQUARED_ERROR,
+
+    /**
+     * softmax over the outputs and cross entropy to the expected outputs,
+     * for classification with one-hot (or other probability) targets.
+     * the outputs of the network are the logits then, so the output activation should be
+     * IDENTITY, the predicted probabilities are softmax(outputs) (see softmax).
+     * loss and last delta are computed together, numerically stable, for the whole batch
+     */
+    SOFTMAX_CROSS_ENTROPY;
+
+    /**
+     * @return id in model files, the order of the constants must not change
+     */
+    int id() {
+        return ordinal();
+    }
+
+    /**
+     * @throws IllegalArgumentException for unknown ids
+     */
+    static Loss byId(int id) {
+        if (id < 0 || id >= values().length)
+            throw new IllegalArgumentException("unknown loss id " + id);
+
+        return values()[id];
+    }
+
+    /**
+     * probabilities of the outputs of a network trained with SOFTMAX_CROSS_ENTROPY, in place
+     *
+     * @param logits outputs of the network
+     * @return logits
+     */
+    public static double[] softmax(double[] logits) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (double x : logits)
+            max = Math.max(max, x);
+
+        double sum = 0;
+        for (int i = 0; i < logits.length; i++)
+            sum += logits[i] = Math.exp(logits[i] - max);
+
+        for (int i = 0; i < logits.length; i++)
+            logits[i] /= sum;
+
+        return logits;
+    }
+}
@@ -0,0 +1,824 @@
+package mlp;
+
+import mlp.activationfunction.ActivationFunction;
+import mlp.activationfunction.ActivationFunctions;
+import mlp.data.ArrayDataset;
+import mlp.data.Batch;
+import mlp.data.Dataset;
+import mlp.data.MatrixDataset;
+import mlp.data.PrefetchingBatchIterator;
+import mlp.data.RandomSampler;
+import mlp.data.Sampler;
+import mlp.matrix.ArrayUtils;
+import mlp.matrix.FloatMatrix;
+import mlp.matrix.Matrix;
+import mlp.optimizer.Optimizer;
+import mlp.optimizer.SGD;
+import mlp.training.Allocation;
+import mlp.training.EpochEvent;
+import mlp.training.EpochMetrics;
+import mlp.training.StepEvent;
+import mlp.training.StepMetrics;
+import mlp.training.TrainingListener;
+import mlp.utils.Log;
+import mlp.utils.Pair;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Simple implementation of a Multi Layer Perceptron learning with squared error
+ * or softmax cross entropy loss function (see Loss)
+ *
+ * Hyperparameters that can be edited:
+ * batch size
+ * layer structure
+ * learning rate for bias and for weights
+ * optimizer (update rule)
+ * loss function
+ * activation functions
+ *
+ * Might not work sometimes, the matrix library was implemented by myself and
+ * when using ReLU for example, there are often infinity / NaN errors occurring, since the numbers get too big.
+ * By default training steps that produce them are rolled back, see NumericMode.
+ *
+ * Implemented with the help of this video and my lectures on neuronal networks. Thanks to my prof BJ.
+ * https://www.youtube.com/watch?v=x_Eamf8MHwU
+ */
+public class MLP2 implements Serializable, AutoCloseable {
+    /**
+     * thetas, weight matrices
+     * bias vectors are not included in the weights,
+     * using extra vector, easier to calculate
+     */
+    public Matrix[] weight, bias;
+
+    /**
+     * activation functions for all layers
+     * g(x)
+     *
+     * the output activation function is used to activate the last layer
+     */
+    public ActivationFunction activationFunction, outputActivationFunction;
+
+    /**
+     * layer structure
+     */
+    public int[] layerStructure;
+
+    /**
+     * hyperparameter learning rate eta for weights
+     * and for bias (gamma)
+     */
+    public double learningRate, biasLearningRate;
+
+    /**
+     * update rule of training, plain gradient descent by default,
+     * e.g. new Adam() converges in far fewer epochs (with smaller learning rates)
+     */
+    public Optimizer optimizer = new SGD();
+
+    /**
+     * loss function of training, SOFTMAX_CROSS_ENTROPY (with IDENTITY output activation)
+     * for classification
+     */
+    public Loss lossFunction = Loss.SQUARED_ERROR;
+
+    /**
+     * what to do about NaN and infinity during training
+     */
+    public NumericMode numericMode = NumericMode.ROLLBACK;
+
+    /**
+     * precision of training and of exported inference models,
+     * in FLOAT mode the loss and the bias gradients (sums over the batch)
+     * are accumulated in double unless accumulateInDouble is switched off.
+     * summing the gradients of the shards and the weight update always happen in double
+     */
+    public Precision precision = Precision.DOUBLE;
+    public boolean accumulateInDouble = true;
+
+    /**
+     * position of training, saved with checkpoints (see Checkpoint):
+     * number of epochs trained so far, also the number of the next epoch
+     * the sampler is asked for (see fit(Dataset, Sampler, int, int)),
+     * number of batches of that epoch already trained (they are skipped when
+     * training continues), their size and number of training steps (mini batches) so far
+     */
+    public int epoch, batch, batchSize;
+    public long step;
+
+    /**
+     * seed of the sample order of fit(Dataset, int, int), so training can be repeated and resumed
+     */
+    public long seed = ArrayUtils.random.nextLong();
+
+    /**
+     * number of shards a mini batch is split into for parallel training
+     * and the pool the shards run on (null for the common pool),
+     * ownsPool if it was created by setParallelism(int) and is shut down by this network
+     */
+    private int parallelism = 1;
+    private transient ForkJoinPool pool;
+    private transient boolean ownsPool;
+
+    /**
+     * reused training buffers: packed batch and per shard workspaces
+     */
+    private transient Matrix batchX, batchY;
+
+    /**
+     * see addListener, the metrics objects are reused for every call
+     */
+    private transient TrainingListener[] listeners;
+    private transient StepMetrics stepMetrics;
+    private transient EpochMetrics epochMetrics;
+
+    /**
+     * per shard workspaces of the last two batch shapes, the most recently used first,
+     * so the smaller last batch of an epoch does not replace the ones of the full batches
+     */
+    private transient Workspace[][] workspaces;
+
+    /**
+     * weights and biases rounded to float for training in FLOAT mode,
+     * refreshed from the double weights before every step
+     */
+    private transient FloatMatrix[] floatWeight, floatBias;
+
+    /**
+     * initializer
+     *
+     * @param layerStructure     layer structure
+     * @param activationFunction activation function
+     * @param learningRate       learning rate
+     */
+    public MLP2(int[] layerStructure, ActivationFunction activationFunction, ActivationFunction outputActivationFunction, double learningRate, double biasLearningRate) {
+        this(layerStructure, activationFunction, outputActivationFunction, learningRate, biasLearningRate, true);
+    }
+
+    /**
+     * initializer with zero weights if random is not set,
+     * for networks whose weights are filled in afterwards (see ModelFile)
+     */
+    MLP2(int[] layerStructure, ActivationFunction activationFunction, ActivationFunction outputActivationFunction, double learningRate, double biasLearningRate, boolean random) {
+        this.learningRate = learningRate;
+        this.biasLearningRate = biasLearningRate;
+        this.layerStructure = layerStructure;
+        this.activationFunction = activationFunction;
+        this.outputActivationFunction = outputActivationFunction;
+
+        // initialize weights and biases structure
+        weight = new Matrix[layerStructure.length - 1];
+        bias = new Matrix[layerStructure.length - 1];
+
+        for (int i = 0; i < weight.length; i++) {
+            weight[i] = new Matrix(layerStructure[i + 1], layerStructure[i], random);
+            bias[i] = new Matrix(layerStructure[i + 1], 1, random);
+        }
+    }
+
+    /**
+     * Calculate zs and activations for each layer
+     * z matrix array is one less than the activations matrix array
+     * z array starts at 'second element' (Z2)
+     * a array starts at 'first element' (A1)
+     * <p>
+     * the input can be a single column vector or a batch of samples,
+     * one sample per column; each layer is then one matrix product for the whole batch
+     *
+     * @param input column vector of y inputs, or matrix with one input per column
+     * @return zs and activations
+     */
+    public Pair<Matrix[], Matrix[]> feedForward(Matrix input) {
+        Matrix[] z = new Matrix[layerStructure.length - 1], // z
+                a = new Matrix[layerStructure.length]; // activations (g(z))
+
+        // first activation is the input
+        a[0] = input;
+
+        // calculate zs and activations
+        // the first z is Z 2
+        for (int i = 0; i < z.length; i++) {
+            z[i] = clamp(Matrix.dot(weight[i], a[i]).addColumnVector(bias[i]));
+            a[i + 1] = clamp(Matrix.zeros(z[i].rows, z[i].cols)
+                    .activate(i == z.length - 1 ? outputActivationFunction : activationFunction, z[i]));
+        }
+
+        return new Pair<>(z, a);
+    }
+
+    /**
+     * easy to use feedForward method
+     *
+     * @param input input column vector
+     * @return output column double array
+     */
+    public double[] feedForward(double[] input) {
+        var outputs = feedForward(Matrix.columnVector(input));
+        return ArrayUtils.lastElement(outputs.b).flatten();
+    }
+
+    /**
+     * easy to use feedForward method for many inputs at once,
+     * all inputs are passed through the network as one batch
+     *
+     * @param inputs input arrays
+     * @return one output array per input
+     */
+    public double[][] feedForward(double[][] inputs) {
+        var outputs = feedForward(Matrix.fromColumns(inputs));
+        return Matrix.transpose(ArrayUtils.lastElement(outputs.b)).toArray();
+    }
+
+
+    /**
+     * train the network:
+     * 1. feed forward
+     * 2. back propagate
+     * 3. update weights
+     * 4. repeat
+     * <p>
+     * every epoch is one pass over all samples in a new random order,
+     * split into mini batches (see fit(Dataset, Sampler, int, int))
+     *
+     * @param inputs    column vectors of inputs
+     * @param outputs   column vectors of outputs
+     * @param epochs    number of epochs
+     * @param batchSize size of batch for mini-batch gradient descent
+     * @return loss history
+     */
+    public double[] fit(Matrix[] inputs, Matrix[] outputs, int batchSize, int epochs) {
+        return fit(new MatrixDataset(inputs, outputs), batchSize, epochs);
+    }
+
+    /**
+     * train on a dataset in mini batches,
+     * every epoch is one pass over all samples in a new random order (following from seed)
+     *
+     * @param dataset   samples
+     * @param batchSize size of batch for mini-batch gradient descent,
+     *                  the last batch of an epoch may be smaller
+     * @param epochs    number of passes over the dataset
+     * @return loss history, the mean loss of every epoch
+     */
+    public double[] fit(Dataset dataset, int batchSize, int epochs) {
+        return fit(dataset, new RandomSampler(dataset.size(), seed), batchSize, epochs);
+    }
+
+    /**
+     * train on a dataset that is streamed in mini batches,
+     * the sampler chooses the samples of every epoch and their order.
+     * the next batch is read on a background thread while the current one
+     * is trained on, so only two batches are in memory at a time
+     * <p>
+     * the epochs are numbered on from the epoch field,
+     * so consecutive calls with the same sampler continue its sequence of orders.
+     * if the batch field is set (training was interrupted within an epoch, see Checkpoint)
+     * the first epoch continues after that batch, which needs the same batch size.
+     * progress is reported to the listeners (see addListener), e.g. a ConsoleListener
+     *
+     * @param dataset   samples
+     * @param sampler   chooses the samples of every epoch, e.g. a RandomSampler
+     * @param batchSize size of batch for mini-batch gradient descent,
+     *                  the last batch of an epoch may be smaller
+     * @param epochs    number of epochs
+     * @return loss history, the mean loss of every epoch
+     */
+    public double[] fit(Dataset dataset, Sampler sampler, int batchSize, int epochs) {
+        if (dataset.inputSize() != layerStructure[0] || dataset.outputSize() != layerStructure[layerStructure.length - 1])
+            throw new IllegalArgumentException("dataset does not match the input and output layer");
+
+        // the batches already trained in the epoch are skipped by count, another size would skip other samples
+        if (batch > 0 && this.batchSize > 0 && batchSize != this.batchSize)
+            throw new IllegalArgumentException("training stopped after batch " + batch + " of size " + this.batchSize
+                    + ", it continues with that batch size only, not " + batchSize);
+        this.batchSize = batchSize;
+
+        double[] loss = new double[epochs];
+
+        try (PrefetchingBatchIterator batches = new PrefetchingBatchIterator(dataset, batchSize, sampler)) {
+            for (int i = 0; i < epochs; i++) {
+                boolean measured = listeners().length > 0 || EpochEvent.TYPE.isEnabled();
+                EpochEvent event = null;
+
+                long start = 0, allocated = 0, dataWait = 0, load = 0;
+                if (measured) {
+                    event = new EpochEvent();
+                    event.begin();
+                    start = System.nanoTime();
+                    allocated = Allocation.bytes();
+                    dataWait = batches.stallNanos();
+                    load = batches.loadNanos();
+                }
+
+                batches.reset(epoch, batch);
+
+                // the last step of the epoch moves the position on to the next epoch
+                int finished = epoch;
+                double sum = 0;
+                int steps = 0, samples = 0;
+                while (batches.hasNext()) {
+                    Batch b = batches.next();
+                    sum += fit(b.X, b.Y, true, !batches.hasNext()) * b.size();
+                    samples += b.size();
+                    steps++;
+                }
+
+                if (epoch == finished) {
+                    epoch++;
+                    batch = 0;
+                }
+
+                loss[i] = samples > 0 ? sum / samples : Double.NaN;
+
+                if (measured) {
+                    EpochMetrics m = epochMetrics != null ? epochMetrics : (epochMetrics = new EpochMetrics());
+                    m.epoch = finished;
+                    m.steps = steps;
+                    m.samples = samples;
+                    m.loss = loss[i];
+                    m.nanos = System.nanoTime() - start;
+                    m.dataWaitNanos = batches.stallNanos() - dataWait;
+                    m.loadNanos = batches.loadNanos() - load;
+                    m.allocatedBytes = Allocation.since(allocated);
+
+                    for (TrainingListener listener : listeners())
+                        listener.epochEnd(this, m);
+
+                    if (event.shouldCommit())
+                        event.set(m).commit();
+                }
+            }
+        }
+
+        return loss;
+    }
+
+    /**
+     * train one epoch
+     *
+     * @param X column vectors of inputs
+     * @param Y column vectors of outputs
+     * @return loss
+     */
+    public double fit(Matrix[] X, Matrix[] Y) {
+        if (X.length != Y.length)
+            throw new IllegalArgumentException("inputs and outputs must be of same length");
+
+        int m = X.length;
+        if (batchX == null || batchX.cols != m || batchX.rows != X[0].rows || batchY.rows != Y[0].rows) {
+            batchX = Matrix.zeros(X[0].rows, m);
+            batchY = Matrix.zeros(Y[0].rows, m);
+        }
+
+        for (int j = 0; j < m; j++) {
+            batchX.setColumn(j, X[j]);
+            batchY.setColumn(j, Y[j]);
+        }
+
+        return fit(batchX, batchY);
+    }
+
+    /**
+     * train one epoch on a batch packed into matrices,
+     * one sample per column
+     * <p>
+     * forward pass, deltas and weight gradients are one matrix product
+     * per layer for the whole batch, the gradients are summed over the
+     * batch by the products themselves.
+     * if parallelism is greater than 1 the batch is split into that many shards
+     * whose gradients are computed in parallel on the fork join pool.
+     * <p>
+     * all intermediate results are kept in workspaces that are reused
+     * as long as X and Y have the same shape as in the previous call
+     *
+     * @param X inputs, layerStructure[0] x m
+     * @param Y expected outputs, last layer size x m
+     * @return loss
+     */
+    public double fit(Matrix X, Matrix Y) {
+        return fit(X, Y, false, false);
+    }
+
+    /**
+     * training step, counted as batch of the current epoch if inEpoch is set,
+     * endsEpoch if it is the last batch of the epoch
+     */
+    private double fit(Matrix X, Matrix Y, boolean inEpoch, boolean endsEpoch) {
+        if (X.cols != Y.cols)
+            throw new IllegalArgumentException("inputs and outputs must be of same length");
+
+        double m = X.cols;
+
+        boolean measured = listeners().length > 0 || StepEvent.TYPE.isEnabled();
+        StepEvent event = null;
+
+        long start = 0, allocated = 0;
+        if (measured) {
+            event = new StepEvent();
+            event.begin();
+            start = System.nanoTime();
+            allocated = Allocation.bytes();
+        }
+
+        Workspace[] workspaces = workspaces(X, Y, Math.min(parallelism, X.cols));
+        Gradients gradients;
+
+        for (Workspace ws : workspaces)
+            ws.timed = measured;
+
+        if (precision == Precision.FLOAT)
+            roundWeights();
+
+        if (workspaces.length > 1) {
+            gradients = (pool != null ? pool : ForkJoinPool.commonPool())
+                    .invoke(new GradientTask(this, workspaces));
+        } else {
+            computeGradients(workspaces[0]);
+            gradients = workspaces[0].gradients;
+        }
+
+        long update = measured ? System.nanoTime() : 0;
+
+        // update weights and biases, the gradients are sums over the batch, scaled by 1 / m
+        boolean rolledBack;
+        if (numericMode == NumericMode.CLAMP) {
+            rolledBack = false;
+            optimizer().step(this, gradients, 1 / m);
+            for (int i = 0; i < weight.length; i++) {
+                clamp(weight[i]);
+                clamp(bias[i]);
+            }
+        } else {
+            // a step with non finite gradients would destroy the network, finite gradients
+            // can still overflow the parameters, then the optimizer undoes the step
+            rolledBack = !isFinite(gradients) || !optimizer().checkedStep(this, gradients, 1 / m);
+        }
+
+        if (rolledBack) {
+            if (numericMode == NumericMode.FAIL)
+                throw new ArithmeticException("training step produced NaN or infinity (loss " + gradients.loss / m + ")");
+
+            Log.l("rolled back training step with NaN or infinity (loss " + gradients.loss / m + ")");
+        }
+
+        // the position after this step, which listeners (checkpoints) see
+        long finished = step++;
+        int finishedEpoch = epoch;
+        if (inEpoch && endsEpoch) {
+            epoch++;
+            batch = 0;
+        } else if (inEpoch) {
+            batch++;
+        }
+
+        if (measured) {
+            StepMetrics metrics = stepMetrics != null ? stepMetrics : (stepMetrics = new StepMetrics());
+            metrics.updateNanos = System.nanoTime() - update;
+            metrics.nanos = System.nanoTime() - start;
+            metrics.epoch = finishedEpoch;
+            metrics.step = finished;
+            metrics.samples = X.cols;
+            metrics.loss = gradients.loss / m;
+            metrics.gradientNorm = norm(gradients) / m;
+            metrics.rolledBack = rolledBack;
+            metrics.forwardNanos = metrics.backwardNanos = 0;
+            for (Workspace ws : workspaces) {
+                metrics.forwardNanos += ws.forwardNanos;
+                metrics.backwardNanos += ws.backwardNanos;
+            }
+            metrics.allocatedBytes = Allocation.since(allocated);
+
+            for (TrainingListener listener : listeners())
+                listener.stepEnd(this, metrics);
+
+            if (event.shouldCommit())
+                event.set(metrics).commit();
+        }
+
+        // return loss (average)
+        return gradients.loss / m;
+    }
+
+    /**
+     * @return l2 norm of all gradients together
+     */
+    private static double norm(Gradients gradients) {
+        double sum = 0;
+        for (int i = 0; i < gradients.weight.length; i++) {
+            double w = gradients.weight[i].l2norm(), b = gradients.bias[i].l2norm();
+            sum += w * w + b * b;
+        }
+
+        return Math.sqrt(sum);
+    }
+
+    /**
+     * get the metrics of every training step and epoch,
+     * while no listener is attached they are not even measured
+     *
+     * @param listener listener, called on the training thread
+     */
+    public void addListener(TrainingListener listener) {
+        TrainingListener[] l = listeners();
+        listeners = Arrays.copyOf(l, l.length + 1);
+        listeners[l.length] = listener;
+    }
+
+    public void removeListener(TrainingListener listener) {
+        listeners = Arrays.stream(listeners())
+                .filter(l -> l != listener)
+                .toArray(TrainingListener[]::new);
+    }
+
+    /**
+     * @return attached listeners, none after deserialization
+     */
+    private TrainingListener[] listeners() {
+        return listeners != null ? listeners : (listeners = new TrainingListener[0]);
+    }
+
+    /**
+     * @return true if loss and all gradients are finite
+     */
+    private static boolean isFinite(Gradients gradients) {
+        if (!Double.isFinite(gradients.loss))
+            return false;
+
+        for (int i = 0; i < gradients.weight.length; i++)
+            if (!gradients.weight[i].isFinite() || !gradients.bias[i].isFinite())
+                return false;
+
+        return true;
+    }
+
+    /**
+     * networks java serialized before there were optimizers have none
+     */
+    private Optimizer optimizer() {
+        return optimizer != null ? optimizer : (optimizer = new SGD());
+    }
+
+    /**
+     * clamp m in CLAMP mode
+     *
+     * @return m
+     */
+    private Matrix clamp(Matrix m) {
+        return numericMode == NumericMode.CLAMP ? m.clamp() : m;
+    }
+
+    /**
+     * @return workspaces for training on X and Y split into the given number of shards,
+     * cached workspaces moved to X and Y if they have the same shape
+     */
+    private Workspace[] workspaces(Matrix X, Matrix Y, int shards) {
+        if (workspaces == null)
+            workspaces = new Workspace[2][];
+
+        for (int k = 0; k < workspaces.length; k++) {
+            Workspace[] w = workspaces[k];
+            if (w != null && w.length == shards && w[0].precision == precision
+                    && w[shards - 1].from + w[shards - 1].X.cols == X.cols
+                    && w[0].X.rows == X.rows && w[0].Y.rows == Y.rows) {
+                for (Workspace ws : w)
+                    ws.bind(X, Y);
+
+                workspaces[k] = workspaces[0];
+                workspaces[0] = w;
+                return w;
+            }
+        }
+
+        Workspace[] w = new Workspace[shards];
+        for (int i = 0; i < shards; i++) {
+            int from = (int) ((long) i * X.cols / shards),
+                    to = (int) ((long) (i + 1) * X.cols / shards);
+
+            w[i] = new Workspace(this, X, Y, from, to - from);
+        }
+
+        // the least recently used shape is dropped
+        workspaces[1] = workspaces[0];
+        workspaces[0] = w;
+        return w;
+    }
+
+    /**
+     * feed forward and back propagate the samples of a workspace without changing the network
+     * <p>
+     * only reads weights and biases, so it can run for different workspaces
+     * in parallel as long as the network is not updated meanwhile
+     *
+     * @param ws workspace with inputs and expected outputs,
+     *           receives the gradients and the loss, summed over its samples
+     */
+    void computeGradients(Workspace ws) {
+        if (ws.precision == Precision.FLOAT) {
+            computeFloatGradients(ws);
+            return;
+        }
+
+        Matrix[] z = ws.z, a = ws.a, deltas = ws.deltas;
+        Gradients gradients = ws.gradients;
+        long start = ws.timed ? System.nanoTime() : 0;
+
+        // feed forward
+        for (int i = 0; i < z.length; i++) {
+            clamp(Matrix.dot(weight[i], a[i], z[i], false).addColumnVector(bias[i]));
+            clamp(a[i + 1].activate(i == z.length - 1 ? outputActivationFunction : activationFunction, z[i]));
+        }
+
+        // calculate last delta and sum up loss
+        Matrix last = ArrayUtils.lastElement(deltas);
+        if (lossFunction == Loss.SOFTMAX_CROSS_ENTROPY) {
+            gradients.loss = ArrayUtils.lastElement(a).softmaxCrossEntropy(ws.Y, last, ws.columnMax, ws.columnSum);
+        } else {
+            clamp(last.set(ArrayUtils.lastElement(a)).subtract(ws.Y));
+            gradients.loss = last.sumOfColumnL2norms();
+        }
+        long forward = ws.timed ? System.nanoTime() : 0;
+
+        // calculate other deltas
+        // the derivative is computed from the cached activations
+        // into z, which is not needed anymore
+        for (int j = deltas.length - 2; j >= 0; j--) {
+            clamp(Matrix.dotTransA(weight[j + 1], deltas[j + 1], deltas[j], false))
+                    .multiply(clamp(z[j].deriveFromOutput(activationFunction, a[j + 1])));
+            clamp(deltas[j]);
+        }
+
+        // delta times activation (summed over the batch) for weights
+        for (int j = 0; j < deltas.length; j++) {
+            clamp(Matrix.dotTransB(deltas[j], a[j], gradients.weight[j], false));
+            clamp(deltas[j].rowSums(gradients.bias[j]));
+        }
+
+        if (ws.timed) {
+            ws.forwardNanos = forward - start;
+            ws.backwardNanos = System.nanoTime() - forward;
+        }
+    }
+
+    /**
+     * computeGradients in single precision on the float buffers of the workspace,
+     * with the float weights of the current step (see roundWeights)
+     * <p>
+     * the gradients end up in the double gradients of the workspace,
+     * so summing the shards and updating the weights are the same as in DOUBLE mode
+     */
+    private void computeFloatGradients(Workspace ws) {
+        FloatMatrix[] z = ws.floatZ, a = ws.floatA, deltas = ws.floatDeltas;
+        Gradients gradients = ws.gradients;
+        long start = ws.timed ? System.nanoTime() : 0;
+
+        ws.floatX.set(ws.X);
+
+        // feed forward
+        for (int i = 0; i < z.length; i++) {
+            clamp(FloatMatrix.dot(floatWeight[i], a[i], z[i], false).addColumnVector(floatBias[i]));
+            clamp(a[i + 1].activate(i == z.length - 1 ? outputActivationFunction : activationFunction, z[i]));
+        }
+
+        // calculate last delta and sum up loss
+        FloatMatrix last = ArrayUtils.lastElement(deltas);
+        if (lossFunction == Loss.SOFTMAX_CROSS_ENTROPY) {
+            gradients.loss = ArrayUtils.lastElement(a).softmaxCrossEntropy(ws.floatY.set(ws.Y), last, ws.columnMax, ws.columnSum);
+        } else {
+            clamp(last.set(ArrayUtils.lastElement(a)).subtract(ws.floatY.set(ws.Y)));
+            gradients.loss = last.sumOfColumnL2norms(accumulateInDouble);
+        }
+        long forward = ws.timed ? System.nanoTime() : 0;
+
+        // calculate other deltas
+        for (int j = deltas.length - 2; j >= 0; j--) {
+            clamp(FloatMatrix.dotTransA(floatWeight[j + 1], deltas[j + 1], deltas[j], false))
+                    .multiply(clamp(z[j].deriveFromOutput(activationFunction, a[j + 1])));
+            clamp(deltas[j]);
+        }
+
+        // delta times activation (summed over the batch) for weights,
+        // converted to double for the update
+        for (int j = 0; j < deltas.length; j++) {
+            FloatMatrix.dotTransB(deltas[j], a[j], ws.floatWeightGradients[j], false).copyTo(gradients.weight[j]);
+            clamp(gradients.weight[j]);
+            clamp(deltas[j].rowSums(gradients.bias[j], accumulateInDouble));
+        }
+
+        if (ws.timed) {
+            ws.forwardNanos = forward - start;
+            ws.backwardNanos = System.nanoTime() - forward;
+        }
+    }
+
+    /**
+     * round the double weights and biases into the float copies used in FLOAT mode
+     */
+    private void roundWeights() {
+        if (floatWeight == null) {
+            floatWeight = new FloatMatrix[weight.length];
+            floatBias = new FloatMatrix[bias.length];
+            for (int i = 0; i < weight.length; i++) {
+                floatWeight[i] = FloatMatrix.zeros(weight[i].rows, weight[i].cols);
+                floatBias[i] = FloatMatrix.zeros(bias[i].rows, bias[i].cols);
+            }
+        }
+
+        for (int i = 0; i < weight.length; i++) {
+            floatWeight[i].set(weight[i]);
+            floatBias[i].set(bias[i]);
+        }
+    }
+
+    /**
+     * clamp m in CLAMP mode
+     *
+     * @return m
+     */
+    private FloatMatrix clamp(FloatMatrix m) {
+        return numericMode == NumericMode.CLAMP ? m.clamp() : m;
+    }
+
+    /**
+     * train with data parallelism: every mini batch is split into parallelism
+     * shards that are processed on a fork join pool with that many threads,
+     * which is owned by this network (see close).
+     * for a fixed parallelism the training result does not depend on thread scheduling.
+     *
+     * @param parallelism number of shards and threads, 1 for single threaded training
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism > 1 && ownsPool && pool.getParallelism() == parallelism) {
+            this.parallelism = parallelism;
+            return;
+        }
+
+        setParallelism(parallelism, parallelism > 1 ? new ForkJoinPool(parallelism) : null);
+        ownsPool = pool != null;
+    }
+
+    /**
+     * train with data parallelism on the given pool,
+     * the pool is not shut down by this network
+     *
+     * @param parallelism number of shards every mini batch is split into
+     * @param pool        pool the shards are processed on, null for the common pool
+     */
+    public void setParallelism(int parallelism, ForkJoinPool pool) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism must be at least 1");
+
+        if (this.pool != pool) {
+            if (ownsPool)
+                this.pool.shutdown();
+            ownsPool = false;
+        }
+
+        this.parallelism = parallelism;
+        this.pool = pool;
+    }
+
+    /**
+     * shut down the pool created by setParallelism(int), training continues single threaded
+     */
+    @Override
+    public void close() {
+        setParallelism(1, null);
+    }
+
+    /**
+     * easy to use network training
+     *
+     * @param inputs    input column vectors
+     * @param outputs   output column vectors
+     * @param batchSize size of batch for mini-batch gradient descent
+     * @param epochs    number of epochs
+     * @return loss history
+     */
+    public double[] fit(double[][] inputs, double[][] outputs, int batchSize, int epochs) {
+        return fit(new ArrayDataset(inputs, outputs), batchSize, epochs);
+    }
+
+    /**
+     * export the current weights as immutable model for (concurrent) inference,
+     * training can continue on this network afterwards without affecting the model
+     *
+     * @return inference model
+     */
+    public InferenceModel exportInferenceModel() {
+        return new InferenceModel(this);
+    }
+
+    /**
+     * print the structure of the neural network
+     */
+    public void printNetwork() {
+        for (int i = 0; i < layerStructure.length - 1; i++) {
+            System.out.println("Layer " + i);
+            System.out.println("Bias vector: \n" + bias[i]);
+            System.out.println("Weight matrix: \n" + weight[i]);
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package mlp;
+
+import mlp.activationfunction.ActivationFunction;
+import mlp.activationfunction.ActivationFunctions;
+import mlp.matrix.Arena;
+import mlp.matrix.FloatMatrix;
+import mlp.matrix.Matrix;
+import mlp.matrix.OffHeapMatrix;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * versioned binary model format, replacing java serialization of MLP2
+ * <p>
+ * layout, all numbers little endian:
+ * <pre>
+ * magic             4 bytes "MLPM"
+ * version           int
+ * header size       int, offset of the first weight block (a multiple of 64)
+ * precision         int, 0 = double, 1 = float (8 or 4 bytes per value)
+ * layers            int, n
+ * layer structure   n ints
+ * activation ids    2 ints, hidden layers and output layer (see ActivationFunctions.id)
+ * learning rates    2 doubles, weights and biases
+ * loss              int, see Loss.id (since version 2, version 1 files have squared error)
+ * padding           zeros up to the header size
+ * blocks            per layer the weight matrix (row-major), then the bias vector
+ * checksum          int, CRC32 of all bytes before it
+ * </pre>
+ * only the first block is aligned to 64 bytes, the blocks follow each other without padding,
+ * so every value is aligned to its own size. loading is one bulk copy per matrix
+ * out of a memory mapped file, without parsing single values or reflection.
+ */
+public class ModelFile {
+    public static final int VERSION = 2;
+
+    private static final byte[] MAGIC = {'M', 'L', 'P', 'M'};
+    private static final int ALIGNMENT = 64;
+
+    private ModelFile() {
+    }
+
+    /**
+     * write the network to a file, in the precision of the network
+     * <p>
+     * the file is written next to path and renamed when it is complete,
+     * so a crash while saving never leaves a half written model behind
+     *
+     * @param nn   network
+     * @param path file, replaced if it exists
+     */
+    public static void save(MLP2 nn, Path path) throws IOException {
+        write(encode(nn), path);
+    }
+
+    /**
+     * @return the model file of the network in a buffer, from position 0 to the limit
+     */
+    static ByteBuffer encode(MLP2 nn) {
+        boolean single = nn.precision == Precision.FLOAT;
+        int bytes = single ? Float.BYTES : Double.BYTES,
+                headerSize = headerSize(nn.layerStructure.length, VERSION);
+
+        long size = headerSize + Integer.BYTES;
+        for (int i = 0; i < nn.weight.length; i++)
+            size += (long) bytes * (nn.weight[i].rows * nn.weight[i].cols + nn.bias[i].rows);
+
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("network too large for a model file: " + size + " bytes");
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.put(MAGIC)
+                .putInt(VERSION)
+                .putInt(headerSize)
+                .putInt(single ? 1 : 0)
+                .putInt(nn.layerStructure.length);
+        for (int n : nn.layerStructure)
+            buffer.putInt(n);
+        buffer.putInt(ActivationFunctions.id(nn.activationFunction))
+                .putInt(ActivationFunctions.id(nn.outputActivationFunction))
+                .putDouble(nn.learningRate)
+                .putDouble(nn.biasLearningRate)
+                .putInt(nn.lossFunction != null ? nn.lossFunction.id() : Loss.SQUARED_ERROR.id());
+
+        buffer.position(headerSize);
+        for (int i = 0; i < nn.weight.length; i++) {
+            put(buffer, nn.weight[i], single);
+            put(buffer, nn.bias[i], single);
+        }
+
+        buffer.putInt(checksum(buffer, buffer.position()));
+        return buffer.flip();
+    }
+
+    /**
+     * write the buffer from its position to its limit into a temporary file next to path,
+     * force it to disk and move it over path in one step
+     */
+    static void write(ByteBuffer buffer, Path path) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            channel.force(true);
+        }
+
+        try {
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * read a network for further training,
+     * its precision is the precision of the file
+     *
+     * @param path model file
+     * @return network
+     */
+    public static MLP2 load(Path path) throws IOException {
+        return decode(map(path), path);
+    }
+
+    /**
+     * read a network from a model file in a buffer whose checksum was verified,
+     * from position 0 to the limit
+     *
+     * @param source file name for error messages
+     */
+    static MLP2 decode(ByteBuffer buffer, Object source) throws IOException {
+        Header header = new Header(buffer, source);
+
+        MLP2 nn = new MLP2(header.layerStructure, header.activationFunction, header.outputActivationFunction,
+                header.learningRate, header.biasLearningRate, false);
+        nn.precision = header.single ? Precision.FLOAT : Precision.DOUBLE;
+        nn.lossFunction = header.loss;
+
+        buffer.position(header.size);
+        for (int i = 0; i < nn.weight.length; i++) {
+            get(buffer, nn.weight[i], header.single);
+            get(buffer, nn.bias[i], header.single);
+        }
+
+        return nn;
+    }
+
+    /**
+     * read a network directly into an inference model, skipping MLP2,
+     * a float file is kept in float (the model computes in float then)
+     *
+     * @param path model file
+     * @return inference model
+     */
+    public static InferenceModel loadInferenceModel(Path path) throws IOException {
+        ByteBuffer buffer = map(path);
+        Header header = new Header(buffer, path);
+
+        int layers = header.layerStructure.length - 1;
+        Matrix[] weight = null, bias = null;
+        FloatMatrix[] floatWeight = null, floatBias = null;
+
+        if (header.single) {
+            floatWeight = new FloatMatrix[layers];
+            floatBias = new FloatMatrix[layers];
+        } else {
+            weight = new Matrix[layers];
+            bias = new Matrix[layers];
+        }
+
+        buffer.position(header.size);
+        for (int i = 0; i < layers; i++) {
+            int rows = header.layerStructure[i + 1], cols = header.layerStructure[i];
+
+            if (header.single) {
+                floatWeight[i] = get(buffer, FloatMatrix.zeros(rows, cols));
+                floatBias[i] = get(buffer, FloatMatrix.zeros(rows, 1));
+            } else {
+                weight[i] = get(buffer, Matrix.zeros(rows, cols), false);
+                bias[i] = get(buffer, Matrix.zeros(rows, 1), false);
+            }
+        }
+
+        return new InferenceModel(header.layerStructure, header.activationFunction, header.outputActivationFunction,
+                weight, bias, floatWeight, floatBias);
+    }
+
+    /**
+     * map a model file into an arena and compute on the weights right in the mapping,
+     * without copying them onto the heap. the weights are shared with every other
+     * process that maps the same file and the model is loaded in constant time.
+     * the model can be used until the arena is closed.
+     * a float file is loaded onto the heap as by loadInferenceModel(Path)
+     *
+     * @param path  model file
+     * @param arena owner of the mapping
+     * @return inference model
+     */
+    public static InferenceModel loadInferenceModel(Path path, Arena arena) throws IOException {
+        ByteBuffer buffer = arena.map(path);
+        verify(buffer, path);
+        Header header = new Header(buffer, path);
+
+        if (header.single)
+            return loadInferenceModel(path);
+
+        int layers = header.layerStructure.length - 1;
+        OffHeapMatrix[] weight = new OffHeapMatrix[layers];
+        Matrix[] bias = new Matrix[layers];
+
+        int position = header.size;
+        for (int i = 0; i < layers; i++) {
+            int rows = header.layerStructure[i + 1], cols = header.layerStructure[i];
+
+            weight[i] = arena.view(buffer, position, rows, cols);
+            position += rows * cols * Double.BYTES;
+
+            bias[i] = get(buffer.position(position), Matrix.zeros(rows, 1), false);
+            position += rows * Double.BYTES;
+        }
+
+        return new InferenceModel(header.layerStructure, header.activationFunction, header.outputActivationFunction,
+                weight, bias);
+    }
+
+    /**
+     * map the whole file read only and verify its checksum
+     */
+    private static ByteBuffer map(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException(path + " is not a model file: too large");
+
+            // the mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        verify(buffer, path);
+
+        return buffer;
+    }
+
+    /**
+     * check the checksum of a model file from position 0 to the limit of the buffer
+     *
+     * @param source file name for error messages
+     */
+    static void verify(ByteBuffer buffer, Object source) throws IOException {
+        int end = buffer.limit() - Integer.BYTES;
+        if (end < MAGIC.length || checksum(buffer, end) != buffer.getInt(end))
+            throw new IOException(source + " is not a model file or is corrupted: checksum mismatch");
+    }
+
+    private static int checksum(ByteBuffer buffer, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position(0).limit(length));
+        return (int) crc.getValue();
+    }
+
+    private static int headerSize(int layers, int version) {
+        int size = MAGIC.length + 4 * Integer.BYTES + layers * Integer.BYTES + 2 * Integer.BYTES + 2 * Double.BYTES
+                + (version >= 2 ? Integer.BYTES : 0);
+        return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    private static void put(ByteBuffer buffer, Matrix m, boolean single) {
+        for (int i = 0; i < m.rows; i++) {
+            int r = m.index(i, 0);
+
+            if (single) {
+                for (int j = 0; j < m.cols; j++)
+                    buffer.putFloat((float) m.data[r + j]);
+            } else {
+                buffer.asDoubleBuffer().put(m.data, r, m.cols);
+                buffer.position(buffer.position() + m.cols * Double.BYTES);
+            }
+        }
+    }
+
+    /**
+     * read the next block into m, the bulk get of a view buffer is a plain memory copy
+     * if the byte order matches the platform (and a byte swapping loop otherwise)
+     */
+    private static Matrix get(ByteBuffer buffer, Matrix m, boolean single) {
+        for (int i = 0; i < m.rows; i++) {
+            int r = m.index(i, 0);
+
+            if (single) {
+                for (int j = 0; j < m.cols; j++)
+                    m.data[r + j] = buffer.getFloat();
+            } else {
+                buffer.asDoubleBuffer().get(m.data, r, m.cols);
+                buffer.position(buffer.position() + m.cols * Double.BYTES);
+            }
+        }
+
+        return m;
+    }
+
+    private static FloatMatrix get(ByteBuffer buffer, FloatMatrix m) {
+        int n = m.rows * m.cols;
+        buffer.asFloatBuffer().get(m.data, m.offset, n);
+        buffer.position(buffer.position() + n * Float.BYTES);
+        return m;
+    }
+
+    /**
+     * parsed and validated header of a model file
+     */
+    private static class Header {
+        final int size;
+        final boolean single;
+        final int[] layerStructure;
+        final ActivationFunction activationFunction, outputActivationFunction;
+        final double learningRate, biasLearningRate;
+        final Loss loss;
+
+        Header(ByteBuffer buffer, Object path) throws IOException {
+            buffer.position(0);
+
+            for (byte b : MAGIC)
+                if (buffer.get() != b)
+                    throw new IOException(path + " is not a model file: wrong magic number");
+
+            int version = buffer.getInt();
+            if (version < 1 || version > VERSION)
+                throw new IOException(path + " has model file version " + version + ", expected 1 to " + VERSION);
+
+            size = buffer.getInt();
+
+            int precision = buffer.getInt();
+            if (precision != 0 && precision != 1)
+                throw new IOException(path + " has unknown precision " + precision);
+            single = precision == 1;
+
+            int layers = buffer.getInt();
+            if (layers < 2 || size > buffer.limit() || size != headerSize(layers, version))
+                throw new IOException(path + " has a corrupted header: " + layers + " layers, header size " + size);
+
+            layerStructure = new int[layers];
+            long values = 0;
+            for (int i = 0; i < layers; i++) {
+                layerStructure[i] = buffer.getInt();
+                if (layerStructure[i] < 1)
+                    throw new IOException(path + " has a corrupted header: layer " + i + " has size " + layerStructure[i]);
+                if (i > 0)
+                    values += (long) layerStructure[i] * (layerStructure[i - 1] + 1);
+            }
+
+            if (size + values * (single ? Float.BYTES : Double.BYTES) + Integer.BYTES != buffer.limit())
+                throw new IOException(path + " has a size that does not match its layer structure");
+
+            try {
+                activationFunction = ActivationFunctions.byId(buffer.getInt());
+                outputActivationFunction = ActivationFunctions.byId(buffer.getInt());
+            } catch (IllegalArgumentException e) {
+                throw new IOException(path + " has a corrupted header: " + e.getMessage());
+            }
+
+            learningRate = buffer.getDouble();
+            biasLearningRate = buffer.getDouble();
+
+            try {
+                loss = version >= 2 ? Loss.byId(buffer.getInt()) : Loss.SQUARED_ERROR;
+            } catch (IllegalArgumentException e) {
+                throw new IOException(path + " has a corrupted header: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package mlp;
+
+/**
+ * how training deals with NaN and infinity
+ * <p>
+ * the matrix operations use plain floating point arithmetic,
+ * in FAIL and ROLLBACK mode the cost is one check of the summed gradients per step
+ * and a copy and check of the parameters and the optimizer state around the update
+ */
+public enum NumericMode {
+    /**
+     * clamp every intermediate result of a training step
+     * (NaN to 0, infinity to +-Matrix.ABSURDLY_LARGE),
+     * the old behavior, hides problems and is the slowest mode
+     */
+    CLAMP,
+
+    /**
+     * throw an ArithmeticException if a step produces a non finite loss, gradient,
+     * parameter or optimizer state, the network is left unchanged by that step
+     */
+    FAIL,
+
+    /**
+     * discard a step that produces a non finite loss, gradient, parameter or optimizer state
+     * (the network stays as before that step) and log it
+     */
+    ROLLBACK
+}
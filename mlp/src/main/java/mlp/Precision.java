@@ -0,0 +1,22 @@
+package mlp;
+
+/**
+ * floating point precision of the forward and backward passes
+ * <p>
+ * the weights themselves are always kept in double (so serialized networks
+ * and the weight updates are the same in both modes), in FLOAT mode they are
+ * rounded to float once per training step and all products and activations
+ * are computed on float matrices
+ */
+public enum Precision {
+    /**
+     * compute everything in double, the default
+     */
+    DOUBLE,
+
+    /**
+     * compute matrix products, activations and deltas in float32,
+     * half the memory traffic and twice the SIMD width of DOUBLE
+     */
+    FLOAT
+}
@@ -0,0 +1,27 @@
+package mlp;
+
+/**
+ * a model that maps inputs to outputs, e.g. an InferenceModel or a QuantizedModel,
+ * implementations can be used by any number of threads concurrently
+ */
+public interface Predictor {
+    /**
+     * feed one input through the model
+     *
+     * @param in  input, inputSize() values
+     * @param out receives the output, outputSize() values
+     */
+    void predict(double[] in, double[] out);
+
+    /**
+     * feed many inputs through the model as one batch
+     *
+     * @param in  inputs, each inputSize() values
+     * @param out receives one output per input, each outputSize() values
+     */
+    void predictBatch(double[][] in, double[][] out);
+
+    int inputSize();
+
+    int outputSize();
+}
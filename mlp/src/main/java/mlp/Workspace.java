@@ -0,0 +1,127 @@
+package mlp;
+
+import mlp.matrix.FloatMatrix;
+import mlp.matrix.Matrix;
+
+/**
+ * buffers for training a network on a batch (or on one shard of a batch)
+ * of a fixed number of samples
+ * <p>
+ * all z, activation, delta and gradient matrices are allocated once
+ * and then reused for every training step on batches of the same size,
+ * so the steady state training step does not allocate
+ */
+class Workspace {
+    /**
+     * inputs and expected outputs of the samples, one per column,
+     * views into the batch that are moved to every new batch by bind
+     */
+    final Matrix X, Y;
+
+    /**
+     * first column of the batch that belongs to this workspace
+     */
+    final int from;
+
+    /**
+     * zs, activations (a[0] is X) and deltas for each layer
+     */
+    final Matrix[] z, a, deltas;
+
+    /**
+     * gradients summed over the samples
+     */
+    final Gradients gradients;
+
+    /**
+     * one value per sample, scratch of the loss (see Matrix.softmaxCrossEntropy)
+     */
+    final double[] columnMax, columnSum;
+
+    /**
+     * precision of the network when the buffers were allocated
+     */
+    final Precision precision;
+
+    /**
+     * single precision buffers, only allocated in FLOAT mode:
+     * inputs and expected outputs rounded to float, zs, activations
+     * (floatA[0] is floatX), deltas and weight gradients,
+     * the gradients are converted into the double gradients afterwards
+     */
+    final FloatMatrix floatX, floatY;
+    final FloatMatrix[] floatZ, floatA, floatDeltas, floatWeightGradients;
+
+    /**
+     * set by the training step if it is measured (see MLP2.addListener),
+     * then computeGradients puts the time of the passes of this shard here
+     */
+    boolean timed;
+    long forwardNanos, backwardNanos;
+
+    /**
+     * @param nn   network
+     * @param X    inputs of the whole batch
+     * @param Y    expected outputs of the whole batch
+     * @param from first column of the shard
+     * @param cols number of columns of the shard
+     */
+    Workspace(MLP2 nn, Matrix X, Matrix Y, int from, int cols) {
+        this.X = X.columns(from, cols);
+        this.Y = Y.columns(from, cols);
+        this.from = from;
+
+        int layers = nn.layerStructure.length - 1;
+
+        z = new Matrix[layers];
+        a = new Matrix[layers + 1];
+        deltas = new Matrix[layers];
+
+        a[0] = this.X;
+        for (int i = 0; i < layers; i++) {
+            z[i] = Matrix.zeros(nn.layerStructure[i + 1], cols);
+            a[i + 1] = Matrix.zeros(nn.layerStructure[i + 1], cols);
+            deltas[i] = Matrix.zeros(nn.layerStructure[i + 1], cols);
+        }
+
+        gradients = new Gradients(nn);
+        columnMax = new double[cols];
+        columnSum = new double[cols];
+
+        precision = nn.precision;
+        if (precision != Precision.FLOAT) {
+            floatX = floatY = null;
+            floatZ = floatA = floatDeltas = floatWeightGradients = null;
+            return;
+        }
+
+        floatX = FloatMatrix.zeros(X.rows, cols);
+        floatY = FloatMatrix.zeros(Y.rows, cols);
+        floatZ = new FloatMatrix[layers];
+        floatA = new FloatMatrix[layers + 1];
+        floatDeltas = new FloatMatrix[layers];
+        floatWeightGradients = new FloatMatrix[layers];
+
+        floatA[0] = floatX;
+        for (int i = 0; i < layers; i++) {
+            floatZ[i] = FloatMatrix.zeros(nn.layerStructure[i + 1], cols);
+            floatA[i + 1] = FloatMatrix.zeros(nn.layerStructure[i + 1], cols);
+            floatDeltas[i] = FloatMatrix.zeros(nn.layerStructure[i + 1], cols);
+            floatWeightGradients[i] = FloatMatrix.zeros(nn.weight[i].rows, nn.weight[i].cols);
+        }
+    }
+
+    /**
+     * point X and Y at the shard of another batch of the same shape, without allocating
+     */
+    void bind(Matrix X, Matrix Y) {
+        moveView(this.X, X);
+        moveView(this.Y, Y);
+    }
+
+    private void moveView(Matrix view, Matrix m) {
+        view.data = m.data;
+        view.offset = m.index(0, from);
+        view.stride = m.stride;
+    }
+}
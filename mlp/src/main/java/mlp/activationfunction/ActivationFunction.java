@@ -0,0 +1,66 @@
+package mlp.activationfunction;
+
+import java.io.Serializable;
+
+public interface ActivationFunction extends Serializable {
+    double activate(double z);
+
+    double derive(double z);
+
+    /**
+     * derivative expressed through the output of the function,
+     * deriveFromOutput(activate(z)) == derive(z),
+     * so back propagation can reuse the cached activations instead of recomputing them
+     *
+     * @param a activation, activate(z)
+     * @return derivative at z
+     */
+    double deriveFromOutput(double a);
+
+    /**
+     * bulk version of activate: dst[off .. off + len] = activate(src[off .. off + len]),
+     * src and dst may be the same array
+     * <p>
+     * the default loops over the scalar method, implementations override it
+     * with a specialized loop (one interface call per array instead of per element)
+     */
+    default void activate(double[] src, double[] dst, int off, int len) {
+        for (int i = off; i < off + len; i++)
+            dst[i] = activate(src[i]);
+    }
+
+    /**
+     * bulk version of derive: dst[off .. off + len] = derive(src[off .. off + len]),
+     * src and dst may be the same array
+     */
+    default void derive(double[] src, double[] dst, int off, int len) {
+        for (int i = off; i < off + len; i++)
+            dst[i] = derive(src[i]);
+    }
+
+    /**
+     * bulk version of deriveFromOutput: dst[off .. off + len] = deriveFromOutput(src[off .. off + len]),
+     * src (the activations) and dst may be the same array
+     */
+    default void deriveFromOutput(double[] src, double[] dst, int off, int len) {
+        for (int i = off; i < off + len; i++)
+            dst[i] = deriveFromOutput(src[i]);
+    }
+
+    /**
+     * single precision version of the bulk activate, for FloatMatrix,
+     * the default computes every element in double
+     */
+    default void activate(float[] src, float[] dst, int off, int len) {
+        for (int i = off; i < off + len; i++)
+            dst[i] = (float) activate(src[i]);
+    }
+
+    /**
+     * single precision version of the bulk deriveFromOutput, for FloatMatrix
+     */
+    default void deriveFromOutput(float[] src, float[] dst, int off, int len) {
+        for (int i = off; i < off + len; i++)
+            dst[i] = (float) deriveFromOutput(src[i]);
+    }
+}
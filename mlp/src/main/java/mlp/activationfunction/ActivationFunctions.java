@@ -0,0 +1,43 @@
+package mlp.activationfunction;
+
+public class ActivationFunctions {
+    public static final ActivationFunction SIGMOID = new Sigmoid(),
+            HEAVISIDE = new Heaviside(),
+            HYPERBOLIC_TANGENT = new HyperbolicTangent(),
+            IDENTITY = new Identity(),
+            RELU = new ReLU(),
+            SOFTPLUS = new SoftPlus(),
+            SOFTSIGN = new SoftSign(),
+            LEAKY_RELU = new LeakyReLU();
+
+    /**
+     * the index of a function in this array is its id in model files,
+     * so new functions must only be appended
+     */
+    private static final ActivationFunction[] BY_ID = {
+            SIGMOID, HEAVISIDE, HYPERBOLIC_TANGENT, IDENTITY, RELU, SOFTPLUS, SOFTSIGN, LEAKY_RELU
+    };
+
+    /**
+     * @return stable id of one of the functions above
+     * @throws IllegalArgumentException for other implementations
+     */
+    public static int id(ActivationFunction g) {
+        for (int i = 0; i < BY_ID.length; i++)
+            if (BY_ID[i].getClass() == g.getClass())
+                return i;
+
+        throw new IllegalArgumentException("activation function " + g.getClass().getName() + " has no id");
+    }
+
+    /**
+     * @return function with the given id
+     * @throws IllegalArgumentException for unknown ids
+     */
+    public static ActivationFunction byId(int id) {
+        if (id < 0 || id >= BY_ID.length)
+            throw new IllegalArgumentException("unknown activation function id " + id);
+
+        return BY_ID[id];
+    }
+}
@@ -0,0 +1,38 @@
+package mlp.activationfunction;
+
+import java.util.Arrays;
+
+public class Heaviside implements ActivationFunction {
+
+    @Override
+    public double activate(double input) {
+        if (input < 0) return 0;
+        else return 1;
+    }
+
+    @Override
+    public double derive(double input) {
+        return 1;
+    }
+
+    @Override
+    public double deriveFromOutput(double a) {
+        return 1;
+    }
+
+    @Override
+    public void activate(double[] src, double[] dst, int off, int len) {
+        for (int i = off; i < off + len; i++)
+            dst[i] = src[i] < 0 ? 0 : 1;
+    }
+
+    @Override
+    public void derive(double[] src, double[] dst, int off, int len) {
+        Arrays.fill(dst, off, off + len, 1);
+    }
+
+    @Override
+    public void deriveFromOutput(double[] src, double[] dst, int off, int len) {
+        Arrays.fill(dst, off, off + len, 1);
+    }
+}
@@ -0,0 +1,46 @@
+package mlp.activationfunction;
+
+public class HyperbolicTangent implements ActivationFunction {
+
+    @Override
+    public double activate(double input) {
+        // e^x / e^-x overflows to infinity / infinity = NaN for large inputs, Math.tanh does not
+        return Math.tanh(input);
+    }
+
+    @Override
+    public double derive(double input) {
+        double tanh = activate(input);
+
+        return 1 - tanh * tanh;
+    }
+
+    @Override
+    public double deriveFromOutput(double a) {
+        return 1 - a * a;
+    }
+
+    @Override
+    public void activate(double[] src, double[] dst, int off, int len) {
+        for (int i = off; i < off + len; i++)
+            dst[i] = Math.tanh(src[i]);
+    }
+
+    @Override
+    public void deriveFromOutput(double[] src, double[] dst, int off, int len) {
+        for (int i = off; i < off + len; i++)
+            dst[i] = 1 - src[i] * src[i];
+    }
+
+    @Override
+    public void activate(float[] src, float[] dst, int off, int len) {
+        for (int i = off; i < off + len; i++)
+            dst[i] = (float) Math.tanh(src[i]);
+    }
+
+    @Override
+    public void deriveFromOutput(float[] src, float[] dst, int off, int len) {
+        for (int i = off; i < off + len; i++)
+            dst[i] = 1 - src[i] * src[i];
+    }
+}
@@ -0,0 +1,48 @@
+package mlp.activationfunction;
+
+import java.util.Arrays;
+
+public class Identity implements ActivationFunction {
+
+    @Override
+    public double activate(double input) {
+        return input;
+    }
+
+    @Override
+    public double derive(double input) {
+        return 1;
+    }
+
+    @Override
+    public double deriveFromOutput(double a) {
+        return 1;
+    }
+
+    @Override
+    public void activate(double[] src, double[] dst, int off, int len) {
+        if (src != dst)
+            System.arraycopy(src, off, dst, off, len);
+    }
+
+    @Override
+    public void derive(double[] src, double[] dst, int off, int len) {
+        Arrays.fill(dst, off, off + len, 1);
+    }
+
+    @Override
+    public void deriveFromOutput(double[] src, double[] dst, int off, int len) {
+        Arrays.fill(dst, off, off + len, 1);
+    }
+
+    @Override
+    public void activate(float[] src, float[] dst, int off, int len) {
+        if (src != dst)
+            System.arraycopy(src, off, dst, off, len);
+    }
+
+    @Override
+    public void deriveFromOutput(float[] src, float[] dst, int off, int len) {
+        Arrays.fill(dst, off, off + len, 1);
+    }
+}
@@ -0,0 +1,45 @@
+package mlp.activationfunction;
+
+public class LeakyReLU implements ActivationFunction {
+
+    public static final double ALPHA = 0.01;
+
+    @Override
+    public double activate(double z) {
+        return Math.max(ALPHA * z, z);
+    }
+
+    @Override
+    public double derive(double z) {
+        return z > 0 ? 1 : ALPHA;
+    }
+
+    @Override
+    public double deriveFromOutput(double a) {
+        return a > 0 ? 1 : ALPHA;
+    }
+
+    @Override
+    public void activate(double[] src, double[] dst, int off, int len) {
+        for (int i = off; i < off + len; i++)
+            dst[i] = Math.max(ALPHA * src[i], src[i]);
+    }
+
+    @Override
+    public void deriveFromOutput(double[] src, double[] dst, int off, int len) {
+        for (int i = off; i < off + len; i++)
+            dst[i] = src[i] > 0 ? 1 : ALPHA;
+    }
+
+    @Override
+    public void activate(float[] src, float[] dst, int off, int len) {
+        for (int i = off; i < off + len; i++)
+            dst[i] = Math.max((float) ALPHA * src[i], src[i]);
+    }
+
+    @Override
+    public void deriveFromOutput(float[] src, float[] dst, int off, int len) {
+        for (int i = off; i < off + len; i++)
+            dst[i] = src[i] > 0 ? 1 : (float) ALPHA;
+    }
+}
@@ -0,0 +1,45 @@
+package mlp.activationfunction;
+
+public class ReLU implements ActivationFunction {
+    @Override
+    public double activate(double input) {
+        return Math.max(0, input);
+    }
+
+    @Override
+    public double derive(double input) {
+        return input >= 0 ? 1 : 0;
+    }
+
+    /**
+     * the output does not tell z = 0 from z < 0, both get derivative 0 here
+     */
+    @Override
+    public double deriveFromOutput(double a) {
+        return a > 0 ? 1 : 0;
+    }
+
+    @Override
+    public void activate(double[] src, double[] dst, int off, int len) {
+        for (int i = off; i < off + len; i++)
+            dst[i] = Math.max(0, src[i]);
+    }
+
+    @Override
+    public void deriveFromOutput(double[] src, double[] dst, int off, int len) {
+        for (int i = off; i < off + len; i++)
+            dst[i] = src[i] > 0 ? 1 : 0;
+    }
+
+    @Override
+    public void activate(float[] src, float[] dst, int off, int len) {
+        for (int i = off; i < off + len; i++)
+            dst[i] = Math.max(0f, src[i]);
+    }
+
+    @Override
+    public void deriveFromOutput(float[] src, float[] dst, int off, int len) {
+        for (int i = off; i < off + len; i++)
+            dst[i] = src[i] > 0 ? 1 : 0;
+    }
+}
@@ -0,0 +1,45 @@
+package mlp.activationfunction;
+
+public class Sigmoid implements ActivationFunction {
+
+    @Override
+    public double activate(double z) {
+        return (1. / (1. + Math.exp(-z)));
+    }
+
+    @Override
+    public double derive(double z) {
+        double sigmoid = activate(z);
+        return sigmoid * (1 - sigmoid);
+    }
+
+    @Override
+    public double deriveFromOutput(double a) {
+        return a * (1 - a);
+    }
+
+    @Override
+    public void activate(double[] src, double[] dst, int off, int len) {
+        for (int i = off; i < off + len; i++)
+            dst[i] = 1. / (1. + Math.exp(-src[i]));
+    }
+
+    @Override
+    public void deriveFromOutput(double[] src, double[] dst, int off, int len) {
+        // no exp needed, the sigmoid is already known
+        for (int i = off; i < off + len; i++)
+            dst[i] = src[i] * (1 - src[i]);
+    }
+
+    @Override
+    public void activate(float[] src, float[] dst, int off, int len) {
+        for (int i = off; i < off + len; i++)
+            dst[i] = (float) (1. / (1. + Math.exp(-src[i])));
+    }
+
+    @Override
+    public void deriveFromOutput(float[] src, float[] dst, int off, int len) {
+        for (int i = off; i < off + len; i++)
+            dst[i] = src[i] * (1 - src[i]);
+    }
+}
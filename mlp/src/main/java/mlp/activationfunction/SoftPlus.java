@@ -0,0 +1,34 @@
+package mlp.activationfunction;
+
+public class SoftPlus implements ActivationFunction {
+
+    @Override
+    public double activate(double z) {
+        return Math.log(1 + Math.exp(z));
+    }
+
+    @Override
+    public double derive(double z) {
+        return 1. / (1. + Math.exp(-z));
+    }
+
+    /**
+     * a = log(1 + e^z), so e^z = e^a - 1 and the sigmoid of z is 1 - e^-a
+     */
+    @Override
+    public double deriveFromOutput(double a) {
+        return 1. - Math.exp(-a);
+    }
+
+    @Override
+    public void activate(double[] src, double[] dst, int off, int len) {
+        for (int i = off; i < off + len; i++)
+            dst[i] = Math.log(1 + Math.exp(src[i]));
+    }
+
+    @Override
+    public void deriveFromOutput(double[] src, double[] dst, int off, int len) {
+        for (int i = off; i < off + len; i++)
+            dst[i] = 1. - Math.exp(-src[i]);
+    }
+}
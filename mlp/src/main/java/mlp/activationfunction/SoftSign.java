@@ -0,0 +1,37 @@
+package mlp.activationfunction;
+
+public class SoftSign implements ActivationFunction {
+    @Override
+    public double activate(double z) {
+        return z / (1. + Math.abs(z));
+    }
+
+    @Override
+    public double derive(double z) {
+        double d = 1. + Math.abs(z);
+        return 1. / (d * d);
+    }
+
+    /**
+     * a = z / (1 + |z|), so 1 / (1 + |z|) = 1 - |a|
+     */
+    @Override
+    public double deriveFromOutput(double a) {
+        double d = 1. - Math.abs(a);
+        return d * d;
+    }
+
+    @Override
+    public void activate(double[] src, double[] dst, int off, int len) {
+        for (int i = off; i < off + len; i++)
+            dst[i] = src[i] / (1. + Math.abs(src[i]));
+    }
+
+    @Override
+    public void deriveFromOutput(double[] src, double[] dst, int off, int len) {
+        for (int i = off; i < off + len; i++) {
+            double d = 1. - Math.abs(src[i]);
+            dst[i] = d * d;
+        }
+    }
+}
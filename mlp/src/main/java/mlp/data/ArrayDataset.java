@@ -0,0 +1,54 @@
+package mlp.data;
+
+import mlp.matrix.Matrix;
+
+/**
+ * dataset on arrays in memory, one array per sample, without copying them
+ */
+public class ArrayDataset implements Dataset {
+    private final double[][] inputs, outputs;
+
+    public ArrayDataset(double[][] inputs, double[][] outputs) {
+        if (inputs.length != outputs.length)
+            throw new IllegalArgumentException("inputs and outputs must be of same length");
+        if (inputs.length == 0)
+            throw new IllegalArgumentException("dataset must not be empty");
+
+        this.inputs = inputs;
+        this.outputs = outputs;
+    }
+
+    @Override
+    public int size() {
+        return inputs.length;
+    }
+
+    @Override
+    public int inputSize() {
+        return inputs[0].length;
+    }
+
+    @Override
+    public int outputSize() {
+        return outputs[0].length;
+    }
+
+    @Override
+    public boolean inMemory() {
+        return true;
+    }
+
+    @Override
+    public void get(int index, Matrix X, Matrix Y, int j) {
+        setColumn(X, j, inputs[index]);
+        setColumn(Y, j, outputs[index]);
+    }
+
+    static void setColumn(Matrix m, int j, double[] values) {
+        if (values.length != m.rows)
+            throw new IllegalArgumentException("sample has length " + values.length + ", expected " + m.rows);
+
+        for (int i = 0, k = m.index(0, j); i < values.length; i++, k += m.stride)
+            m.data[k] = values[i];
+    }
+}
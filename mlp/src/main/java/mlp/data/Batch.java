@@ -0,0 +1,36 @@
+package mlp.data;
+
+import mlp.matrix.Matrix;
+
+/**
+ * inputs and expected outputs of a mini batch, one sample per column
+ */
+public class Batch {
+    public final Matrix X, Y;
+
+    public Batch(Matrix X, Matrix Y) {
+        if (X.cols != Y.cols)
+            throw new IllegalArgumentException("inputs and outputs must be of same length");
+
+        this.X = X;
+        this.Y = Y;
+    }
+
+    public Batch(int inputSize, int outputSize, int size) {
+        this(Matrix.zeros(inputSize, size), Matrix.zeros(outputSize, size));
+    }
+
+    /**
+     * @return number of samples
+     */
+    public int size() {
+        return X.cols;
+    }
+
+    /**
+     * @return batch on the first size samples of this one, sharing the storage
+     */
+    public Batch head(int size) {
+        return new Batch(X.columns(0, size), Y.columns(0, size));
+    }
+}
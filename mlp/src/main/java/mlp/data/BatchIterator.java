@@ -0,0 +1,141 @@
+package mlp.data;
+
+import java.util.NoSuchElementException;
+
+/**
+ * walks a dataset in mini batches, one epoch at a time,
+ * in the order the sampler chooses for the epoch
+ * <p>
+ * the samples are read straight into two reused batches, one of the batch size
+ * and one for the smaller last batch, so iterating does not allocate
+ * and only one batch of the dataset is in memory at a time.
+ * the returned batch is only valid until the next call of next.
+ */
+public class BatchIterator {
+    final Dataset dataset;
+    final int batchSize;
+    private final Sampler sampler;
+
+    /**
+     * order of the samples in the current epoch
+     * and the first sample of the next batch
+     */
+    final int[] order;
+    int position, epoch = -1;
+
+    private final Batch batch, last;
+
+    /**
+     * @param dataset   samples
+     * @param batchSize samples per batch, the last batch of an epoch may be smaller
+     * @param sampler   chooses the samples of every epoch
+     */
+    public BatchIterator(Dataset dataset, int batchSize, Sampler sampler) {
+        if (batchSize < 1 || batchSize > sampler.size())
+            throw new IllegalArgumentException("batch size must be between 1 and the number of samples per epoch");
+
+        this.dataset = dataset;
+        this.batchSize = batchSize;
+        this.sampler = sampler;
+
+        order = new int[sampler.size()];
+
+        batch = newBatch();
+        last = tail(batch);
+
+        // no epoch started yet
+        position = order.length;
+    }
+
+    /**
+     * start the epoch after the current one
+     */
+    public void reset() {
+        reset(epoch + 1);
+    }
+
+    /**
+     * start an epoch, the sampler gives the same order for the same epoch number
+     *
+     * @param epoch epoch number, starting at 0
+     */
+    public void reset(int epoch) {
+        reset(epoch, 0);
+    }
+
+    /**
+     * start an epoch at a batch, e.g. to resume training within an epoch
+     *
+     * @param epoch epoch number, starting at 0
+     * @param batch number of batches of the epoch to skip
+     */
+    public void reset(int epoch, int batch) {
+        if (batch < 0)
+            throw new IllegalArgumentException("batch must not be negative");
+
+        sampler.order(epoch, order);
+
+        this.epoch = epoch;
+        position = (int) Math.min(order.length, (long) batch * batchSize);
+    }
+
+    /**
+     * @return number of the current epoch, -1 before the first reset
+     */
+    public int epoch() {
+        return epoch;
+    }
+
+    public boolean hasNext() {
+        return position < order.length;
+    }
+
+    /**
+     * @return next batch of the epoch, reused by the following calls
+     */
+    public Batch next() {
+        if (!hasNext())
+            throw new NoSuchElementException("epoch is over, call reset to start the next one");
+
+        Batch b = read(position, batch, last);
+        position += b.size();
+
+        return b;
+    }
+
+    /**
+     * read the batch starting at sample from of the epoch into batch,
+     * or into last if it is the smaller last batch
+     *
+     * @return the batch that was filled
+     */
+    Batch read(int from, Batch batch, Batch last) {
+        Batch b = order.length - from < batchSize ? last : batch;
+        for (int j = 0; j < b.size(); j++)
+            dataset.get(order[from + j], b.X, b.Y, j);
+
+        return b;
+    }
+
+    /**
+     * @return new buffer for a full batch
+     */
+    Batch newBatch() {
+        return new Batch(dataset.inputSize(), dataset.outputSize(), batchSize);
+    }
+
+    /**
+     * @return buffer for the last batch of an epoch, sharing the storage of batch
+     */
+    Batch tail(Batch batch) {
+        int rest = order.length % batchSize;
+        return rest == 0 ? batch : batch.head(rest);
+    }
+
+    /**
+     * @return number of batches per epoch
+     */
+    public int batches() {
+        return (order.length + batchSize - 1) / batchSize;
+    }
+}
@@ -0,0 +1,47 @@
+package mlp.data;
+
+import mlp.matrix.Matrix;
+
+/**
+ * random access source of training samples,
+ * read one sample at a time into reused batch matrices,
+ * so a dataset never has to be held in memory as a whole
+ * <p>
+ * implementations do not have to be thread safe,
+ * one dataset is read by one thread at a time
+ */
+public interface Dataset {
+    /**
+     * @return number of samples
+     */
+    int size();
+
+    /**
+     * @return number of values of an input
+     */
+    int inputSize();
+
+    /**
+     * @return number of values of an expected output
+     */
+    int outputSize();
+
+    /**
+     * write sample index as column j into the batch matrices
+     *
+     * @param index sample, 0 to size() - 1
+     * @param X     inputs, inputSize() rows
+     * @param Y     expected outputs, outputSize() rows
+     * @param j     column of X and Y that receives the sample
+     */
+    void get(int index, Matrix X, Matrix Y, int j);
+
+    /**
+     * @return true if reading a sample is a plain copy from memory, then batches
+     * are read on the training thread, because handing them over from a loader
+     * thread would cost more than reading them
+     */
+    default boolean inMemory() {
+        return false;
+    }
+}
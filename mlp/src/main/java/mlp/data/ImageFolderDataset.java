@@ -0,0 +1,163 @@
+package mlp.data;
+
+import mlp.matrix.Matrix;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * images in a directory tree root/class/image, decoded from disk whenever a sample is read,
+ * so only the file names are held in memory
+ * <p>
+ * the class directories are sorted by name (numerically if all names are numbers),
+ * the class index is the position in that order and the expected output is its one hot encoding.
+ * the inputs are the gray values scaled to 0 .. 1, in the layout of
+ * PatternRecognitionTestTrain.loadImage (x major).
+ */
+public class ImageFolderDataset implements Dataset {
+    private final int width, height;
+    private final String[] classes;
+    private final File[] files;
+    private final int[] labels;
+
+    /**
+     * reused for decoding, one image at a time
+     */
+    private final BufferedImage gray;
+    private final int[] samples;
+    private final double[] pixels;
+
+    /**
+     * @param root   directory with one sub directory of images per class
+     * @param width  images are drawn into width x height pixels
+     * @param height see width
+     */
+    public ImageFolderDataset(File root, int width, int height) {
+        File[] classDirectories = root.listFiles(File::isDirectory);
+        if (classDirectories == null || classDirectories.length == 0)
+            throw new IllegalArgumentException(root + " has no class directories");
+
+        sortByName(classDirectories);
+
+        List<File> files = new ArrayList<>();
+        List<Integer> labels = new ArrayList<>();
+        classes = new String[classDirectories.length];
+
+        for (int c = 0; c < classDirectories.length; c++) {
+            classes[c] = classDirectories[c].getName();
+
+            File[] images = classDirectories[c].listFiles(File::isFile);
+            if (images == null) continue;
+            sortByName(images);
+
+            for (File image : images) {
+                files.add(image);
+                labels.add(c);
+            }
+        }
+
+        if (files.isEmpty())
+            throw new IllegalArgumentException(root + " has no images");
+
+        this.width = width;
+        this.height = height;
+        this.files = files.toArray(new File[0]);
+        this.labels = labels.stream().mapToInt(Integer::intValue).toArray();
+
+        gray = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        samples = new int[width * height];
+        pixels = new double[width * height];
+    }
+
+    @Override
+    public int size() {
+        return files.length;
+    }
+
+    @Override
+    public int inputSize() {
+        return width * height;
+    }
+
+    @Override
+    public int outputSize() {
+        return classes.length;
+    }
+
+    /**
+     * @return class index of sample index
+     */
+    public int label(int index) {
+        return labels[index];
+    }
+
+    /**
+     * @return names of the class directories, in class index order
+     */
+    public String[] classes() {
+        return classes.clone();
+    }
+
+    /**
+     * @return image file of sample index
+     */
+    public File file(int index) {
+        return files[index];
+    }
+
+    @Override
+    public void get(int index, Matrix X, Matrix Y, int j) {
+        read(files[index], gray, samples, pixels);
+        ArrayDataset.setColumn(X, j, pixels);
+
+        for (int i = 0, k = Y.index(0, j); i < Y.rows; i++, k += Y.stride)
+            Y.data[k] = i == labels[index] ? 1 : 0;
+    }
+
+    /**
+     * decode an image, draw it into gray (which determines the size)
+     * and write its gray values scaled to 0 .. 1 into pixels,
+     * samples is a buffer of the same size
+     */
+    static void read(File file, BufferedImage gray, int[] samples, double[] pixels) {
+        BufferedImage image;
+        try {
+            image = ImageIO.read(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (image == null)
+            throw new IllegalArgumentException(file + " is not an image");
+
+        Graphics2D g = gray.createGraphics();
+        g.setBackground(Color.BLACK);
+        g.clearRect(0, 0, gray.getWidth(), gray.getHeight());
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+
+        int w = gray.getWidth(), h = gray.getHeight();
+        gray.getRaster().getSamples(0, 0, w, h, 0, samples);
+
+        // x major like loadImage (which is only right for square images)
+        for (int y = 0; y < h; y++)
+            for (int x = 0; x < w; x++)
+                pixels[x * h + y] = samples[y * w + x] / 255.0;
+    }
+
+    private static void sortByName(File[] files) {
+        boolean numeric = Arrays.stream(files).allMatch(f -> f.getName().matches("\\d+(\\.\\w+)?"));
+
+        Arrays.sort(files, numeric
+                ? Comparator.comparingLong((File f) -> Long.parseLong(f.getName().replaceFirst("\\..*", "")))
+                : Comparator.comparing(File::getName));
+    }
+}
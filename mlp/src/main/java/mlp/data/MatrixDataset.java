@@ -0,0 +1,46 @@
+package mlp.data;
+
+import mlp.matrix.Matrix;
+
+/**
+ * dataset on column vectors in memory, one per sample, without copying them
+ */
+public class MatrixDataset implements Dataset {
+    private final Matrix[] inputs, outputs;
+
+    public MatrixDataset(Matrix[] inputs, Matrix[] outputs) {
+        if (inputs.length != outputs.length)
+            throw new IllegalArgumentException("inputs and outputs must be of same length");
+        if (inputs.length == 0)
+            throw new IllegalArgumentException("dataset must not be empty");
+
+        this.inputs = inputs;
+        this.outputs = outputs;
+    }
+
+    @Override
+    public int size() {
+        return inputs.length;
+    }
+
+    @Override
+    public int inputSize() {
+        return inputs[0].rows;
+    }
+
+    @Override
+    public int outputSize() {
+        return outputs[0].rows;
+    }
+
+    @Override
+    public boolean inMemory() {
+        return true;
+    }
+
+    @Override
+    public void get(int index, Matrix X, Matrix Y, int j) {
+        X.setColumn(j, inputs[index]);
+        Y.setColumn(j, outputs[index]);
+    }
+}
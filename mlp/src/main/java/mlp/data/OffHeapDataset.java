@@ -0,0 +1,81 @@
+package mlp.data;
+
+import mlp.matrix.Arena;
+import mlp.matrix.Matrix;
+import mlp.matrix.OffHeapMatrix;
+
+/**
+ * dataset in native memory outside the java heap, one sample per row of two off-heap matrices,
+ * so even large datasets add nothing to the heap the garbage collector has to walk
+ * (unlike an ArrayDataset, which is two arrays per sample)
+ * <p>
+ * it can be used until the arena it was allocated in is closed.
+ */
+public class OffHeapDataset implements Dataset {
+    private final OffHeapMatrix inputs, outputs;
+
+    /**
+     * @param inputs  one input per row
+     * @param outputs one expected output per row
+     */
+    public OffHeapDataset(OffHeapMatrix inputs, OffHeapMatrix outputs) {
+        if (inputs.rows != outputs.rows)
+            throw new IllegalArgumentException("inputs and outputs must be of same length");
+        if (inputs.rows == 0)
+            throw new IllegalArgumentException("dataset must not be empty");
+
+        this.inputs = inputs;
+        this.outputs = outputs;
+    }
+
+    /**
+     * read all samples of a dataset into native memory,
+     * e.g. to train on images that are decoded only once (see ImageFolderDataset)
+     *
+     * @param dataset samples
+     * @param arena   owner of the memory
+     * @return dataset in native memory
+     */
+    public static OffHeapDataset copyOf(Dataset dataset, Arena arena) {
+        int n = dataset.size(), inputSize = dataset.inputSize(), outputSize = dataset.outputSize();
+        OffHeapMatrix inputs = arena.allocate(n, inputSize), outputs = arena.allocate(n, outputSize);
+
+        Matrix X = Matrix.zeros(inputSize, 1), Y = Matrix.zeros(outputSize, 1);
+        // the same storage as rows
+        Matrix x = new Matrix(X.data, 1, inputSize), y = new Matrix(Y.data, 1, outputSize);
+
+        for (int i = 0; i < n; i++) {
+            dataset.get(i, X, Y, 0);
+            inputs.rows(i, 1).set(x);
+            outputs.rows(i, 1).set(y);
+        }
+
+        return new OffHeapDataset(inputs, outputs);
+    }
+
+    @Override
+    public int size() {
+        return inputs.rows;
+    }
+
+    @Override
+    public int inputSize() {
+        return inputs.cols;
+    }
+
+    @Override
+    public int outputSize() {
+        return outputs.cols;
+    }
+
+    @Override
+    public boolean inMemory() {
+        return true;
+    }
+
+    @Override
+    public void get(int index, Matrix X, Matrix Y, int j) {
+        inputs.copyRowTo(index, X, j);
+        outputs.copyRowTo(index, Y, j);
+    }
+}
@@ -0,0 +1,183 @@
+package mlp.data;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * batch iterator that reads the next batch on a background thread
+ * while the current one is trained on (double buffering)
+ * <p>
+ * there are two sets of batch buffers: next hands out one of them and starts
+ * reading the following batch into the other, so the returned batch stays valid
+ * until the next call of next, like with BatchIterator.
+ * <p>
+ * both stages are timed: stallNanos is the time next had to wait for the
+ * loader (training is input bound if that is large), loadNanos the time the loader
+ * spent reading, so loadNanos much smaller than the training time means
+ * the loader mostly waited for a free buffer.
+ * <p>
+ * the dataset is only read by the loader thread. must be closed to stop that thread.
+ * datasets in memory (see Dataset.inMemory) are read on the calling thread instead.
+ */
+public class PrefetchingBatchIterator extends BatchIterator implements AutoCloseable {
+    private final Batch[] batch = new Batch[2], last = new Batch[2];
+    private final ExecutorService loader;
+
+    /**
+     * batch being read into buffer slot, null if the epoch is over
+     */
+    private Future<Batch> pending;
+    private int slot;
+
+    /**
+     * time the loader needed for the batch in each slot,
+     * only read by the training thread after the batch is done
+     */
+    private final long[] loadTime = new long[2];
+
+    private long stallNanos, loadNanos;
+    private int stalls, batches;
+
+    /**
+     * @param dataset   samples
+     * @param batchSize samples per batch, the last batch of an epoch may be smaller
+     * @param sampler   chooses the samples of every epoch
+     */
+    public PrefetchingBatchIterator(Dataset dataset, int batchSize, Sampler sampler) {
+        super(dataset, batchSize, sampler);
+
+        for (int i = 0; i < 2; i++) {
+            batch[i] = newBatch();
+            last[i] = tail(batch[i]);
+        }
+
+        loader = dataset.inMemory() ? null : Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "batch loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void reset(int epoch, int batch) {
+        if (loader == null) {
+            super.reset(epoch, batch);
+            return;
+        }
+
+        // the loader reads the order, so it must be idle while it is replaced
+        await();
+
+        super.reset(epoch, batch);
+        load();
+    }
+
+    @Override
+    public Batch next() {
+        if (!hasNext())
+            throw new NoSuchElementException("epoch is over, call reset to start the next one");
+
+        if (loader == null) {
+            long start = System.nanoTime();
+            Batch b = super.next();
+            batches++;
+            loadNanos += System.nanoTime() - start;
+            return b;
+        }
+
+        long start = System.nanoTime();
+        boolean ready = pending.isDone();
+
+        Batch b = await();
+        if (!ready) {
+            stalls++;
+            stallNanos += System.nanoTime() - start;
+        }
+
+        batches++;
+        loadNanos += loadTime[slot];
+        position += b.size();
+        slot ^= 1;
+        load();
+
+        return b;
+    }
+
+    /**
+     * start reading the batch at position into the current slot
+     */
+    private void load() {
+        if (!hasNext()) return;
+
+        int from = position, s = slot;
+
+        pending = loader.submit(() -> {
+            long start = System.nanoTime();
+            Batch b = read(from, batch[s], last[s]);
+            loadTime[s] = System.nanoTime() - start;
+            return b;
+        });
+    }
+
+    /**
+     * wait for the pending batch
+     *
+     * @return the batch, null if none was pending
+     */
+    private Batch await() {
+        if (pending == null) return null;
+
+        try {
+            return pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for the next batch", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException("reading a batch failed", e.getCause());
+        } finally {
+            pending = null;
+        }
+    }
+
+    /**
+     * @return number of batches handed out
+     */
+    public int batchesServed() {
+        return batches;
+    }
+
+    /**
+     * @return number of batches that were not ready when next was called
+     */
+    public int stalls() {
+        return stalls;
+    }
+
+    /**
+     * @return total time next waited for the loader, in nanoseconds
+     */
+    public long stallNanos() {
+        return stallNanos;
+    }
+
+    /**
+     * @return total time the loader spent reading the batches handed out, in nanoseconds
+     */
+    public long loadNanos() {
+        return loadNanos;
+    }
+
+    /**
+     * stop the loader thread
+     */
+    @Override
+    public void close() {
+        if (loader != null)
+            loader.shutdownNow();
+    }
+}
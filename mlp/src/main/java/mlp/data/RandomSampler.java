@@ -0,0 +1,48 @@
+package mlp.data;
+
+import java.util.SplittableRandom;
+
+/**
+ * every sample once per epoch, in a new random order:
+ * a Fisher-Yates shuffle of the sample indices, the samples themselves are not moved
+ */
+public class RandomSampler implements Sampler {
+    private final int size;
+    private final long seed;
+
+    /**
+     * @param size number of samples of the dataset
+     * @param seed the orders of all epochs follow from it
+     */
+    public RandomSampler(int size, long seed) {
+        if (size < 1)
+            throw new IllegalArgumentException("dataset must not be empty");
+
+        this.size = size;
+        this.seed = seed;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void order(int epoch, int[] order) {
+        for (int i = 0; i < size; i++)
+            order[i] = i;
+
+        shuffle(order, 0, size, Sampler.random(seed, epoch));
+    }
+
+    /**
+     * shuffle the length values of array starting at from
+     */
+    static void shuffle(int[] array, int from, int length, SplittableRandom random) {
+        for (int i = length - 1; i > 0; i--) {
+            int j = from + random.nextInt(i + 1), temp = array[from + i];
+            array[from + i] = array[j];
+            array[j] = temp;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package mlp.data;
+
+import java.util.SplittableRandom;
+
+/**
+ * decides which samples of a dataset an epoch consists of, and in which order
+ * <p>
+ * the order of an epoch only depends on the sampler and the epoch number,
+ * so training can be repeated (same seed) or resumed at any epoch,
+ * and samplers can be shared between threads.
+ */
+public interface Sampler {
+    /**
+     * @return number of samples drawn per epoch
+     */
+    int size();
+
+    /**
+     * write the sample indices of an epoch in training order
+     *
+     * @param epoch epoch number, starting at 0
+     * @param order receives size() sample indices
+     */
+    void order(int epoch, int[] order);
+
+    /**
+     * @return random numbers of an epoch, independent for different seeds and epochs
+     */
+    static SplittableRandom random(long seed, int epoch) {
+        // SplittableRandom(long) uses the seed as is and steps by a fixed gamma, so seeds that
+        // differ by a multiple of it give the same stream shifted. seed and epoch are mixed first
+        return new SplittableRandom(mix64(seed ^ mix64(epoch)));
+    }
+
+    /**
+     * bijective 64 bit finalizer (variant 13 of the murmur3 finalizer, as in SplittableRandom)
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,29 @@
+package mlp.data;
+
+/**
+ * every sample once per epoch, in dataset order
+ */
+public class SequentialSampler implements Sampler {
+    private final int size;
+
+    /**
+     * @param size number of samples of the dataset
+     */
+    public SequentialSampler(int size) {
+        if (size < 1)
+            throw new IllegalArgumentException("dataset must not be empty");
+
+        this.size = size;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void order(int epoch, int[] order) {
+        for (int i = 0; i < size; i++)
+            order[i] = i;
+    }
+}
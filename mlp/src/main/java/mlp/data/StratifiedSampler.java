@@ -0,0 +1,90 @@
+package mlp.data;
+
+import java.util.SplittableRandom;
+
+/**
+ * every sample once per epoch in random order, but spread so that every
+ * stretch of the epoch (so every mini batch) has about the class distribution
+ * of the whole dataset, instead of random clusters of one class
+ * <p>
+ * the samples of each class are shuffled and laid out evenly over the epoch,
+ * starting at a random phase per class. picking the next sample is linear in the
+ * number of classes, meant for classification with a moderate number of classes.
+ */
+public class StratifiedSampler implements Sampler {
+    private final long seed;
+
+    /**
+     * sample indices grouped by class, class c at start[c] until start[c + 1]
+     */
+    private final int[] grouped, start;
+
+    /**
+     * @param labels class index of every sample of the dataset
+     * @param seed   the orders of all epochs follow from it
+     */
+    public StratifiedSampler(int[] labels, long seed) {
+        if (labels.length == 0)
+            throw new IllegalArgumentException("dataset must not be empty");
+
+        int classes = 0;
+        for (int label : labels) {
+            if (label < 0)
+                throw new IllegalArgumentException("negative label " + label);
+            classes = Math.max(classes, label + 1);
+        }
+
+        // counting sort of the indices by label
+        start = new int[classes + 1];
+        for (int label : labels)
+            start[label + 1]++;
+        for (int c = 0; c < classes; c++)
+            start[c + 1] += start[c];
+
+        grouped = new int[labels.length];
+        int[] next = start.clone();
+        for (int i = 0; i < labels.length; i++)
+            grouped[next[labels[i]]++] = i;
+
+        this.seed = seed;
+    }
+
+    @Override
+    public int size() {
+        return grouped.length;
+    }
+
+    @Override
+    public void order(int epoch, int[] order) {
+        SplittableRandom random = Sampler.random(seed, epoch);
+        int classes = start.length - 1;
+
+        int[] shuffled = grouped.clone();
+        for (int c = 0; c < classes; c++)
+            RandomSampler.shuffle(shuffled, start[c], start[c + 1] - start[c], random);
+
+        // the k-th sample of class c with n samples goes to relative position (k + phase) / n
+        double[] phase = new double[classes];
+        int[] taken = new int[classes];
+        for (int c = 0; c < classes; c++)
+            phase[c] = random.nextDouble();
+
+        for (int i = 0; i < order.length; i++) {
+            int best = -1;
+            double bestPosition = Double.POSITIVE_INFINITY;
+
+            for (int c = 0; c < classes; c++) {
+                int n = start[c + 1] - start[c];
+                if (taken[c] == n) continue;
+
+                double position = (taken[c] + phase[c]) / n;
+                if (position < bestPosition) {
+                    best = c;
+                    bestPosition = position;
+                }
+            }
+
+            order[i] = shuffled[start[best] + taken[best]++];
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package mlp.data;
+
+import mlp.matrix.Matrix;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * classification dataset in a preprocessed binary file that is memory mapped,
+ * so the samples are decoded once (see compile) and afterwards read straight
+ * from the page cache, without holding them on the heap
+ * <p>
+ * layout, all numbers little endian:
+ * <pre>
+ * magic          4 bytes "MLPD"
+ * version        int
+ * header size    int, offset of the inputs (a multiple of 64)
+ * samples        int, n
+ * input size     int
+ * width, height  2 ints, shape of an image input (input size x 1 for other data)
+ * classes        int, c
+ * checksum       int, CRC32 of inputs and labels
+ * class names    c times an unsigned short length and that many UTF-8 bytes
+ * padding        zeros up to the header size
+ * inputs         n times input size floats, already normalized
+ * labels         n ints, the class index of each sample
+ * </pre>
+ * the expected output of a sample is the one hot encoding of its label.
+ * reading samples is thread safe.
+ */
+public class TensorFileDataset implements Dataset {
+    public static final int VERSION = 1;
+
+    private static final byte[] MAGIC = {'M', 'L', 'P', 'D'};
+    private static final int ALIGNMENT = 64,
+            FIXED_HEADER_SIZE = MAGIC.length + 8 * Integer.BYTES;
+
+    /**
+     * a single mapping is limited to 2 GB, larger files are mapped
+     * in chunks of whole samples of at most this size
+     */
+    private static final int CHUNK_SIZE = 1 << 30;
+
+    private final int size, inputSize, width, height;
+    private final String[] classes;
+    private final int[] labels;
+
+    private final ByteBuffer[] chunks;
+    private final int samplesPerChunk;
+
+    /**
+     * map a file written by write or compile
+     *
+     * @param path dataset file
+     */
+    public TensorFileDataset(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), FIXED_HEADER_SIZE))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+
+            for (byte b : MAGIC)
+                if (!header.hasRemaining() || header.get() != b)
+                    throw new IOException(path + " is not a dataset file: wrong magic number");
+
+            if (header.remaining() < FIXED_HEADER_SIZE - MAGIC.length)
+                throw new IOException(path + " has a corrupted header");
+
+            int version = header.getInt();
+            if (version != VERSION)
+                throw new IOException(path + " has dataset file version " + version + ", expected " + VERSION);
+
+            int headerSize = header.getInt();
+            if (headerSize < FIXED_HEADER_SIZE || headerSize > channel.size())
+                throw new IOException(path + " has a corrupted header");
+
+            // now that its size is known, the whole header including the class names
+            header = channel.map(FileChannel.MapMode.READ_ONLY, 0, headerSize)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .position(MAGIC.length + 2 * Integer.BYTES);
+
+            size = header.getInt();
+            inputSize = header.getInt();
+            width = header.getInt();
+            height = header.getInt();
+            classes = new String[header.getInt()];
+            header.getInt(); // checksum, see verify
+
+            if (size < 1 || inputSize < 1 || width * height != inputSize || classes.length < 1)
+                throw new IOException(path + " has a corrupted header");
+
+            for (int c = 0; c < classes.length; c++) {
+                if (header.remaining() < Short.BYTES)
+                    throw new IOException(path + " has a corrupted header");
+                int length = Short.toUnsignedInt(header.getShort());
+                if (length > header.remaining())
+                    throw new IOException(path + " has a corrupted header");
+                byte[] name = new byte[length];
+                header.get(name);
+                classes[c] = new String(name, StandardCharsets.UTF_8);
+            }
+
+            long sampleBytes = (long) inputSize * Float.BYTES,
+                    labelOffset = headerSize + size * sampleBytes;
+            if (channel.size() != labelOffset + (long) size * Integer.BYTES)
+                throw new IOException(path + " has a size that does not match its header");
+
+            if (sampleBytes > CHUNK_SIZE)
+                throw new IOException(path + " has samples larger than " + CHUNK_SIZE + " bytes");
+
+            samplesPerChunk = (int) (CHUNK_SIZE / sampleBytes);
+            chunks = new ByteBuffer[(size + samplesPerChunk - 1) / samplesPerChunk];
+            for (int c = 0; c < chunks.length; c++) {
+                int samples = Math.min(samplesPerChunk, size - c * samplesPerChunk);
+                chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY,
+                                headerSize + (long) c * samplesPerChunk * sampleBytes, samples * sampleBytes)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+            }
+
+            labels = new int[size];
+            channel.map(FileChannel.MapMode.READ_ONLY, labelOffset, (long) size * Integer.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(labels);
+
+            for (int label : labels)
+                if (label < 0 || label >= classes.length)
+                    throw new IOException(path + " has a label out of range: " + label);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int inputSize() {
+        return inputSize;
+    }
+
+    @Override
+    public int outputSize() {
+        return classes.length;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    /**
+     * @return class index of sample index
+     */
+    public int label(int index) {
+        return labels[index];
+    }
+
+    /**
+     * @return class names, in class index order
+     */
+    public String[] classes() {
+        return classes.clone();
+    }
+
+    @Override
+    public void get(int index, Matrix X, Matrix Y, int j) {
+        if (X.rows != inputSize || Y.rows != classes.length)
+            throw new IllegalArgumentException("batch does not match the dataset");
+
+        // absolute gets do not touch the position, so concurrent reads are fine
+        ByteBuffer chunk = chunks[index / samplesPerChunk];
+        int p = (index % samplesPerChunk) * inputSize * Float.BYTES;
+
+        for (int i = 0, k = X.index(0, j); i < inputSize; i++, k += X.stride, p += Float.BYTES)
+            X.data[k] = chunk.getFloat(p);
+
+        for (int i = 0, k = Y.index(0, j); i < Y.rows; i++, k += Y.stride)
+            Y.data[k] = i == labels[index] ? 1 : 0;
+    }
+
+    /**
+     * decode an image directory tree (see ImageFolderDataset) once into a dataset file
+     *
+     * @param root   directory with one sub directory of images per class
+     * @param width  images are drawn into width x height pixels
+     * @param height see width
+     * @param path   dataset file, replaced if it exists
+     * @return the mapped dataset file
+     */
+    public static TensorFileDataset compile(File root, int width, int height, Path path) throws IOException {
+        ImageFolderDataset images = new ImageFolderDataset(root, width, height);
+        write(images, images.classes(), width, height, path);
+        return new TensorFileDataset(path);
+    }
+
+    /**
+     * write any classification dataset into a dataset file, the label of a sample
+     * is the index of the largest value of its expected output
+     *
+     * @param source  samples, read once in order
+     * @param classes names of the classes, one per output
+     * @param width   shape of an input as image, width * height must be the input size
+     * @param height  see width
+     * @param path    dataset file, replaced if it exists. it is written to a temporary file
+     *                next to it that is moved over it when complete, so an interrupted
+     *                write never leaves an incomplete file at path
+     */
+    public static void write(Dataset source, String[] classes, int width, int height, Path path) throws IOException {
+        if (classes.length != source.outputSize())
+            throw new IllegalArgumentException("one class name per output needed");
+        if (width * height != source.inputSize())
+            throw new IllegalArgumentException("width * height must be the input size");
+
+        int n = source.size(), inputSize = source.inputSize();
+
+        byte[][] names = new byte[classes.length][];
+        int headerSize = FIXED_HEADER_SIZE;
+        for (int c = 0; c < classes.length; c++) {
+            names[c] = classes[c].getBytes(StandardCharsets.UTF_8);
+            if (names[c].length > 0xFFFF)
+                throw new IllegalArgumentException("class name too long");
+            headerSize += Short.BYTES + names[c].length;
+        }
+        headerSize = (headerSize + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+
+        // read and write a batch of samples at a time
+        int batchSize = Math.max(1, Math.min(n, (1 << 20) / (inputSize * Float.BYTES)));
+        Matrix X = Matrix.zeros(inputSize, batchSize), Y = Matrix.zeros(classes.length, batchSize);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(headerSize, batchSize * inputSize * Float.BYTES))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        CRC32 crc = new CRC32();
+        int[] labels = new int[n];
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.position(headerSize);
+
+            for (int from = 0; from < n; from += batchSize) {
+                int count = Math.min(batchSize, n - from);
+
+                buffer.clear();
+                for (int s = 0; s < count; s++) {
+                    source.get(from + s, X, Y, s);
+
+                    int label = 0;
+                    for (int c = 1; c < classes.length; c++)
+                        if (Y.get(c, s) > Y.get(label, s)) label = c;
+                    labels[from + s] = label;
+
+                    for (int i = 0; i < inputSize; i++)
+                        buffer.putFloat((float) X.get(i, s));
+                }
+
+                writeFully(channel, buffer.flip(), crc);
+            }
+
+            ByteBuffer labelBuffer = ByteBuffer.allocateDirect(n * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            labelBuffer.asIntBuffer().put(labels);
+            writeFully(channel, labelBuffer, crc);
+
+            // the header goes last, when the checksum is known
+            buffer.clear();
+            buffer.put(MAGIC)
+                    .putInt(VERSION)
+                    .putInt(headerSize)
+                    .putInt(n)
+                    .putInt(inputSize)
+                    .putInt(width)
+                    .putInt(height)
+                    .putInt(classes.length)
+                    .putInt((int) crc.getValue());
+            for (byte[] name : names)
+                buffer.putShort((short) name.length).put(name);
+            while (buffer.position() < headerSize)
+                buffer.put((byte) 0);
+
+            channel.position(0);
+            writeFully(channel, buffer.flip(), null);
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        try {
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * check the checksum of inputs and labels, this reads the whole file
+     *
+     * @param path dataset file
+     * @return true if the file is intact
+     */
+    public static boolean verify(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(FIXED_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) ;
+            if (header.hasRemaining())
+                return false;
+
+            int headerSize = header.getInt(MAGIC.length + Integer.BYTES),
+                    checksum = header.getInt(MAGIC.length + 7 * Integer.BYTES);
+
+            CRC32 crc = new CRC32();
+            for (long position = headerSize; position < channel.size(); position += CHUNK_SIZE)
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(CHUNK_SIZE, channel.size() - position)));
+
+            return (int) crc.getValue() == checksum;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+        if (crc != null)
+            crc.update(buffer.duplicate());
+
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+}
@@ -0,0 +1,115 @@
+package mlp.data;
+
+import java.util.SplittableRandom;
+
+/**
+ * draws samples with replacement, each with probability proportional to its weight,
+ * e.g. to oversample rare classes (see balanced)
+ * <p>
+ * uses the alias method: after a linear setup every draw is one
+ * random index and one comparison, independent of the number of samples.
+ */
+public class WeightedSampler implements Sampler {
+    private final int size;
+    private final long seed;
+
+    /**
+     * alias table: sample i is kept with probability probability[i],
+     * otherwise alias[i] is drawn instead
+     */
+    private final double[] probability;
+    private final int[] alias;
+
+    /**
+     * @param weights non negative weight of every sample of the dataset, not all 0
+     * @param size    number of samples drawn per epoch
+     * @param seed    the orders of all epochs follow from it
+     */
+    public WeightedSampler(double[] weights, int size, long seed) {
+        if (size < 1)
+            throw new IllegalArgumentException("at least one sample must be drawn per epoch");
+
+        int n = weights.length;
+        double sum = 0;
+        for (double w : weights) {
+            if (!(w >= 0) || Double.isInfinite(w))
+                throw new IllegalArgumentException("weights must be finite and non negative");
+            sum += w;
+        }
+        if (sum == 0)
+            throw new IllegalArgumentException("weights must not all be 0");
+
+        probability = new double[n];
+        alias = new int[n];
+
+        // vose's method: pair every sample below the mean weight with one above it
+        double[] scaled = new double[n];
+        int[] small = new int[n], large = new int[n];
+        int smalls = 0, larges = 0;
+
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / sum;
+            if (scaled[i] < 1) small[smalls++] = i;
+            else large[larges++] = i;
+        }
+
+        while (smalls > 0 && larges > 0) {
+            int s = small[--smalls], l = large[--larges];
+
+            probability[s] = scaled[s];
+            alias[s] = l;
+
+            scaled[l] += scaled[s] - 1;
+            if (scaled[l] < 1) small[smalls++] = l;
+            else large[larges++] = l;
+        }
+
+        // what is left is 1 up to rounding errors
+        while (larges > 0) probability[large[--larges]] = 1;
+        while (smalls > 0) probability[small[--smalls]] = 1;
+
+        this.size = size;
+        this.seed = seed;
+    }
+
+    /**
+     * sampler that draws every class equally often on average,
+     * as many samples per epoch as the dataset has
+     *
+     * @param labels class index of every sample of the dataset
+     * @param seed   the orders of all epochs follow from it
+     */
+    public static WeightedSampler balanced(int[] labels, long seed) {
+        int classes = 0;
+        for (int label : labels) {
+            if (label < 0)
+                throw new IllegalArgumentException("negative label " + label);
+            classes = Math.max(classes, label + 1);
+        }
+
+        int[] count = new int[classes];
+        for (int label : labels)
+            count[label]++;
+
+        double[] weights = new double[labels.length];
+        for (int i = 0; i < labels.length; i++)
+            weights[i] = 1.0 / count[labels[i]];
+
+        return new WeightedSampler(weights, labels.length, seed);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void order(int epoch, int[] order) {
+        SplittableRandom random = Sampler.random(seed, epoch);
+
+        for (int k = 0; k < size; k++) {
+            int i = random.nextInt(probability.length);
+            order[k] = random.nextDouble() < probability[i] ? i : alias[i];
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package mlp.matrix;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * owner of native memory outside the java heap (off-heap matrices and mapped files),
+ * everything allocated or mapped by an arena is released together when it is closed
+ * <p>
+ * the memory is released on close (direct buffers are freed, mappings unmapped),
+ * not whenever the garbage collector finds the buffers. an arena is shared: every access
+ * of an off-heap matrix acquires the arena and releases it when done, and the memory is freed
+ * by close or, if other threads are still reading, by the last of them. afterwards the off-heap
+ * matrices of the arena throw an IllegalStateException. if the runtime does not allow freeing
+ * buffers explicitly, they are left to the garbage collector.
+ * <p>
+ * allocating and mapping are thread safe.
+ */
+public final class Arena implements AutoCloseable {
+    private static final Method INVOKE_CLEANER;
+    private static final Object UNSAFE;
+
+    static {
+        Method invokeCleaner = null;
+        Object unsafe = null;
+        try {
+            // sun.misc.Unsafe.invokeCleaner (java 9+), the only way to free a direct buffer before java 22
+            Class<?> type = Class.forName("sun.misc.Unsafe");
+            Field field = type.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException ignored) {
+            // left to the garbage collector
+        }
+
+        INVOKE_CLEANER = invokeCleaner;
+        UNSAFE = unsafe;
+    }
+
+    private final List<ByteBuffer> buffers = new ArrayList<>();
+    private volatile boolean open = true;
+
+    /**
+     * number of accesses in progress (between acquire and release)
+     */
+    private final AtomicInteger users = new AtomicInteger();
+    private final AtomicBoolean freed = new AtomicBoolean();
+    private long bytes;
+
+    /**
+     * zero initialized off-heap matrix
+     */
+    public OffHeapMatrix allocate(int rows, int cols) {
+        if (rows < 0 || cols < 0 || (long) rows * cols > Integer.MAX_VALUE / Double.BYTES)
+            throw new IllegalArgumentException("off-heap matrix of " + rows + "x" + cols + " is too large");
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(rows * cols * Double.BYTES).order(ByteOrder.nativeOrder());
+        register(buffer);
+
+        return new OffHeapMatrix(this, buffer.asDoubleBuffer(), rows, cols, 0);
+    }
+
+    /**
+     * off-heap copy of a matrix
+     */
+    public OffHeapMatrix copyOf(Matrix m) {
+        return allocate(m.rows, m.cols).set(m);
+    }
+
+    /**
+     * map a file read only, the mapping is owned by this arena
+     *
+     * @return little endian buffer over the whole file
+     */
+    public ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException(path + " is too large to be mapped at once");
+
+            // the mapping stays valid after the channel is closed
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            register(buffer);
+
+            return buffer.order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /**
+     * off-heap matrix on the doubles of a buffer of this arena (e.g. a block of a mapped file)
+     *
+     * @param buffer   buffer returned by map, its byte order is used
+     * @param position byte offset of the first value, a multiple of 8
+     */
+    public OffHeapMatrix view(ByteBuffer buffer, int position, int rows, int cols) {
+        check();
+
+        if (position < 0 || position % Double.BYTES != 0 || (long) rows * cols * Double.BYTES > buffer.capacity() - position)
+            throw new IllegalArgumentException("off-heap matrix of " + rows + "x" + cols + " does not fit at " + position);
+
+        ByteBuffer slice = buffer.duplicate().clear().position(position).slice().order(buffer.order());
+        return new OffHeapMatrix(this, slice.asDoubleBuffer(), rows, cols, 0);
+    }
+
+    private synchronized void register(ByteBuffer buffer) {
+        if (!open) {
+            free(buffer);
+            throw new IllegalStateException("arena is closed");
+        }
+
+        buffers.add(buffer);
+        bytes += buffer.capacity();
+    }
+
+    /**
+     * @return number of bytes allocated and mapped
+     */
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * @throws IllegalStateException if the arena is closed
+     */
+    void check() {
+        if (!open)
+            throw new IllegalStateException("arena is closed");
+    }
+
+    /**
+     * start an access of the memory, the memory is not freed before the matching release
+     *
+     * @throws IllegalStateException if the arena is closed
+     */
+    void acquire() {
+        users.incrementAndGet();
+        if (!open) {
+            release();
+            throw new IllegalStateException("arena is closed");
+        }
+    }
+
+    /**
+     * end an access started by acquire, the last one after close frees the memory
+     */
+    void release() {
+        if (users.decrementAndGet() == 0 && !open)
+            freeAll();
+    }
+
+    /**
+     * release all memory of the arena, right away or when the accesses in progress are done
+     */
+    @Override
+    public void close() {
+        if (!open) return;
+        open = false;
+
+        // an acquire after this check sees open == false and does not touch the memory
+        if (users.get() == 0)
+            freeAll();
+    }
+
+    private synchronized void freeAll() {
+        if (!freed.compareAndSet(false, true)) return;
+
+        for (ByteBuffer buffer : buffers)
+            free(buffer);
+        buffers.clear();
+        bytes = 0;
+    }
+
+    private static void free(ByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) return;
+
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException | RuntimeException ignored) {
+            // left to the garbage collector
+        }
+    }
+}
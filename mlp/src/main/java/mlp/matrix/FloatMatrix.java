@@ -0,0 +1,517 @@
+package mlp.matrix;
+
+import mlp.activationfunction.ActivationFunction;
+
+import java.util.Arrays;
+
+/**
+ * single precision counterpart of Matrix with the same layout:
+ * element (i, j) lives at data[offset + i * stride + j] of a float array
+ * <p>
+ * only holds the operations needed to train and infer in float32,
+ * half the memory traffic and twice the SIMD width of Matrix.
+ * values are converted from and to double with set(Matrix) and copyTo(Matrix).
+ * the reductions (rowSums, sumOfColumnL2norms) can accumulate in double,
+ * so long sums do not lose the small addends.
+ */
+public class FloatMatrix {
+    /**
+     * inner loops, scalar or SIMD depending on the runtime
+     */
+    private static final Kernels K = Kernels.INSTANCE;
+
+    /**
+     * row-major storage, possibly shared with other matrices (views)
+     */
+    public float[] data;
+
+    /**
+     * shape of the matrix
+     */
+    public int rows, cols;
+
+    /**
+     * index of element (0, 0) in data
+     * and distance between the starts of two consecutive rows
+     */
+    public int offset, stride;
+
+    public FloatMatrix(int rows, int cols) {
+        this(new float[rows * cols], rows, cols, 0, cols);
+    }
+
+    /**
+     * wrap a row-major array without copying it
+     */
+    public FloatMatrix(float[] data, int rows, int cols) {
+        this(data, rows, cols, 0, cols);
+    }
+
+    /**
+     * wrap a strided region of a row-major array without copying it
+     */
+    public FloatMatrix(float[] data, int rows, int cols, int offset, int stride) {
+        if (rows > 0 && cols > 0 && (offset < 0 || stride < cols || offset + (rows - 1) * stride + cols > data.length))
+            throw new ShapeMismatchException("storage of length %d cannot hold [%d, %d] at offset %d with stride %d", data.length, rows, cols, offset, stride);
+
+        this.data = data;
+        this.rows = rows;
+        this.cols = cols;
+        this.offset = offset;
+        this.stride = stride;
+    }
+
+    /**
+     * compact single precision copy of a double matrix
+     */
+    public FloatMatrix(Matrix matrix) {
+        this(matrix.rows, matrix.cols);
+        set(matrix);
+    }
+
+    /**
+     * @return index of element (i, j) in data
+     */
+    public int index(int i, int j) {
+        return offset + i * stride + j;
+    }
+
+    public float get(int i, int j) {
+        return data[offset + i * stride + j];
+    }
+
+    public void set(int i, int j, float value) {
+        data[offset + i * stride + j] = value;
+    }
+
+    /**
+     * @return true if the rows follow each other without gaps
+     */
+    public boolean isContiguous() {
+        return stride == cols || rows <= 1;
+    }
+
+    /**
+     * view on a rectangular block of this matrix sharing the same storage
+     */
+    public FloatMatrix view(int row, int col, int rows, int cols) {
+        if (row < 0 || col < 0 || row + rows > this.rows || col + cols > this.cols)
+            throw new ShapeMismatchException("view [%d, %d] at (%d, %d) out of bounds of %s", rows, cols, row, col, shapeString());
+
+        return new FloatMatrix(data, rows, cols, index(row, col), stride);
+    }
+
+    /**
+     * @return view on count consecutive columns starting with column j
+     */
+    public FloatMatrix columns(int j, int count) {
+        return view(0, j, rows, count);
+    }
+
+    /**
+     * copy the values of m into this matrix (shapes must match)
+     */
+    public FloatMatrix set(FloatMatrix m) {
+        checkShape("set", m);
+
+        for (int i = 0; i < rows; i++)
+            System.arraycopy(m.data, m.offset + i * m.stride, data, offset + i * stride, cols);
+
+        return this;
+    }
+
+    /**
+     * copy the values of the double matrix m into this matrix, rounded to float
+     */
+    public FloatMatrix set(Matrix m) {
+        if (cols != m.cols || rows != m.rows)
+            throw new ShapeMismatchException("set shape mismatch: %s and %s\n", shapeString(), m.shapeString());
+
+        for (int i = 0; i < rows; i++) {
+            int r = offset + i * stride, s = m.offset + i * m.stride;
+            for (int j = 0; j < cols; j++)
+                data[r + j] = (float) m.data[s + j];
+        }
+
+        return this;
+    }
+
+    /**
+     * copy the values of this matrix into the double matrix dest (shapes must match)
+     *
+     * @return dest
+     */
+    public Matrix copyTo(Matrix dest) {
+        if (cols != dest.cols || rows != dest.rows)
+            throw new ShapeMismatchException("copyTo shape mismatch: %s into %s\n", shapeString(), dest.shapeString());
+
+        for (int i = 0; i < rows; i++) {
+            int r = offset + i * stride, d = dest.offset + i * dest.stride;
+            for (int j = 0; j < cols; j++)
+                dest.data[d + j] = data[r + j];
+        }
+
+        return dest;
+    }
+
+    /**
+     * @return compact double precision copy
+     */
+    public Matrix toMatrix() {
+        return copyTo(new Matrix(rows, cols));
+    }
+
+    public FloatMatrix fill(float value) {
+        for (int i = 0; i < rows; i++) {
+            int r = offset + i * stride;
+            Arrays.fill(data, r, r + cols, value);
+        }
+
+        return this;
+    }
+
+    public FloatMatrix add(FloatMatrix m) {
+        checkShape("add", m);
+
+        if (isContiguous() && m.isContiguous())
+            K.add(data, offset, m.data, m.offset, rows * cols);
+        else
+            for (int i = 0; i < rows; i++)
+                K.add(data, offset + i * stride, m.data, m.offset + i * m.stride, cols);
+
+        return this;
+    }
+
+    public FloatMatrix subtract(FloatMatrix m) {
+        checkShape("subtract", m);
+
+        if (isContiguous() && m.isContiguous())
+            K.subtract(data, offset, m.data, m.offset, rows * cols);
+        else
+            for (int i = 0; i < rows; i++)
+                K.subtract(data, offset + i * stride, m.data, m.offset + i * m.stride, cols);
+
+        return this;
+    }
+
+    public FloatMatrix multiply(float scalar) {
+        if (isContiguous())
+            K.multiply(data, offset, scalar, rows * cols);
+        else
+            for (int i = 0; i < rows; i++)
+                K.multiply(data, offset + i * stride, scalar, cols);
+
+        return this;
+    }
+
+    // elementwise multiplication
+    public FloatMatrix multiply(FloatMatrix m) {
+        checkShape("multiply", m);
+
+        if (isContiguous() && m.isContiguous())
+            K.multiply(data, offset, m.data, m.offset, rows * cols);
+        else
+            for (int i = 0; i < rows; i++)
+                K.multiply(data, offset + i * stride, m.data, m.offset + i * m.stride, cols);
+
+        return this;
+    }
+
+    /**
+     * this += scale * m, without changing m
+     */
+    public FloatMatrix addScaled(FloatMatrix m, float scale) {
+        checkShape("addScaled", m);
+
+        if (isContiguous() && m.isContiguous())
+            K.axpy(data, offset, scale, m.data, m.offset, rows * cols);
+        else
+            for (int i = 0; i < rows; i++)
+                K.axpy(data, offset + i * stride, scale, m.data, m.offset + i * m.stride, cols);
+
+        return this;
+    }
+
+    /**
+     * broadcast add: adds the column vector v to every column of this matrix
+     */
+    public FloatMatrix addColumnVector(FloatMatrix v) {
+        if (v.cols != 1 || v.rows != rows)
+            throw new ShapeMismatchException("addColumnVector shape mismatch: %s and %s\n", shapeString(), v.shapeString());
+
+        for (int i = 0; i < rows; i++)
+            K.add(data, offset + i * stride, v.data[v.offset + i * v.stride], cols);
+
+        return this;
+    }
+
+    /**
+     * broadcast add: adds the row vector v to every row of this matrix
+     */
+    public FloatMatrix addRowVector(FloatMatrix v) {
+        if (v.rows != 1 || v.cols != cols)
+            throw new ShapeMismatchException("addRowVector shape mismatch: %s and %s\n", shapeString(), v.shapeString());
+
+        for (int i = 0; i < rows; i++)
+            K.add(data, offset + i * stride, v.data, v.offset, cols);
+
+        return this;
+    }
+
+    /**
+     * write the sum of each row into the double column vector dest
+     *
+     * @param dest               rows x 1
+     * @param accumulateInDouble sum in double instead of float
+     * @return dest
+     */
+    public Matrix rowSums(Matrix dest, boolean accumulateInDouble) {
+        if (dest.cols != 1 || dest.rows != rows)
+            throw new ShapeMismatchException("rowSums shape mismatch: %s into %s\n", shapeString(), dest.shapeString());
+
+        for (int i = 0; i < rows; i++) {
+            int r = offset + i * stride;
+            double sum;
+
+            if (accumulateInDouble) {
+                sum = 0;
+                for (int j = 0; j < cols; j++)
+                    sum += data[r + j];
+            } else {
+                float s = 0;
+                for (int j = 0; j < cols; j++)
+                    s += data[r + j];
+                sum = s;
+            }
+
+            dest.data[dest.offset + i * dest.stride] = sum;
+        }
+
+        return dest;
+    }
+
+    /**
+     * @param accumulateInDouble sum the squares in double instead of float
+     * @return sum of the l2 norms of all columns
+     */
+    public double sumOfColumnL2norms(boolean accumulateInDouble) {
+        double sum = 0;
+        for (int j = 0; j < cols; j++) {
+            double column;
+
+            if (accumulateInDouble) {
+                column = 0;
+                for (int i = 0; i < rows; i++) {
+                    double x = data[offset + i * stride + j];
+                    column += x * x;
+                }
+            } else {
+                float c = 0;
+                for (int i = 0; i < rows; i++) {
+                    float x = data[offset + i * stride + j];
+                    c += x * x;
+                }
+                column = c;
+            }
+
+            sum += Math.sqrt(column);
+        }
+
+        return sum;
+    }
+
+    /**
+     * softmax cross entropy of a batch of logits (this, one sample per column)
+     * and its gradient with respect to the logits, fused into three row-wise sweeps
+     * over the batch, without temporaries:
+     * column maxima, exponentials and their sums, then probabilities and loss.
+     * the maximum is subtracted before exponentiating, so large logits do not overflow
+     * <p>
+     * the targets of every sample must sum to 1 (e.g. one-hot),
+     * then the gradient is softmax(logits) - targets.
+     * the exponentials, their sums and the loss are computed in double
+     *
+     * @param targets expected probabilities, same shape
+     * @param delta   receives the gradient, same shape
+     * @param max     scratch, at least cols values
+     * @param sum     scratch, at least cols values
+     * @return cross entropy summed over the samples
+     */
+    public double softmaxCrossEntropy(FloatMatrix targets, FloatMatrix delta, double[] max, double[] sum) {
+        if (cols != targets.cols || rows != targets.rows || cols != delta.cols || rows != delta.rows)
+            throw new ShapeMismatchException("softmaxCrossEntropy shape mismatch: %s, %s and %s\n",
+                    shapeString(), targets.shapeString(), delta.shapeString());
+
+        Arrays.fill(max, 0, cols, Double.NEGATIVE_INFINITY);
+        Arrays.fill(sum, 0, cols, 0);
+
+        for (int i = 0; i < rows; i++) {
+            int r = offset + i * stride;
+            for (int j = 0; j < cols; j++)
+                max[j] = Math.max(max[j], data[r + j]);
+        }
+
+        for (int i = 0; i < rows; i++) {
+            int r = offset + i * stride, d = delta.offset + i * delta.stride;
+            for (int j = 0; j < cols; j++) {
+                double e = Math.exp(data[r + j] - max[j]);
+                delta.data[d + j] = (float) e;
+                sum[j] += e;
+            }
+        }
+
+        // log of the softmax denominator into max, its inverse into sum
+        for (int j = 0; j < cols; j++) {
+            max[j] += Math.log(sum[j]);
+            sum[j] = 1 / sum[j];
+        }
+
+        double loss = 0;
+        for (int i = 0; i < rows; i++) {
+            int r = offset + i * stride, d = delta.offset + i * delta.stride, t = targets.offset + i * targets.stride;
+            for (int j = 0; j < cols; j++) {
+                float y = targets.data[t + j];
+                delta.data[d + j] = (float) (delta.data[d + j] * sum[j] - y);
+                if (y != 0)
+                    loss -= y * (data[r + j] - max[j]);
+            }
+        }
+
+        return loss;
+    }
+
+    /**
+     * this = g(z), element wise
+     */
+    public FloatMatrix activate(ActivationFunction g, FloatMatrix z) {
+        return apply(g, false, z, "activate");
+    }
+
+    /**
+     * this = g'(z), computed from the activations a = g(z) without knowing z
+     */
+    public FloatMatrix deriveFromOutput(ActivationFunction g, FloatMatrix a) {
+        return apply(g, true, a, "deriveFromOutput");
+    }
+
+    private FloatMatrix apply(ActivationFunction g, boolean fromOutput, FloatMatrix src, String name) {
+        checkShape(name, src);
+
+        // the bulk functions need the same layout in source and destination
+        if (offset != src.offset || (stride != src.stride && rows > 1)) {
+            set(src);
+            src = this;
+        }
+
+        if (isContiguous())
+            apply(g, fromOutput, src.data, offset, rows * cols);
+        else
+            for (int i = 0; i < rows; i++)
+                apply(g, fromOutput, src.data, offset + i * stride, cols);
+
+        return this;
+    }
+
+    private void apply(ActivationFunction g, boolean fromOutput, float[] src, int off, int len) {
+        if (fromOutput)
+            K.deriveFromOutput(g, src, data, off, len);
+        else
+            K.activate(g, src, data, off, len);
+    }
+
+    /**
+     * replaces NaN by 0 and infinity by +-Matrix.ABSURDLY_LARGE, see Matrix.clamp
+     *
+     * @return this
+     */
+    public FloatMatrix clamp() {
+        for (int i = 0; i < rows; i++) {
+            int r = offset + i * stride;
+            for (int j = 0; j < cols; j++) {
+                float x = data[r + j];
+                if (x != x)
+                    data[r + j] = 0;
+                else if (Float.isInfinite(x))
+                    data[r + j] = x > 0 ? (float) Matrix.ABSURDLY_LARGE : (float) -Matrix.ABSURDLY_LARGE;
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * @return true if all elements are finite
+     */
+    public boolean isFinite() {
+        // x * 0 is 0 for finite x and NaN otherwise
+        float check = 0;
+        for (int i = 0; i < rows; i++) {
+            int r = offset + i * stride;
+            for (int j = 0; j < cols; j++)
+                check += data[r + j] * 0;
+        }
+
+        return check == 0;
+    }
+
+    /**
+     * matrix multiplication into an existing matrix, see Matrix.dot
+     *
+     * @param a          left matrix
+     * @param b          right matrix
+     * @param dest       destination, must not share storage with a or b
+     * @param accumulate dest += a matmul b instead of dest = a matmul b
+     * @return dest
+     */
+    public static FloatMatrix dot(FloatMatrix a, FloatMatrix b, FloatMatrix dest, boolean accumulate) {
+        FloatGemm.gemm(false, false, a, b, dest, accumulate);
+        return dest;
+    }
+
+    /**
+     * same as dot(a, b, dest, accumulate) with a transposed
+     */
+    public static FloatMatrix dotTransA(FloatMatrix a, FloatMatrix b, FloatMatrix dest, boolean accumulate) {
+        FloatGemm.gemm(true, false, a, b, dest, accumulate);
+        return dest;
+    }
+
+    /**
+     * same as dot(a, b, dest, accumulate) with b transposed
+     */
+    public static FloatMatrix dotTransB(FloatMatrix a, FloatMatrix b, FloatMatrix dest, boolean accumulate) {
+        FloatGemm.gemm(false, true, a, b, dest, accumulate);
+        return dest;
+    }
+
+    public static FloatMatrix zeros(int rows, int cols) {
+        return new FloatMatrix(rows, cols);
+    }
+
+    public int[] shape() {
+        return new int[]{rows, cols};
+    }
+
+    public String shapeString() {
+        return Arrays.toString(shape());
+    }
+
+    private void checkShape(String name, FloatMatrix m) {
+        if (cols != m.cols || rows != m.rows)
+            throw new ShapeMismatchException("%s shape mismatch: %s and %s\n", name, shapeString(), m.shapeString());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                sb.append(get(i, j)).append(" ");
+            }
+            sb.append('\n');
+        }
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,279 @@
+package mlp.matrix;
+
+import java.nio.DoubleBuffer;
+
+/**
+ * general matrix multiplication C (+)= op(A) * op(B)
+ * where op(X) is either X or X transposed
+ * <p>
+ * the product is computed block by block:
+ * a KC x NC panel of op(B) and a MC x KC block of op(A) are copied ("packed")
+ * into contiguous thread local buffers, then a micro kernel (see Kernels.gemmKernel)
+ * walks the packed block four rows at a time in i-k-j order, so that the innermost
+ * loop runs over contiguous memory and can be vectorized.
+ * matrix-vector products skip the packing entirely.
+ * an operand in native memory (OffHeapMatrix) only changes how its blocks are packed.
+ */
+final class Gemm {
+    /**
+     * block sizes, chosen so that a packed block of A (MC x KC)
+     * and a row strip of the packed panel of B fit into L2 / L1
+     */
+    private static final int MC = 64, KC = 256, NC = 512;
+
+    private static final ThreadLocal<double[]> PACKED_A = ThreadLocal.withInitial(() -> new double[MC * KC]),
+            PACKED_B = ThreadLocal.withInitial(() -> new double[KC * NC]);
+
+    private Gemm() {
+    }
+
+    /**
+     * c = op(a) * op(b), or c += op(a) * op(b) if accumulate is set
+     *
+     * @param transA     use a transposed
+     * @param transB     use b transposed
+     * @param a          left matrix
+     * @param b          right matrix
+     * @param c          destination, must not share storage with a or b
+     * @param accumulate add to the values in c instead of overwriting them
+     */
+    static void gemm(boolean transA, boolean transB, Matrix a, Matrix b, Matrix c, boolean accumulate) {
+        int m = transA ? a.cols : a.rows,
+                k = transA ? a.rows : a.cols,
+                kb = transB ? b.cols : b.rows,
+                n = transB ? b.rows : b.cols;
+
+        if (k != kb || c.rows != m || c.cols != n)
+            throw new ShapeMismatchException("dot shape mismatch: %s%s and %s%s into %s",
+                    a.shapeString(), transA ? "^T" : "", b.shapeString(), transB ? "^T" : "", c.shapeString());
+
+        if (c.data == a.data || c.data == b.data)
+            throw new IllegalArgumentException("destination of dot must not share storage with its operands");
+
+        if (!accumulate)
+            c.fill(0);
+
+        if (m == 0 || n == 0 || k == 0)
+            return;
+
+        if (n == 1)
+            gemv(transA, a, b, transB ? 1 : b.stride, c);
+        else
+            blocked(transA, transB, a, b, c, m, n, k);
+    }
+
+    /**
+     * c += op(a) * x, where x is the single row or column of b
+     * with xs as distance between two of its elements
+     */
+    private static void gemv(boolean transA, Matrix a, Matrix b, int xs, Matrix c) {
+        double[] ad = a.data, xd = b.data, cd = c.data;
+        int x0 = b.offset;
+
+        if (!transA && xs == 1) {
+            // every row of a and x are contiguous: one dot product per output element
+            for (int i = 0; i < a.rows; i++)
+                cd[c.offset + i * c.stride] += Kernels.INSTANCE.dot(ad, a.offset + i * a.stride, xd, x0, a.cols);
+        } else if (!transA) {
+            for (int i = 0; i < a.rows; i++) {
+                int ar = a.offset + i * a.stride;
+                double sum = 0;
+                for (int l = 0; l < a.cols; l++)
+                    sum += ad[ar + l] * xd[x0 + l * xs];
+                cd[c.offset + i * c.stride] += sum;
+            }
+        } else if (c.stride == 1) {
+            // a^T x is the sum of the rows of a weighted by x: axpy over contiguous rows
+            for (int l = 0; l < a.rows; l++) {
+                double x = xd[x0 + l * xs];
+                if (x == 0) continue;
+                Kernels.INSTANCE.axpy(cd, c.offset, x, ad, a.offset + l * a.stride, a.cols);
+            }
+        } else {
+            for (int l = 0; l < a.rows; l++) {
+                double x = xd[x0 + l * xs];
+                if (x == 0) continue;
+                int ar = a.offset + l * a.stride;
+                for (int i = 0; i < a.cols; i++)
+                    cd[c.offset + i * c.stride] += x * ad[ar + i];
+            }
+        }
+    }
+
+    /**
+     * c = a * b, or c += a * b if accumulate is set, with a in native memory:
+     * the blocks of a are packed straight from native memory, the micro kernel is the same
+     */
+    static void gemm(OffHeapMatrix a, Matrix b, Matrix c, boolean accumulate) {
+        int m = a.rows, k = a.cols, n = b.cols;
+
+        if (b.rows != k || c.rows != m || c.cols != n)
+            throw new ShapeMismatchException("dot shape mismatch: %s and %s into %s",
+                    a.shapeString(), b.shapeString(), c.shapeString());
+
+        a.arena.acquire();
+        try {
+            gemm(a, a.reader(), b, c, accumulate);
+        } finally {
+            a.arena.release();
+        }
+    }
+
+    private static void gemm(OffHeapMatrix a, DoubleBuffer ad, Matrix b, Matrix c, boolean accumulate) {
+        int m = a.rows, k = a.cols, n = b.cols;
+
+        if (!accumulate)
+            c.fill(0);
+
+        if (m == 0 || n == 0 || k == 0)
+            return;
+
+        double[] pa = PACKED_A.get(), pb = PACKED_B.get();
+
+        if (n == 1 && b.stride == 1) {
+            // one dot product of a row of a and the contiguous column b per output element,
+            // the rows are copied in blocks that fill the packing buffer
+            int block = Math.max(1, pa.length / k);
+            for (int ic = 0; ic < m; ic += block) {
+                int mc = Math.min(block, m - ic);
+                read(ad, a.index(ic, 0), pa, 0, mc * k);
+                for (int i = 0; i < mc; i++)
+                    c.data[c.offset + (ic + i) * c.stride] += Kernels.INSTANCE.dot(pa, i * k, b.data, b.offset, k);
+            }
+            return;
+        }
+
+        for (int jc = 0; jc < n; jc += NC) {
+            int nc = Math.min(NC, n - jc);
+
+            for (int pc = 0; pc < k; pc += KC) {
+                int kc = Math.min(KC, k - pc);
+                packB(false, b, pb, pc, kc, jc, nc);
+
+                for (int ic = 0; ic < m; ic += MC) {
+                    int mc = Math.min(MC, m - ic);
+                    for (int i = 0; i < mc; i++)
+                        read(ad, a.index(ic + i, pc), pa, i * kc, kc);
+                    Kernels.INSTANCE.gemmKernel(pa, pb, c.data, c.index(ic, jc), c.stride, mc, nc, kc);
+                }
+            }
+        }
+    }
+
+    /**
+     * c = a * b^T, or c += a * b^T if accumulate is set, with b in native memory
+     */
+    static void gemmTransB(Matrix a, OffHeapMatrix b, Matrix c, boolean accumulate) {
+        int m = a.rows, k = a.cols, n = b.rows;
+
+        if (b.cols != k || c.rows != m || c.cols != n)
+            throw new ShapeMismatchException("dot shape mismatch: %s and %s^T into %s",
+                    a.shapeString(), b.shapeString(), c.shapeString());
+
+        b.arena.acquire();
+        try {
+            gemmTransB(a, b, b.reader(), c, accumulate);
+        } finally {
+            b.arena.release();
+        }
+    }
+
+    private static void gemmTransB(Matrix a, OffHeapMatrix b, DoubleBuffer bd, Matrix c, boolean accumulate) {
+        int m = a.rows, k = a.cols, n = b.rows;
+
+        if (!accumulate)
+            c.fill(0);
+
+        if (m == 0 || n == 0 || k == 0)
+            return;
+
+        double[] pa = PACKED_A.get(), pb = PACKED_B.get();
+
+        for (int jc = 0; jc < n; jc += NC) {
+            int nc = Math.min(NC, n - jc);
+
+            for (int pc = 0; pc < k; pc += KC) {
+                int kc = Math.min(KC, k - pc);
+
+                // op(b)[p][j] = b[j][p], every row of b is copied into pa first
+                for (int j = 0; j < nc; j++) {
+                    read(bd, b.index(jc + j, pc), pa, 0, kc);
+                    for (int p = 0; p < kc; p++)
+                        pb[p * nc + j] = pa[p];
+                }
+
+                for (int ic = 0; ic < m; ic += MC) {
+                    int mc = Math.min(MC, m - ic);
+                    packA(false, a, pa, ic, mc, pc, kc);
+                    Kernels.INSTANCE.gemmKernel(pa, pb, c.data, c.index(ic, jc), c.stride, mc, nc, kc);
+                }
+            }
+        }
+    }
+
+    /**
+     * copy len values from native memory, a bulk copy (memcpy) instead of one access per value,
+     * data is a reader of the matrix (its position is changed)
+     */
+    private static void read(DoubleBuffer data, int index, double[] dst, int off, int len) {
+        data.position(index);
+        data.get(dst, off, len);
+    }
+
+    private static void blocked(boolean transA, boolean transB, Matrix a, Matrix b, Matrix c, int m, int n, int k) {
+        double[] pa = PACKED_A.get(), pb = PACKED_B.get();
+
+        for (int jc = 0; jc < n; jc += NC) {
+            int nc = Math.min(NC, n - jc);
+
+            for (int pc = 0; pc < k; pc += KC) {
+                int kc = Math.min(KC, k - pc);
+                packB(transB, b, pb, pc, kc, jc, nc);
+
+                for (int ic = 0; ic < m; ic += MC) {
+                    int mc = Math.min(MC, m - ic);
+                    packA(transA, a, pa, ic, mc, pc, kc);
+                    Kernels.INSTANCE.gemmKernel(pa, pb, c.data, c.index(ic, jc), c.stride, mc, nc, kc);
+                }
+            }
+        }
+    }
+
+    /**
+     * pack op(b)[pc .. pc + kc][jc .. jc + nc] row-major into pb (row length nc)
+     */
+    private static void packB(boolean transB, Matrix b, double[] pb, int pc, int kc, int jc, int nc) {
+        double[] bd = b.data;
+
+        if (!transB) {
+            for (int p = 0; p < kc; p++)
+                System.arraycopy(bd, b.offset + (pc + p) * b.stride + jc, pb, p * nc, nc);
+        } else {
+            // op(b)[p][j] = b[j][p], read along the rows of b
+            for (int j = 0; j < nc; j++) {
+                int br = b.offset + (jc + j) * b.stride + pc;
+                for (int p = 0; p < kc; p++)
+                    pb[p * nc + j] = bd[br + p];
+            }
+        }
+    }
+
+    /**
+     * pack op(a)[ic .. ic + mc][pc .. pc + kc] row-major into pa (row length kc)
+     */
+    private static void packA(boolean transA, Matrix a, double[] pa, int ic, int mc, int pc, int kc) {
+        double[] ad = a.data;
+
+        if (!transA) {
+            for (int i = 0; i < mc; i++)
+                System.arraycopy(ad, a.offset + (ic + i) * a.stride + pc, pa, i * kc, kc);
+        } else {
+            // op(a)[i][p] = a[p][i], read along the rows of a
+            for (int p = 0; p < kc; p++) {
+                int ar = a.offset + (pc + p) * a.stride + ic;
+                for (int i = 0; i < mc; i++)
+                    pa[i * kc + p] = ad[ar + i];
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package mlp.matrix;
+
+/**
+ * matrix of 8 bit integers with one scale per row, the quantized form of a weight matrix:
+ * element (i, j) stands for data[i * cols + j] * scale[i]
+ * <p>
+ * an eighth of the memory of a Matrix, the quantization is symmetric (values -127 to 127,
+ * no zero point) so the largest absolute value of a row is exact.
+ * the only operation is the product with int8 activations (dotTransB),
+ * which accumulates in int and applies the scales once per result.
+ * the storage is row-major and compact.
+ */
+public final class Int8Matrix {
+    private static final Kernels K = Kernels.INSTANCE;
+
+    public final int rows, cols;
+
+    public final byte[] data;
+
+    /**
+     * one per row
+     */
+    public final double[] scale;
+
+    /**
+     * sums of the rows of data, to subtract the zero point of the activations in dotTransB
+     */
+    private final int[] rowSums;
+
+    public Int8Matrix(byte[] data, int rows, int cols, double[] scale) {
+        if (data.length != rows * cols || scale.length != rows)
+            throw new ShapeMismatchException("storage of length %d and %d scales cannot hold [%d, %d]", data.length, scale.length, rows, cols);
+
+        this.rows = rows;
+        this.cols = cols;
+        this.data = data;
+        this.scale = scale;
+
+        rowSums = new int[rows];
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                rowSums[i] += data[i * cols + j];
+    }
+
+    /**
+     * quantize every row of m to int8 with its own scale, largest absolute value / 127
+     */
+    public static Int8Matrix quantize(Matrix m) {
+        byte[] data = new byte[m.rows * m.cols];
+        double[] scale = new double[m.rows];
+
+        for (int i = 0; i < m.rows; i++) {
+            double max = 0;
+            for (int j = 0; j < m.cols; j++)
+                max = Math.max(max, Math.abs(m.get(i, j)));
+
+            // a zero row stays zero with any scale
+            scale[i] = max > 0 ? max / 127 : 1;
+            for (int j = 0; j < m.cols; j++)
+                data[i * m.cols + j] = (byte) Math.round(m.get(i, j) / scale[i]);
+        }
+
+        return new Int8Matrix(data, m.rows, m.cols, scale);
+    }
+
+    /**
+     * quantize the rows of src into consecutive rows of dst with one scale and zero point:
+     * q = round(x / scale + zeroPoint), clamped to -128 .. 127
+     *
+     * @param dst receives src.rows * src.cols values
+     */
+    public static void quantize(Matrix src, double scale, int zeroPoint, byte[] dst) {
+        for (int i = 0; i < src.rows; i++)
+            K.quantize(src.data, src.offset + i * src.stride, dst, i * src.cols, 1 / scale, zeroPoint, src.cols);
+    }
+
+    /**
+     * product of int8 row vectors and this matrix transposed, e.g. a batch of quantized
+     * activations times quantized weights:
+     * dest(i, r) = xScale * scale[r] * sum over p of (x[i * cols + p] - xZeroPoint) * data[r * cols + p]
+     *
+     * @param x          n rows of cols values each, see quantize(Matrix, double, int, byte[])
+     * @param n          number of rows of x
+     * @param xScale     scale of x
+     * @param xZeroPoint zero point of x
+     * @param dest       n x rows
+     * @return dest
+     */
+    public Matrix dotTransB(byte[] x, int n, double xScale, int xZeroPoint, Matrix dest) {
+        if (x.length < n * cols || dest.rows != n || dest.cols != rows)
+            throw new ShapeMismatchException("[%d, %d] * [%d, %d]^T does not fit into %s", n, cols, rows, cols, dest.shapeString());
+
+        K.dotInt8(x, 0, cols, data, 0, cols, dest.data, dest.offset, dest.stride, n, rows, cols);
+
+        for (int i = 0; i < n; i++) {
+            int d = dest.offset + i * dest.stride;
+            for (int r = 0; r < rows; r++)
+                dest.data[d + r] = (dest.data[d + r] - (double) xZeroPoint * rowSums[r]) * xScale * scale[r];
+        }
+
+        return dest;
+    }
+
+    /**
+     * @return the values this matrix stands for
+     */
+    public Matrix dequantize() {
+        Matrix m = new Matrix(rows, cols);
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                m.set(i, j, data[i * cols + j] * scale[i]);
+        return m;
+    }
+
+    /**
+     * @return memory of the values and scales
+     */
+    public long bytes() {
+        return data.length + 8L * scale.length;
+    }
+
+    public String shapeString() {
+        return "[" + rows + ", " + cols + "]";
+    }
+}
@@ -0,0 +1,321 @@
+package mlp.matrix;
+
+import mlp.activationfunction.ActivationFunction;
+import mlp.utils.Log;
+
+/**
+ * the inner loops of the matrix operations, working on plain array ranges
+ * <p>
+ * this class is the portable scalar implementation. if the jdk.incubator.vector
+ * module is present at runtime (java --add-modules jdk.incubator.vector ...),
+ * INSTANCE is the VectorKernels subclass that uses explicit SIMD instructions instead.
+ * setting the system property mlp.kernels=scalar forces the scalar implementation.
+ */
+class Kernels {
+    static final Kernels INSTANCE = load();
+
+    private static Kernels load() {
+        if (!"scalar".equals(System.getProperty("mlp.kernels"))
+                && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (Kernels) Class.forName("mlp.matrix.VectorKernels").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // compiled without the vector module or unsupported by the hardware, use the scalar kernels
+                Log.l("vector kernels not available, using scalar kernels: " + e);
+            }
+        }
+
+        return new Kernels();
+    }
+
+    /**
+     * @return name of the implementation, for logging and benchmarks
+     */
+    String name() {
+        return "scalar";
+    }
+
+    // a[ao .. ao + len] += s
+    void add(double[] a, int ao, double s, int len) {
+        for (int i = 0; i < len; i++)
+            a[ao + i] += s;
+    }
+
+    // a[ao .. ao + len] += b[bo .. bo + len]
+    void add(double[] a, int ao, double[] b, int bo, int len) {
+        for (int i = 0; i < len; i++)
+            a[ao + i] += b[bo + i];
+    }
+
+    // a[ao .. ao + len] -= b[bo .. bo + len]
+    void subtract(double[] a, int ao, double[] b, int bo, int len) {
+        for (int i = 0; i < len; i++)
+            a[ao + i] -= b[bo + i];
+    }
+
+    // a[ao .. ao + len] *= s
+    void multiply(double[] a, int ao, double s, int len) {
+        for (int i = 0; i < len; i++)
+            a[ao + i] *= s;
+    }
+
+    // a[ao .. ao + len] *= b[bo .. bo + len]
+    void multiply(double[] a, int ao, double[] b, int bo, int len) {
+        for (int i = 0; i < len; i++)
+            a[ao + i] *= b[bo + i];
+    }
+
+    // a[ao .. ao + len] += s * b[bo .. bo + len]
+    void axpy(double[] a, int ao, double s, double[] b, int bo, int len) {
+        for (int i = 0; i < len; i++)
+            a[ao + i] += s * b[bo + i];
+    }
+
+    // sum of a[ao .. ao + len] * b[bo .. bo + len]
+    double dot(double[] a, int ao, double[] b, int bo, int len) {
+        double sum = 0;
+        for (int i = 0; i < len; i++)
+            sum += a[ao + i] * b[bo + i];
+        return sum;
+    }
+
+    // sum of a[ao .. ao + len]^2
+    double sumOfSquares(double[] a, int ao, int len) {
+        double sum = 0;
+        for (int i = 0; i < len; i++)
+            sum += a[ao + i] * a[ao + i];
+        return sum;
+    }
+
+    // dst[off .. off + len] = g(src)
+    void activate(ActivationFunction g, double[] src, double[] dst, int off, int len) {
+        g.activate(src, dst, off, len);
+    }
+
+    // dst[off .. off + len] = g'(src)
+    void derive(ActivationFunction g, double[] src, double[] dst, int off, int len) {
+        g.derive(src, dst, off, len);
+    }
+
+    // dst[off .. off + len] = g' computed from the activations in src
+    void deriveFromOutput(ActivationFunction g, double[] src, double[] dst, int off, int len) {
+        g.deriveFromOutput(src, dst, off, len);
+    }
+
+    /**
+     * gemm micro kernel, see Gemm:
+     * c[i][0 .. nc] += sum over p of pa[i * kc + p] * pb[p * nc .. p * nc + nc] for i < mc,
+     * where row i of c starts at c0 + i * cs
+     * <p>
+     * four rows of c are updated per pass over the packed panel, so every
+     * loaded row of pb is used four times
+     */
+    void gemmKernel(double[] pa, double[] pb, double[] cd, int c0, int cs, int mc, int nc, int kc) {
+        int i = 0;
+
+        for (; i + 3 < mc; i += 4) {
+            int r0 = c0 + i * cs,
+                    r1 = r0 + cs,
+                    r2 = r1 + cs,
+                    r3 = r2 + cs,
+                    a0 = i * kc,
+                    a1 = a0 + kc,
+                    a2 = a1 + kc,
+                    a3 = a2 + kc;
+
+            for (int p = 0; p < kc; p++) {
+                double x0 = pa[a0 + p], x1 = pa[a1 + p], x2 = pa[a2 + p], x3 = pa[a3 + p];
+                int br = p * nc;
+
+                for (int j = 0; j < nc; j++) {
+                    double y = pb[br + j];
+                    cd[r0 + j] += x0 * y;
+                    cd[r1 + j] += x1 * y;
+                    cd[r2 + j] += x2 * y;
+                    cd[r3 + j] += x3 * y;
+                }
+            }
+        }
+
+        // remaining rows one at a time
+        for (; i < mc; i++) {
+            int cr = c0 + i * cs, ar = i * kc;
+
+            for (int p = 0; p < kc; p++)
+                axpy(cd, cr, pa[ar + p], pb, p * nc, nc);
+        }
+    }
+
+    /*
+     * single precision versions of the loops above, for FloatMatrix
+     */
+
+    // a[ao .. ao + len] += s
+    void add(float[] a, int ao, float s, int len) {
+        for (int i = 0; i < len; i++)
+            a[ao + i] += s;
+    }
+
+    // a[ao .. ao + len] += b[bo .. bo + len]
+    void add(float[] a, int ao, float[] b, int bo, int len) {
+        for (int i = 0; i < len; i++)
+            a[ao + i] += b[bo + i];
+    }
+
+    // a[ao .. ao + len] -= b[bo .. bo + len]
+    void subtract(float[] a, int ao, float[] b, int bo, int len) {
+        for (int i = 0; i < len; i++)
+            a[ao + i] -= b[bo + i];
+    }
+
+    // a[ao .. ao + len] *= s
+    void multiply(float[] a, int ao, float s, int len) {
+        for (int i = 0; i < len; i++)
+            a[ao + i] *= s;
+    }
+
+    // a[ao .. ao + len] *= b[bo .. bo + len]
+    void multiply(float[] a, int ao, float[] b, int bo, int len) {
+        for (int i = 0; i < len; i++)
+            a[ao + i] *= b[bo + i];
+    }
+
+    // a[ao .. ao + len] += s * b[bo .. bo + len]
+    void axpy(float[] a, int ao, float s, float[] b, int bo, int len) {
+        for (int i = 0; i < len; i++)
+            a[ao + i] += s * b[bo + i];
+    }
+
+    // sum of a[ao .. ao + len] * b[bo .. bo + len]
+    float dot(float[] a, int ao, float[] b, int bo, int len) {
+        float sum = 0;
+        for (int i = 0; i < len; i++)
+            sum += a[ao + i] * b[bo + i];
+        return sum;
+    }
+
+    // dst[off .. off + len] = g(src)
+    void activate(ActivationFunction g, float[] src, float[] dst, int off, int len) {
+        g.activate(src, dst, off, len);
+    }
+
+    // dst[off .. off + len] = g' computed from the activations in src
+    void deriveFromOutput(ActivationFunction g, float[] src, float[] dst, int off, int len) {
+        g.deriveFromOutput(src, dst, off, len);
+    }
+
+    /**
+     * single precision gemm micro kernel, see FloatGemm:
+     * c[i][0 .. nc] += sum over p of pa[i * kc + p] * pb[p * nc .. p * nc + nc] for i < mc,
+     * where row i of c starts at c0 + i * cs
+     * <p>
+     * four rows of c are updated per pass over the packed panel, so every
+     * loaded row of pb is used four times
+     */
+    void gemmKernel(float[] pa, float[] pb, float[] cd, int c0, int cs, int mc, int nc, int kc) {
+        int i = 0;
+
+        for (; i + 3 < mc; i += 4) {
+            int r0 = c0 + i * cs,
+                    r1 = r0 + cs,
+                    r2 = r1 + cs,
+                    r3 = r2 + cs,
+                    a0 = i * kc,
+                    a1 = a0 + kc,
+                    a2 = a1 + kc,
+                    a3 = a2 + kc;
+
+            for (int p = 0; p < kc; p++) {
+                float x0 = pa[a0 + p], x1 = pa[a1 + p], x2 = pa[a2 + p], x3 = pa[a3 + p];
+                int br = p * nc;
+
+                for (int j = 0; j < nc; j++) {
+                    float y = pb[br + j];
+                    cd[r0 + j] += x0 * y;
+                    cd[r1 + j] += x1 * y;
+                    cd[r2 + j] += x2 * y;
+                    cd[r3 + j] += x3 * y;
+                }
+            }
+        }
+
+        // remaining rows one at a time
+        for (; i < mc; i++) {
+            int cr = c0 + i * cs, ar = i * kc;
+
+            for (int p = 0; p < kc; p++)
+                axpy(cd, cr, pa[ar + p], pb, p * nc, nc);
+        }
+    }
+
+    /*
+     * int8 products for Int8Matrix
+     */
+
+    /**
+     * int8 matrix product with int32 accumulation, see Int8Matrix:
+     * c[co + i * cs + r] = sum over p < k of a[ao + i * as + p] * b[bo + r * bs + p] for i < n, r < m
+     * <p>
+     * the sums are exact (|a * b| <= 2^14, so they cannot overflow for k below 2^17) and only the result is
+     * converted to double. four rows of a are multiplied with every row of b per pass,
+     * so every loaded row of b is used four times
+     */
+    void dotInt8(byte[] a, int ao, int as, byte[] b, int bo, int bs, double[] c, int co, int cs, int n, int m, int k) {
+        int i = 0;
+
+        for (; i + 3 < n; i += 4) {
+            int a0 = ao + i * as,
+                    a1 = a0 + as,
+                    a2 = a1 + as,
+                    a3 = a2 + as,
+                    c0 = co + i * cs;
+
+            for (int r = 0; r < m; r++) {
+                int br = bo + r * bs, s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+
+                for (int p = 0; p < k; p++) {
+                    int y = b[br + p];
+                    s0 += a[a0 + p] * y;
+                    s1 += a[a1 + p] * y;
+                    s2 += a[a2 + p] * y;
+                    s3 += a[a3 + p] * y;
+                }
+
+                c[c0 + r] = s0;
+                c[c0 + cs + r] = s1;
+                c[c0 + 2 * cs + r] = s2;
+                c[c0 + 3 * cs + r] = s3;
+            }
+        }
+
+        // remaining rows one at a time
+        for (; i < n; i++) {
+            int ar = ao + i * as, cr = co + i * cs;
+
+            for (int r = 0; r < m; r++)
+                c[cr + r] = dot(a, ar, b, bo + r * bs, k);
+        }
+    }
+
+    /**
+     * dst[d0 .. d0 + len] = src * inverse + zeroPoint rounded (ties to even) and clamped to -128 .. 127
+     * <p>
+     * adding and subtracting 1.5 * 2^52 rounds like Math.rint, but compiles to plain
+     * additions on java 17, where rint, the double min / max and the vector conversions
+     * to byte are several times slower
+     */
+    void quantize(double[] src, int s0, byte[] dst, int d0, double inverse, int zeroPoint, int len) {
+        for (int i = 0; i < len; i++) {
+            int q = (int) ((src[s0 + i] * inverse + zeroPoint + 0x1.8p52) - 0x1.8p52);
+            dst[d0 + i] = (byte) (q < -128 ? -128 : q > 127 ? 127 : q);
+        }
+    }
+
+    // sum of a[ao .. ao + len] * b[bo .. bo + len]
+    int dot(byte[] a, int ao, byte[] b, int bo, int len) {
+        int sum = 0;
+        for (int i = 0; i < len; i++)
+            sum += a[ao + i] * b[bo + i];
+        return sum;
+    }
+}
@@ -0,0 +1,878 @@
+package mlp.matrix;
+
+import mlp.activationfunction.ActivationFunction;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * dense matrix stored in one contiguous row-major double array
+ * <p>
+ * element (i, j) lives at data[offset + i * stride + j],
+ * so a matrix can also be a view into the storage of another matrix
+ * (see view, row, column, columns) without copying any data.
+ * all operations work in place on the shared storage.
+ */
+public class Matrix implements Serializable {
+    public static final double ABSURDLY_LARGE = 1e9;
+
+    /**
+     * inner loops, scalar or SIMD depending on the runtime
+     */
+    private static final Kernels K = Kernels.INSTANCE;
+
+    /**
+     * which function of an activation function to apply
+     */
+    private static final int ACTIVATE = 0, DERIVE = 1, DERIVE_FROM_OUTPUT = 2;
+
+    /**
+     * row-major storage, possibly shared with other matrices (views)
+     */
+    public double[] data;
+
+    /**
+     * shape of the matrix
+     */
+    public int rows, cols;
+
+    /**
+     * index of element (0, 0) in data
+     * and distance between the starts of two consecutive rows
+     */
+    public int offset, stride;
+
+    public Matrix(int rows, int cols, boolean random) {
+        this(rows, cols);
+
+        if (random) randomize();
+    }
+
+    public Matrix(int rows, int cols) {
+        this(new double[rows * cols], rows, cols, 0, cols);
+    }
+
+    /**
+     * wrap a row-major array without copying it
+     */
+    public Matrix(double[] data, int rows, int cols) {
+        this(data, rows, cols, 0, cols);
+    }
+
+    /**
+     * wrap a strided region of a row-major array without copying it
+     */
+    public Matrix(double[] data, int rows, int cols, int offset, int stride) {
+        if (rows > 0 && cols > 0 && (offset < 0 || stride < cols || offset + (rows - 1) * stride + cols > data.length))
+            throw new ShapeMismatchException("storage of length %d cannot hold [%d, %d] at offset %d with stride %d", data.length, rows, cols, offset, stride);
+
+        this.data = data;
+        this.rows = rows;
+        this.cols = cols;
+        this.offset = offset;
+        this.stride = stride;
+    }
+
+    /**
+     * compact copy of a matrix (or of a view)
+     */
+    public Matrix(Matrix matrix) {
+        this(matrix.rows, matrix.cols);
+
+        for (int i = 0; i < rows; i++)
+            System.arraycopy(matrix.data, matrix.offset + i * matrix.stride, data, i * cols, cols);
+    }
+
+    /**
+     * copy of a two dimensional array
+     */
+    public Matrix(double[][] data) {
+        this(data.length, data[0].length);
+
+        for (int i = 0; i < rows; i++)
+            System.arraycopy(data[i], 0, this.data, i * cols, cols);
+    }
+
+    /**
+     * @return index of element (i, j) in data
+     */
+    public int index(int i, int j) {
+        return offset + i * stride + j;
+    }
+
+    public double get(int i, int j) {
+        return data[offset + i * stride + j];
+    }
+
+    public void set(int i, int j, double value) {
+        data[offset + i * stride + j] = value;
+    }
+
+    /**
+     * @return true if the rows follow each other without gaps,
+     * meaning the elements are data[offset] to data[offset + rows * cols - 1]
+     */
+    public boolean isContiguous() {
+        return stride == cols || rows <= 1;
+    }
+
+    /**
+     * view on a rectangular block of this matrix sharing the same storage
+     *
+     * @param row  first row of the block
+     * @param col  first column of the block
+     * @param rows number of rows of the block
+     * @param cols number of columns of the block
+     * @return view (not a copy)
+     */
+    public Matrix view(int row, int col, int rows, int cols) {
+        if (row < 0 || col < 0 || row + rows > this.rows || col + cols > this.cols)
+            throw new ShapeMismatchException("view [%d, %d] at (%d, %d) out of bounds of %s", rows, cols, row, col, shapeString());
+
+        return new Matrix(data, rows, cols, index(row, col), stride);
+    }
+
+    /**
+     * @return view on row i as 1 x cols matrix
+     */
+    public Matrix row(int i) {
+        return view(i, 0, 1, cols);
+    }
+
+    /**
+     * @return view on column j as rows x 1 column vector
+     */
+    public Matrix column(int j) {
+        return view(0, j, rows, 1);
+    }
+
+    /**
+     * @return view on count consecutive columns starting with column j
+     */
+    public Matrix columns(int j, int count) {
+        return view(0, j, rows, count);
+    }
+
+    /**
+     * copy the values of m into this matrix (shapes must match)
+     */
+    public Matrix set(Matrix m) {
+        if (cols != m.cols || rows != m.rows)
+            throw new ShapeMismatchException("set shape mismatch: %s and %s\n", shapeString(), m.shapeString());
+
+        for (int i = 0; i < rows; i++)
+            System.arraycopy(m.data, m.offset + i * m.stride, data, offset + i * stride, cols);
+
+        return this;
+    }
+
+    public Matrix fill(double value) {
+        for (int i = 0; i < rows; i++) {
+            int r = offset + i * stride;
+            Arrays.fill(data, r, r + cols, value);
+        }
+
+        return this;
+    }
+
+    public Matrix expandByColumn(int index, double filler) {
+        Matrix m = new Matrix(rows, cols + 1);
+
+        for (int i = 0; i < m.rows; i++) {
+            for (int j = 0; j < m.cols; j++) {
+                if (j == index)
+                    m.set(i, j, filler);
+                else
+                    m.set(i, j, get(i, j > index ? j - 1 : j));
+            }
+        }
+
+        return m;
+    }
+
+    public Matrix expandByRow(int index, double filler) {
+        Matrix m = new Matrix(rows + 1, cols);
+
+        for (int i = 0; i < m.rows; i++) {
+            for (int j = 0; j < m.cols; j++) {
+                if (i == index)
+                    m.set(i, j, filler);
+                else
+                    m.set(i, j, get(i > index ? i - 1 : i, j));
+            }
+        }
+
+        return m;
+    }
+
+    public Matrix add(double scalar) {
+        if (isContiguous())
+            K.add(data, offset, scalar, rows * cols);
+        else
+            for (int i = 0; i < rows; i++)
+                K.add(data, offset + i * stride, scalar, cols);
+
+        return this;
+    }
+
+    public Matrix add(Matrix m) {
+        if (cols != m.cols || rows != m.rows)
+            throw new ShapeMismatchException("add shape mismatch: %s and %s\n", shapeString(), m.shapeString());
+
+
+        if (isContiguous() && m.isContiguous())
+            K.add(data, offset, m.data, m.offset, rows * cols);
+        else
+            for (int i = 0; i < rows; i++)
+                K.add(data, offset + i * stride, m.data, m.offset + i * m.stride, cols);
+
+        return this;
+    }
+
+    public Matrix subtract(Matrix m) {
+        if (cols != m.cols || rows != m.rows)
+            throw new ShapeMismatchException("subtract shape mismatch: %s and %s\n", shapeString(), m.shapeString());
+
+        if (isContiguous() && m.isContiguous())
+            K.subtract(data, offset, m.data, m.offset, rows * cols);
+        else
+            for (int i = 0; i < rows; i++)
+                K.subtract(data, offset + i * stride, m.data, m.offset + i * m.stride, cols);
+
+        return this;
+    }
+
+
+    public Matrix multiply(double scalar) {
+        if (isContiguous())
+            K.multiply(data, offset, scalar, rows * cols);
+        else
+            for (int i = 0; i < rows; i++)
+                K.multiply(data, offset + i * stride, scalar, cols);
+
+        return this;
+    }
+
+    public Matrix multiplyExceptColumn(double scalar, int index) {
+        for (int i = 0; i < rows; i++) {
+            int r = offset + i * stride;
+            for (int j = 0; j < cols; j++) {
+                if (j == index) continue;
+                data[r + j] *= scalar;
+            }
+        }
+
+        return this;
+    }
+
+    public Matrix squared() {
+        return multiply(this);
+    }
+
+    public Matrix abs() {
+        for (int i = 0; i < rows; i++) {
+            int r = offset + i * stride;
+            for (int j = 0; j < cols; j++)
+                data[r + j] = Math.abs(data[r + j]);
+        }
+
+        return this;
+    }
+
+    // elementwise multiplication
+    public Matrix multiply(Matrix m) {
+        if (cols != m.cols || rows != m.rows)
+            throw new ShapeMismatchException("multiply shape mismatch: %s and %s\n", shapeString(), m.shapeString());
+
+
+        if (isContiguous() && m.isContiguous())
+            K.multiply(data, offset, m.data, m.offset, rows * cols);
+        else
+            for (int i = 0; i < rows; i++)
+                K.multiply(data, offset + i * stride, m.data, m.offset + i * m.stride, cols);
+
+        return this;
+    }
+
+
+    /**
+     * broadcast add: adds the column vector v to every column of this matrix
+     */
+    public Matrix addColumnVector(Matrix v) {
+        if (v.cols != 1 || v.rows != rows)
+            throw new ShapeMismatchException("addColumnVector shape mismatch: %s and %s\n", shapeString(), v.shapeString());
+
+        for (int i = 0; i < rows; i++)
+            K.add(data, offset + i * stride, v.data[v.offset + i * v.stride], cols);
+
+        return this;
+    }
+
+    /**
+     * broadcast add: adds the row vector v to every row of this matrix
+     */
+    public Matrix addRowVector(Matrix v) {
+        if (v.rows != 1 || v.cols != cols)
+            throw new ShapeMismatchException("addRowVector shape mismatch: %s and %s\n", shapeString(), v.shapeString());
+
+        for (int i = 0; i < rows; i++)
+            K.add(data, offset + i * stride, v.data, v.offset, cols);
+
+        return this;
+    }
+
+    /**
+     * @return column vector with the sum of each row
+     */
+    public Matrix rowSums() {
+        return rowSums(new Matrix(rows, 1));
+    }
+
+    /**
+     * write the sum of each row into the column vector dest
+     *
+     * @return dest
+     */
+    public Matrix rowSums(Matrix dest) {
+        if (dest.cols != 1 || dest.rows != rows)
+            throw new ShapeMismatchException("rowSums shape mismatch: %s into %s\n", shapeString(), dest.shapeString());
+
+        for (int i = 0; i < rows; i++) {
+            int r = offset + i * stride;
+            double sum = 0;
+            for (int j = 0; j < cols; j++)
+                sum += data[r + j];
+            dest.data[dest.offset + i * dest.stride] = sum;
+        }
+
+        return dest;
+    }
+
+    /**
+     * this += scale * m, without changing m
+     */
+    public Matrix addScaled(Matrix m, double scale) {
+        if (cols != m.cols || rows != m.rows)
+            throw new ShapeMismatchException("addScaled shape mismatch: %s and %s\n", shapeString(), m.shapeString());
+
+        if (isContiguous() && m.isContiguous())
+            K.axpy(data, offset, scale, m.data, m.offset, rows * cols);
+        else
+            for (int i = 0; i < rows; i++)
+                K.axpy(data, offset + i * stride, scale, m.data, m.offset + i * m.stride, cols);
+
+        return this;
+    }
+
+    /**
+     * copy the column vector v into column j
+     */
+    public Matrix setColumn(int j, Matrix v) {
+        if (v.cols != 1 || v.rows != rows)
+            throw new ShapeMismatchException("setColumn shape mismatch: %s into column of %s\n", v.shapeString(), shapeString());
+
+        for (int i = 0; i < rows; i++)
+            data[offset + i * stride + j] = v.data[v.offset + i * v.stride];
+
+        return this;
+    }
+
+    public Matrix apply(ActivationFunction activationFunction, boolean derive) {
+        return apply(activationFunction, derive ? DERIVE : ACTIVATE, this, "apply");
+    }
+
+    /**
+     * this = g(z), element wise
+     *
+     * @param g activation function
+     * @param z matrix of the same shape
+     * @return this
+     */
+    public Matrix activate(ActivationFunction g, Matrix z) {
+        return apply(g, ACTIVATE, z, "activate");
+    }
+
+    /**
+     * this = g'(z), computed from the activations a = g(z) without knowing z
+     *
+     * @param g activation function
+     * @param a activations of the same shape
+     * @return this
+     */
+    public Matrix deriveFromOutput(ActivationFunction g, Matrix a) {
+        return apply(g, DERIVE_FROM_OUTPUT, a, "deriveFromOutput");
+    }
+
+    private Matrix apply(ActivationFunction g, int function, Matrix src, String name) {
+        if (cols != src.cols || rows != src.rows)
+            throw new ShapeMismatchException("%s shape mismatch: %s and %s\n", name, shapeString(), src.shapeString());
+
+        // the bulk functions need the same layout in source and destination
+        if (offset != src.offset || (stride != src.stride && rows > 1)) {
+            set(src);
+            src = this;
+        }
+
+        if (isContiguous())
+            apply(g, function, src.data, offset, rows * cols);
+        else
+            for (int i = 0; i < rows; i++)
+                apply(g, function, src.data, offset + i * stride, cols);
+
+        return this;
+    }
+
+    private void apply(ActivationFunction g, int function, double[] src, int off, int len) {
+        if (function == ACTIVATE)
+            K.activate(g, src, data, off, len);
+        else if (function == DERIVE)
+            K.derive(g, src, data, off, len);
+        else
+            K.deriveFromOutput(g, src, data, off, len);
+    }
+
+    /**
+     * replaces the storage of this matrix with the product,
+     * if this was a view it is detached afterwards
+     */
+    public Matrix dot(Matrix m) {
+        Matrix temp = Matrix.dot(this, m);
+        replaceWith(temp);
+        return this;
+    }
+
+    /**
+     * replaces the storage of this matrix with its transpose,
+     * if this was a view it is detached afterwards
+     */
+    public Matrix transpose() {
+        Matrix temp = Matrix.transpose(this);
+        replaceWith(temp);
+        return this;
+    }
+
+    private void replaceWith(Matrix m) {
+        rows = m.rows;
+        cols = m.cols;
+        data = m.data;
+        offset = m.offset;
+        stride = m.stride;
+    }
+
+    public double l2norm() {
+        double sum = 0;
+        if (isContiguous())
+            sum = K.sumOfSquares(data, offset, rows * cols);
+        else
+            for (int i = 0; i < rows; i++)
+                sum += K.sumOfSquares(data, offset + i * stride, cols);
+
+        return Math.sqrt(sum);
+    }
+
+    /**
+     * @return sum of the l2 norms of all columns,
+     * for a matrix of column vectors this is the sum of their lengths
+     */
+    public double sumOfColumnL2norms() {
+        double sum = 0;
+        for (int j = 0; j < cols; j++) {
+            double column = 0;
+            for (int i = 0; i < rows; i++) {
+                double x = data[offset + i * stride + j];
+                column += x * x;
+            }
+            sum += Math.sqrt(column);
+        }
+
+        return sum;
+    }
+
+    /**
+     * softmax cross entropy of a batch of logits (this, one sample per column)
+     * and its gradient with respect to the logits, fused into three row-wise sweeps
+     * over the batch, without temporaries:
+     * column maxima, exponentials and their sums, then probabilities and loss.
+     * the maximum is subtracted before exponentiating, so large logits do not overflow
+     * <p>
+     * the targets of every sample must sum to 1 (e.g. one-hot),
+     * then the gradient is softmax(logits) - targets
+     *
+     * @param targets expected probabilities, same shape
+     * @param delta   receives the gradient, same shape
+     * @param max     scratch, at least cols values
+     * @param sum     scratch, at least cols values
+     * @return cross entropy summed over the samples
+     */
+    public double softmaxCrossEntropy(Matrix targets, Matrix delta, double[] max, double[] sum) {
+        if (cols != targets.cols || rows != targets.rows || cols != delta.cols || rows != delta.rows)
+            throw new ShapeMismatchException("softmaxCrossEntropy shape mismatch: %s, %s and %s\n",
+                    shapeString(), targets.shapeString(), delta.shapeString());
+
+        Arrays.fill(max, 0, cols, Double.NEGATIVE_INFINITY);
+        Arrays.fill(sum, 0, cols, 0);
+
+        for (int i = 0; i < rows; i++) {
+            int r = offset + i * stride;
+            for (int j = 0; j < cols; j++)
+                max[j] = Math.max(max[j], data[r + j]);
+        }
+
+        for (int i = 0; i < rows; i++) {
+            int r = offset + i * stride, d = delta.offset + i * delta.stride;
+            for (int j = 0; j < cols; j++) {
+                double e = Math.exp(data[r + j] - max[j]);
+                delta.data[d + j] = e;
+                sum[j] += e;
+            }
+        }
+
+        // log of the softmax denominator into max, its inverse into sum
+        for (int j = 0; j < cols; j++) {
+            max[j] += Math.log(sum[j]);
+            sum[j] = 1 / sum[j];
+        }
+
+        double loss = 0;
+        for (int i = 0; i < rows; i++) {
+            int r = offset + i * stride, d = delta.offset + i * delta.stride, t = targets.offset + i * targets.stride;
+            for (int j = 0; j < cols; j++) {
+                double y = targets.data[t + j];
+                delta.data[d + j] = delta.data[d + j] * sum[j] - y;
+                if (y != 0)
+                    loss -= y * (data[r + j] - max[j]);
+            }
+        }
+
+        return loss;
+    }
+
+    public double l1norm() {
+        double sum = 0;
+        for (int i = 0; i < rows; i++) {
+            int r = offset + i * stride;
+            for (int j = 0; j < cols; j++)
+                sum += Math.abs(data[r + j]);
+        }
+
+        return sum;
+    }
+
+    public double r2error() {
+        return l2norm() / (rows * cols);
+    }
+
+
+    /**
+     * @return copy of matrix
+     */
+    public static Matrix c(Matrix m) {
+        return new Matrix(m);
+    }
+
+    /**
+     * @return random matrix with values between -1 and 1
+     */
+    public static Matrix random(int rows, int cols) {
+        return new Matrix(rows, cols, true);
+    }
+
+    /**
+     * @return return empty matrix with zeros as filler
+     */
+    public static Matrix zeros(int rows, int cols) {
+        return new Matrix(rows, cols);
+    }
+
+
+    /**
+     * transpose a matrix
+     *
+     * @param m matrix to transpose
+     * @return transposed matrix (a copy)
+     */
+    public static Matrix transpose(Matrix m) {
+        Matrix temp = new Matrix(m.cols, m.rows);
+        for (int i = 0; i < m.rows; i++) {
+            int s = m.offset + i * m.stride;
+            for (int j = 0; j < m.cols; j++)
+                temp.data[j * temp.stride + i] = m.data[s + j];
+        }
+
+        return temp;
+    }
+
+    /**
+     * matrix multiplication
+     *
+     * @param a left matrix
+     * @param b right matrix
+     * @return a matmul b
+     */
+    public static Matrix dot(Matrix a, Matrix b) {
+        return dot(a, b, new Matrix(a.rows, b.cols), false);
+    }
+
+    /**
+     * matrix multiplication with the left matrix transposed,
+     * without creating the transposed copy
+     *
+     * @param a left matrix
+     * @param b right matrix
+     * @return a transposed matmul b
+     */
+    public static Matrix dotTransA(Matrix a, Matrix b) {
+        return dotTransA(a, b, new Matrix(a.cols, b.cols), false);
+    }
+
+    /**
+     * matrix multiplication with the right matrix transposed,
+     * without creating the transposed copy
+     *
+     * @param a left matrix
+     * @param b right matrix
+     * @return a matmul b transposed
+     */
+    public static Matrix dotTransB(Matrix a, Matrix b) {
+        return dotTransB(a, b, new Matrix(a.rows, b.rows), false);
+    }
+
+    /**
+     * matrix multiplication into an existing matrix
+     *
+     * @param a          left matrix
+     * @param b          right matrix
+     * @param dest       destination, must not share storage with a or b
+     * @param accumulate dest += a matmul b instead of dest = a matmul b
+     * @return dest
+     */
+    public static Matrix dot(Matrix a, Matrix b, Matrix dest, boolean accumulate) {
+        Gemm.gemm(false, false, a, b, dest, accumulate);
+        return dest;
+    }
+
+    /**
+     * same as dot(a, b, dest, accumulate) with a transposed
+     */
+    public static Matrix dotTransA(Matrix a, Matrix b, Matrix dest, boolean accumulate) {
+        Gemm.gemm(true, false, a, b, dest, accumulate);
+        return dest;
+    }
+
+    /**
+     * same as dot(a, b, dest, accumulate) with b transposed
+     */
+    public static Matrix dotTransB(Matrix a, Matrix b, Matrix dest, boolean accumulate) {
+        Gemm.gemm(false, true, a, b, dest, accumulate);
+        return dest;
+    }
+
+    /**
+     * same as dot(a, b, dest, accumulate) with a in native memory,
+     * e.g. off-heap weights times a batch of column vectors
+     */
+    public static Matrix dot(OffHeapMatrix a, Matrix b, Matrix dest, boolean accumulate) {
+        Gemm.gemm(a, b, dest, accumulate);
+        return dest;
+    }
+
+    /**
+     * same as dotTransB(a, b, dest, accumulate) with b in native memory,
+     * e.g. a batch of row vectors times off-heap weights transposed
+     */
+    public static Matrix dotTransB(Matrix a, OffHeapMatrix b, Matrix dest, boolean accumulate) {
+        Gemm.gemmTransB(a, b, dest, accumulate);
+        return dest;
+    }
+
+    /**
+     * @return name of the kernel implementation used for the matrix operations
+     * ("scalar" or "vector" with the vector shape)
+     */
+    public static String kernels() {
+        return K.name();
+    }
+
+    public int[] shape() {
+        return new int[]{rows, cols};
+    }
+
+    public String shapeString() {
+        return Arrays.toString(shape());
+    }
+
+
+    // assign random values between -1 and 1 to matrix
+    public void randomize() {
+        for (int i = 0; i < rows; i++) {
+            int r = offset + i * stride;
+            for (int j = 0; j < cols; j++)
+                data[r + j] = Math.random() * 2. - 1.;
+        }
+    }
+
+    /**
+     * all operations use plain floating point arithmetic, so NaN and infinity propagate.
+     * clamp replaces them by valid doubles: NaN by 0 and infinity by +-ABSURDLY_LARGE
+     * (this used to be done after every single addition and multiplication)
+     *
+     * @return this
+     */
+    public Matrix clamp() {
+        for (int i = 0; i < rows; i++) {
+            int r = offset + i * stride;
+            for (int j = 0; j < cols; j++)
+                data[r + j] = verifyDouble(data[r + j]);
+        }
+
+        return this;
+    }
+
+    /**
+     * cheap check for NaN and infinity, without branches in the loop
+     *
+     * @return true if all elements are finite
+     */
+    public boolean isFinite() {
+        // x * 0 is 0 for finite x and NaN otherwise
+        double check = 0;
+        for (int i = 0; i < rows; i++) {
+            int r = offset + i * stride;
+            for (int j = 0; j < cols; j++)
+                check += data[r + j] * 0;
+        }
+
+        return check == 0;
+    }
+
+    private static double verifyDouble(double o) {
+        if (Double.isNaN(o))
+            return 0.;
+        else if (o == Double.POSITIVE_INFINITY)
+            return ABSURDLY_LARGE;
+        else if (o == Double.NEGATIVE_INFINITY)
+            return -ABSURDLY_LARGE;
+        else
+            return o;
+    }
+
+    private static double verifyDouble2(double o) {
+        return o != o || Double.isInfinite(o) ? 0. : o;
+    }
+
+    /**
+     * functions for creating from array
+     */
+    public static Matrix columnVector(double[] a) {
+        return new Matrix(a.clone(), a.length, 1);
+    }
+
+    /**
+     * pack column vectors side by side into one matrix,
+     * column j of the result is a copy of columns[j]
+     */
+    public static Matrix fromColumns(Matrix... columns) {
+        Matrix m = new Matrix(columns[0].rows, columns.length);
+
+        for (int j = 0; j < columns.length; j++) {
+            Matrix c = columns[j];
+            if (c.rows != m.rows || c.cols != 1)
+                throw new ShapeMismatchException("fromColumns shape mismatch: column %d is %s, expected [%d, 1]", j, c.shapeString(), m.rows);
+
+            for (int i = 0; i < m.rows; i++)
+                m.data[i * m.stride + j] = c.data[c.offset + i * c.stride];
+        }
+
+        return m;
+    }
+
+    /**
+     * pack arrays as columns side by side into one matrix,
+     * column j of the result is a copy of columns[j]
+     */
+    public static Matrix fromColumns(double[]... columns) {
+        Matrix m = new Matrix(columns[0].length, columns.length);
+
+        for (int j = 0; j < columns.length; j++) {
+            if (columns[j].length != m.rows)
+                throw new ShapeMismatchException("fromColumns shape mismatch: column %d has length %d, expected %d", j, columns[j].length, m.rows);
+
+            for (int i = 0; i < m.rows; i++)
+                m.data[i * m.stride + j] = columns[j][i];
+        }
+
+        return m;
+    }
+
+    /**
+     * @return copy of the elements in row-major order
+     */
+    public double[] flatten() {
+        double[] flat = new double[rows * cols];
+        for (int i = 0; i < rows; i++)
+            System.arraycopy(data, offset + i * stride, flat, i * cols, cols);
+        return flat;
+    }
+
+    /**
+     * @return copy of the elements as two dimensional array
+     */
+    public double[][] toArray() {
+        return ArrayUtils.unflatten(flatten(), rows, cols);
+    }
+
+    /**
+     * helpful utility functions
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                sb.append(get(i, j)).append(" ");
+            }
+            sb.append('\n');
+        }
+
+        return sb.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Matrix)) return false;
+        Matrix matrix = (Matrix) o;
+        if (rows != matrix.rows || cols != matrix.cols) return false;
+
+        for (int i = 0; i < rows; i++)
+            if (!Arrays.equals(data, index(i, 0), index(i, cols), matrix.data, matrix.index(i, 0), matrix.index(i, cols)))
+                return false;
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(rows, cols);
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                result = 31 * result + Double.hashCode(get(i, j));
+        return result;
+    }
+
+    public void print() {
+        System.out.println(shapeString());
+        System.out.println(this);
+    }
+
+    public static void print(Matrix[] ms) {
+        for(int i = 0; i < ms.length; i++) {
+            System.out.println(i);
+            if(ms[i] != null)
+                ms[i].print();
+            else
+                System.out.println("Matrix is null");
+        }
+    }
+}
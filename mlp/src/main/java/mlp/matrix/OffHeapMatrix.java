@@ -0,0 +1,164 @@
+package mlp.matrix;
+
+import java.nio.DoubleBuffer;
+
+/**
+ * matrix of doubles in native memory outside the java heap, owned by an Arena,
+ * e.g. the weights of a memory mapped model file (see ModelFile.loadInferenceModel)
+ * <p>
+ * the garbage collector neither copies nor scans it, and mapped data is shared
+ * with other processes through the page cache. it is an operand of the matrix products
+ * (see Matrix.dot and Matrix.dotTransB), which copy it block by block into their packed buffers,
+ * and converts from and to Matrix for everything else.
+ * the storage is row-major and compact.
+ */
+public final class OffHeapMatrix {
+    public final int rows, cols;
+
+    final Arena arena;
+    final DoubleBuffer data;
+
+    /**
+     * index of element (0, 0) in data
+     */
+    final int offset;
+
+    /**
+     * per thread duplicate of data for bulk reads (which move its position),
+     * so the matrix products do not allocate one per call, shared with the views of rows
+     */
+    private final ThreadLocal<DoubleBuffer> reader;
+
+    OffHeapMatrix(Arena arena, DoubleBuffer data, int rows, int cols, int offset) {
+        this(arena, data, ThreadLocal.withInitial(data::duplicate), rows, cols, offset);
+    }
+
+    private OffHeapMatrix(Arena arena, DoubleBuffer data, ThreadLocal<DoubleBuffer> reader, int rows, int cols, int offset) {
+        this.arena = arena;
+        this.data = data;
+        this.reader = reader;
+        this.rows = rows;
+        this.cols = cols;
+        this.offset = offset;
+    }
+
+    /**
+     * @return duplicate of data of the calling thread
+     */
+    DoubleBuffer reader() {
+        return reader.get();
+    }
+
+    public int index(int i, int j) {
+        return offset + i * cols + j;
+    }
+
+    public double get(int i, int j) {
+        arena.acquire();
+        try {
+            return data.get(index(i, j));
+        } finally {
+            arena.release();
+        }
+    }
+
+    public void set(int i, int j, double value) {
+        arena.acquire();
+        try {
+            data.put(index(i, j), value);
+        } finally {
+            arena.release();
+        }
+    }
+
+    /**
+     * copy the values of a matrix of the same shape into this one
+     *
+     * @return this
+     */
+    public OffHeapMatrix set(Matrix m) {
+        checkShape(m);
+        arena.acquire();
+        try {
+            DoubleBuffer d = reader.get();
+            for (int i = 0; i < rows; i++) {
+                d.position(index(i, 0));
+                d.put(m.data, m.index(i, 0), cols);
+            }
+        } finally {
+            arena.release();
+        }
+
+        return this;
+    }
+
+    /**
+     * copy the values into a matrix of the same shape
+     *
+     * @return m
+     */
+    public Matrix copyTo(Matrix m) {
+        checkShape(m);
+        arena.acquire();
+        try {
+            DoubleBuffer d = reader.get();
+            for (int i = 0; i < rows; i++) {
+                d.position(index(i, 0));
+                d.get(m.data, m.index(i, 0), cols);
+            }
+        } finally {
+            arena.release();
+        }
+
+        return m;
+    }
+
+    /**
+     * copy row i into column j of a matrix, e.g. a sample into a batch
+     *
+     * @return m
+     */
+    public Matrix copyRowTo(int i, Matrix m, int j) {
+        if (m.rows != cols)
+            throw new ShapeMismatchException("row of %s does not fit into a column of %s\n", shapeString(), m.shapeString());
+        arena.acquire();
+        try {
+            for (int l = 0, r = index(i, 0), k = m.index(0, j); l < cols; l++, k += m.stride)
+                m.data[k] = data.get(r + l);
+        } finally {
+            arena.release();
+        }
+
+        return m;
+    }
+
+    /**
+     * @return copy on the heap
+     */
+    public Matrix toMatrix() {
+        return copyTo(new Matrix(rows, cols));
+    }
+
+    /**
+     * @return rows i .. i + count as a matrix with the same storage
+     */
+    public OffHeapMatrix rows(int i, int count) {
+        if (i < 0 || count < 0 || i + count > rows)
+            throw new IndexOutOfBoundsException("rows " + i + " to " + (i + count) + " of " + shapeString());
+
+        return new OffHeapMatrix(arena, data, reader, count, cols, index(i, 0));
+    }
+
+    public boolean isReadOnly() {
+        return data.isReadOnly();
+    }
+
+    public String shapeString() {
+        return "(" + rows + ", " + cols + ")";
+    }
+
+    private void checkShape(Matrix m) {
+        if (m.rows != rows || m.cols != cols)
+            throw new ShapeMismatchException("shape mismatch: %s and %s\n", shapeString(), m.shapeString());
+    }
+}
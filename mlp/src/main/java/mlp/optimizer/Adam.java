@@ -0,0 +1,86 @@
+package mlp.optimizer;
+
+/**
+ * Adam, momentum on the gradient and a per parameter step size
+ * from the running mean square, both corrected for their zero initialization
+ * <p>
+ * m = beta1 * m + (1 - beta1) * g, v = beta2 * v + (1 - beta2) * g^2,
+ * p -= learningRate * (m / (1 - beta1^t)) / (sqrt(v / (1 - beta2^t)) + epsilon)
+ * <p>
+ * with weightDecay set this is AdamW (decoupled weight decay), see adamW
+ */
+public class Adam extends Optimizer {
+    public final double beta1, beta2, epsilon;
+
+    /**
+     * bias corrections of the current step
+     */
+    private transient double correction1, correction2;
+
+    public Adam() {
+        this(0.9, 0.999, 1e-8);
+    }
+
+    /**
+     * @param beta1   decay of the mean, e.g. 0.9
+     * @param beta2   decay of the mean square, e.g. 0.999
+     * @param epsilon added to the root mean square against division by zero
+     */
+    public Adam(double beta1, double beta2, double epsilon) {
+        super("mean", "meanSquare");
+
+        if (beta1 < 0 || beta1 >= 1 || beta2 < 0 || beta2 >= 1)
+            throw new IllegalArgumentException("betas must be in [0, 1)");
+        if (epsilon <= 0)
+            throw new IllegalArgumentException("epsilon must be positive");
+
+        this.beta1 = beta1;
+        this.beta2 = beta2;
+        this.epsilon = epsilon;
+    }
+
+    /**
+     * @param weightDecay decoupled weight decay, e.g. 0.01
+     * @return AdamW with default betas
+     */
+    public static Adam adamW(double weightDecay) {
+        Adam adam = new Adam();
+        adam.weightDecay = weightDecay;
+        return adam;
+    }
+
+    @Override
+    public String name() {
+        return "adam";
+    }
+
+    @Override
+    protected double[] hyperparameters() {
+        return new double[]{beta1, beta2, epsilon};
+    }
+
+    @Override
+    protected void begin(long steps) {
+        correction1 = 1 / (1 - Math.pow(beta1, steps));
+        correction2 = 1 / (1 - Math.pow(beta2, steps));
+    }
+
+    @Override
+    protected void update(double[] p, int po, double[] g, int go, int so, int len,
+                          double learningRate, double scale, double decay) {
+        double[] m = state[0], v = state[1];
+        double b1 = beta1, b2 = beta2,
+                a1 = (1 - beta1) * scale, a2 = (1 - beta2) * scale * scale,
+                c2 = correction2, eps = epsilon,
+                step = -learningRate * correction1, shrink = 1 - learningRate * decay;
+
+        for (int k = 0; k < len; k++) {
+            double gk = g[go + k],
+                    mk = b1 * m[so + k] + a1 * gk,
+                    vk = b2 * v[so + k] + a2 * gk * gk;
+            m[so + k] = mk;
+            v[so + k] = vk;
+            p[po + k] = p[po + k] * shrink + step * mk / (Math.sqrt(vk * c2) + eps);
+        }
+    }
+}
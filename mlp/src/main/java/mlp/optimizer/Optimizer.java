@@ -0,0 +1,311 @@
+package mlp.optimizer;
+
+import mlp.Gradients;
+import mlp.MLP2;
+import mlp.matrix.Matrix;
+import mlp.matrix.ShapeMismatchException;
+
+import java.io.Serializable;
+
+/**
+ * update rule of the weights and biases after a training step (see MLP2.optimizer)
+ * <p>
+ * the learning rates are those of the network (learningRate for the weights,
+ * biasLearningRate for the biases). the state of an optimizer (velocities, moments)
+ * lives in one flat buffer per kind of state over all parameters, allocated at the first step,
+ * so a step allocates nothing. every parameter matrix is updated in one pass
+ * that reads the gradient, updates the state and writes the parameter.
+ * <p>
+ * the state is not java serialized, it is saved with checkpoints (see Checkpoint).
+ */
+public abstract class Optimizer implements Serializable {
+    /**
+     * decoupled weight decay (as in AdamW): every step the weights (not the biases)
+     * shrink by learning rate * weightDecay, independent of the gradient
+     */
+    public double weightDecay;
+
+    private final String[] stateNames;
+
+    /**
+     * state buffers, one per state name, parameter i starts at offsets[i]:
+     * first the weight matrices, then the bias vectors
+     */
+    protected transient double[][] state;
+    private transient int[] offsets;
+
+    /**
+     * number of steps taken
+     */
+    private transient long steps;
+
+    /**
+     * parameters (in the layout of the state) and state before a checked step, allocated at the first one
+     */
+    private transient double[] parameterBackup;
+    private transient double[][] stateBackup;
+
+    /**
+     * @param stateNames names of the state buffers, one double per parameter each
+     */
+    protected Optimizer(String... stateNames) {
+        this.stateNames = stateNames;
+    }
+
+    /**
+     * @return name of the update rule, the id in checkpoints
+     */
+    public abstract String name();
+
+    /**
+     * @return hyperparameters in the order of create, without weightDecay
+     */
+    protected abstract double[] hyperparameters();
+
+    /**
+     * called before the parameters of a step are updated
+     *
+     * @param steps number of the step, starting at 1
+     */
+    protected void begin(long steps) {
+    }
+
+    /**
+     * update a range of parameters in place:
+     * p[po .. po + len], gradients g[go ..], state buffers [so ..]
+     *
+     * @param learningRate learning rate of the parameters
+     * @param scale        factor of the gradients, 1 / batch size for summed gradients
+     * @param decay        weight decay, 0 for biases
+     */
+    protected abstract void update(double[] p, int po, double[] g, int go, int so, int len,
+                                   double learningRate, double scale, double decay);
+
+    /**
+     * update the weights and biases of a network
+     *
+     * @param nn        network
+     * @param gradients gradients of the step, summed over the batch
+     * @param scale     factor of the gradients, 1 / batch size
+     */
+    public void step(MLP2 nn, Gradients gradients, double scale) {
+        int layers = nn.weight.length;
+        if (offsets == null || offsets.length != 2 * layers + 1 || offsets[2 * layers] != parameterCount(nn))
+            allocate(nn);
+
+        begin(++steps);
+
+        for (int i = 0; i < layers; i++) {
+            update(nn.weight[i], gradients.weight[i], offsets[i], nn.learningRate, scale, weightDecay);
+            update(nn.bias[i], gradients.bias[i], offsets[layers + i], nn.biasLearningRate, scale, 0);
+        }
+    }
+
+    /**
+     * step that is undone if it leaves a parameter or a state value NaN or infinite,
+     * which finite gradients can do too (e.g. a learning rate * gradient that overflows).
+     * costs a copy and a check of the parameters and the state
+     *
+     * @return false if the step was undone, the network and the optimizer are as before it
+     */
+    public boolean checkedStep(MLP2 nn, Gradients gradients, double scale) {
+        int layers = nn.weight.length;
+        if (offsets == null || offsets.length != 2 * layers + 1 || offsets[2 * layers] != parameterCount(nn))
+            allocate(nn);
+
+        if (parameterBackup == null) {
+            parameterBackup = new double[offsets[2 * layers]];
+            stateBackup = new double[state.length][offsets[2 * layers]];
+        }
+
+        long before = steps;
+        copy(nn, true);
+        for (int i = 0; i < state.length; i++)
+            System.arraycopy(state[i], 0, stateBackup[i], 0, state[i].length);
+
+        step(nn, gradients, scale);
+        if (isFinite(nn))
+            return true;
+
+        copy(nn, false);
+        for (int i = 0; i < state.length; i++)
+            System.arraycopy(stateBackup[i], 0, state[i], 0, state[i].length);
+        steps = before;
+        return false;
+    }
+
+    private boolean isFinite(MLP2 nn) {
+        for (int i = 0; i < nn.weight.length; i++)
+            if (!nn.weight[i].isFinite() || !nn.bias[i].isFinite())
+                return false;
+
+        for (double[] s : state)
+            for (double v : s)
+                if (!Double.isFinite(v))
+                    return false;
+
+        return true;
+    }
+
+    /**
+     * copy the parameters of a network to the backup (save) or back
+     */
+    private void copy(MLP2 nn, boolean save) {
+        int layers = nn.weight.length;
+        for (int i = 0; i < layers; i++) {
+            copy(nn.weight[i], offsets[i], save);
+            copy(nn.bias[i], offsets[layers + i], save);
+        }
+    }
+
+    private void copy(Matrix p, int so, boolean save) {
+        for (int i = 0; i < p.rows; i++) {
+            int po = p.offset + i * p.stride, bo = so + i * p.cols;
+            if (save)
+                System.arraycopy(p.data, po, parameterBackup, bo, p.cols);
+            else
+                System.arraycopy(parameterBackup, bo, p.data, po, p.cols);
+        }
+    }
+
+    private void update(Matrix p, Matrix g, int so, double learningRate, double scale, double decay) {
+        if (p.rows != g.rows || p.cols != g.cols)
+            throw new ShapeMismatchException("optimizer shape mismatch: %s and %s\n", p.shapeString(), g.shapeString());
+
+        if (p.isContiguous() && g.isContiguous())
+            update(p.data, p.offset, g.data, g.offset, so, p.rows * p.cols, learningRate, scale, decay);
+        else
+            for (int i = 0; i < p.rows; i++)
+                update(p.data, p.offset + i * p.stride, g.data, g.offset + i * g.stride, so + i * p.cols, p.cols,
+                        learningRate, scale, decay);
+    }
+
+    /**
+     * zero state for the parameters of a network
+     */
+    private void allocate(MLP2 nn) {
+        int layers = nn.weight.length;
+
+        offsets = new int[2 * layers + 1];
+        for (int i = 0; i < layers; i++)
+            offsets[i + 1] = offsets[i] + nn.weight[i].rows * nn.weight[i].cols;
+        for (int i = 0; i < layers; i++)
+            offsets[layers + i + 1] = offsets[layers + i] + nn.bias[i].rows * nn.bias[i].cols;
+
+        state = new double[stateNames.length][offsets[2 * layers]];
+        steps = 0;
+        parameterBackup = null;
+        stateBackup = null;
+    }
+
+    private static int parameterCount(MLP2 nn) {
+        int count = 0;
+        for (int i = 0; i < nn.weight.length; i++)
+            count += nn.weight[i].rows * nn.weight[i].cols + nn.bias[i].rows * nn.bias[i].cols;
+        return count;
+    }
+
+    /**
+     * forget the state, the next step starts like the first one
+     */
+    public void reset() {
+        offsets = null;
+        state = null;
+        steps = 0;
+        parameterBackup = null;
+        stateBackup = null;
+    }
+
+    /**
+     * @return number of steps taken since the state was allocated
+     */
+    public long steps() {
+        return steps;
+    }
+
+    /**
+     * @return names of the state buffers
+     */
+    public String[] stateNames() {
+        return stateNames.clone();
+    }
+
+    /**
+     * @return state buffer with the given name, null before the first step
+     */
+    public double[] state(String name) {
+        if (state == null)
+            return null;
+
+        for (int i = 0; i < stateNames.length; i++)
+            if (stateNames[i].equals(name))
+                return state[i];
+
+        throw new IllegalArgumentException("optimizer " + name() + " has no state " + name);
+    }
+
+    /**
+     * continue with saved state (see Checkpoint)
+     *
+     * @param nn     network the state belongs to
+     * @param steps  number of steps taken
+     * @param states state buffers in the order of stateNames
+     */
+    public void restore(MLP2 nn, long steps, double[][] states) {
+        if (states.length != stateNames.length)
+            throw new IllegalArgumentException("optimizer " + name() + " has " + stateNames.length + " states, got " + states.length);
+
+        allocate(nn);
+        for (int i = 0; i < states.length; i++) {
+            if (states[i].length != state[i].length)
+                throw new IllegalArgumentException("state " + stateNames[i] + " has " + states[i].length
+                        + " values, the network has " + state[i].length + " parameters");
+            System.arraycopy(states[i], 0, state[i], 0, states[i].length);
+        }
+
+        this.steps = steps;
+    }
+
+    /**
+     * @return hyperparameters followed by weightDecay, see create
+     */
+    public double[] configuration() {
+        double[] h = hyperparameters(), c = new double[h.length + 1];
+        System.arraycopy(h, 0, c, 0, h.length);
+        c[h.length] = weightDecay;
+        return c;
+    }
+
+    /**
+     * create an optimizer with the given name and configuration
+     *
+     * @throws IllegalArgumentException for unknown names or wrong configurations
+     */
+    public static Optimizer create(String name, double[] configuration) {
+        Optimizer optimizer;
+        switch (name) {
+            case "sgd":
+                check(name, configuration, 3);
+                optimizer = new SGD(configuration[0], configuration[1] != 0);
+                break;
+            case "rmsprop":
+                check(name, configuration, 3);
+                optimizer = new RMSProp(configuration[0], configuration[1]);
+                break;
+            case "adam":
+                check(name, configuration, 4);
+                optimizer = new Adam(configuration[0], configuration[1], configuration[2]);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown optimizer " + name);
+        }
+
+        optimizer.weightDecay = configuration[configuration.length - 1];
+        return optimizer;
+    }
+
+    private static void check(String name, double[] configuration, int length) {
+        if (configuration.length != length)
+            throw new IllegalArgumentException("optimizer " + name + " expects " + length + " values, got " + configuration.length);
+    }
+}
@@ -0,0 +1,55 @@
+package mlp.optimizer;
+
+/**
+ * RMSProp, every parameter has its own step size:
+ * the gradient is divided by a running root mean square of its past values
+ * <p>
+ * s = rho * s + (1 - rho) * g^2, p -= learningRate * g / (sqrt(s) + epsilon)
+ */
+public class RMSProp extends Optimizer {
+    public final double rho, epsilon;
+
+    public RMSProp() {
+        this(0.9, 1e-8);
+    }
+
+    /**
+     * @param rho     decay of the mean square, e.g. 0.9
+     * @param epsilon added to the root mean square against division by zero
+     */
+    public RMSProp(double rho, double epsilon) {
+        super("meanSquare");
+
+        if (rho < 0 || rho >= 1)
+            throw new IllegalArgumentException("rho must be in [0, 1)");
+        if (epsilon <= 0)
+            throw new IllegalArgumentException("epsilon must be positive");
+
+        this.rho = rho;
+        this.epsilon = epsilon;
+    }
+
+    @Override
+    public String name() {
+        return "rmsprop";
+    }
+
+    @Override
+    protected double[] hyperparameters() {
+        return new double[]{rho, epsilon};
+    }
+
+    @Override
+    protected void update(double[] p, int po, double[] g, int go, int so, int len,
+                          double learningRate, double scale, double decay) {
+        double[] s = state[0];
+        double r = rho, r1 = (1 - rho) * scale * scale, eps = epsilon,
+                step = -learningRate * scale, shrink = 1 - learningRate * decay;
+
+        for (int k = 0; k < len; k++) {
+            double gk = g[go + k], sk = r * s[so + k] + r1 * gk * gk;
+            s[so + k] = sk;
+            p[po + k] = p[po + k] * shrink + step * gk / (Math.sqrt(sk) + eps);
+        }
+    }
+}
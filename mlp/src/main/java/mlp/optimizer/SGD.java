@@ -0,0 +1,75 @@
+package mlp.optimizer;
+
+/**
+ * stochastic gradient descent, optionally with (Nesterov) momentum
+ * <p>
+ * without momentum the step is p -= learningRate * g.
+ * with momentum the gradients are accumulated in a velocity
+ * v = momentum * v + g and the step is p -= learningRate * v,
+ * with Nesterov momentum p -= learningRate * (g + momentum * v)
+ */
+public class SGD extends Optimizer {
+    public final double momentum;
+    public final boolean nesterov;
+
+    /**
+     * plain gradient descent, no state
+     */
+    public SGD() {
+        this(0, false);
+    }
+
+    /**
+     * @param momentum factor of the velocity, e.g. 0.9, 0 for plain gradient descent
+     * @param nesterov use Nesterov momentum
+     */
+    public SGD(double momentum, boolean nesterov) {
+        super(momentum == 0 ? new String[0] : new String[]{"velocity"});
+
+        if (momentum < 0 || momentum >= 1)
+            throw new IllegalArgumentException("momentum must be in [0, 1)");
+
+        this.momentum = momentum;
+        this.nesterov = nesterov;
+    }
+
+    @Override
+    public String name() {
+        return "sgd";
+    }
+
+    @Override
+    protected double[] hyperparameters() {
+        return new double[]{momentum, nesterov ? 1 : 0};
+    }
+
+    @Override
+    protected void update(double[] p, int po, double[] g, int go, int so, int len,
+                          double learningRate, double scale, double decay) {
+        double step = -learningRate * scale, shrink = 1 - learningRate * decay;
+
+        if (momentum == 0) {
+            for (int k = 0; k < len; k++)
+                p[po + k] = p[po + k] * shrink + step * g[go + k];
+            return;
+        }
+
+        // the velocity accumulates scaled gradients, so batches of different sizes weigh the same
+        double[] v = state[0];
+        double mu = momentum;
+        step = -learningRate;
+
+        if (nesterov)
+            for (int k = 0; k < len; k++) {
+                double gk = scale * g[go + k], vk = mu * v[so + k] + gk;
+                v[so + k] = vk;
+                p[po + k] = p[po + k] * shrink + step * (gk + mu * vk);
+            }
+        else
+            for (int k = 0; k < len; k++) {
+                double vk = mu * v[so + k] + scale * g[go + k];
+                v[so + k] = vk;
+                p[po + k] = p[po + k] * shrink + step * vk;
+            }
+    }
+}
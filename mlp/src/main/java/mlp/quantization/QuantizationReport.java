@@ -0,0 +1,89 @@
+package mlp.quantization;
+
+import mlp.Predictor;
+import mlp.data.Dataset;
+import mlp.matrix.ArrayUtils;
+import mlp.matrix.Matrix;
+
+import java.util.Locale;
+
+/**
+ * accuracy of a quantized model compared to the model it was made from, see compare
+ */
+public class QuantizationReport {
+    /**
+     * number of compared samples
+     */
+    public final int samples;
+
+    /**
+     * fraction of samples on which both models predict the same class (largest output)
+     */
+    public final double agreement;
+
+    /**
+     * fraction of samples whose class (largest expected output) is predicted by the reference and quantized model
+     */
+    public final double referenceAccuracy, quantizedAccuracy;
+
+    /**
+     * largest and mean absolute difference of the outputs
+     */
+    public final double maxError, meanError;
+
+    QuantizationReport(int samples, double agreement, double referenceAccuracy, double quantizedAccuracy, double maxError, double meanError) {
+        this.samples = samples;
+        this.agreement = agreement;
+        this.referenceAccuracy = referenceAccuracy;
+        this.quantizedAccuracy = quantizedAccuracy;
+        this.maxError = maxError;
+        this.meanError = meanError;
+    }
+
+    /**
+     * predict every sample of a dataset with both models and compare the outputs
+     *
+     * @param reference e.g. the InferenceModel of the network
+     * @param quantized e.g. the QuantizedModel of the same network
+     * @param data      samples, should not be the calibration sample
+     * @return report
+     */
+    public static QuantizationReport compare(Predictor reference, Predictor quantized, Dataset data) {
+        if (reference.inputSize() != data.inputSize() || quantized.inputSize() != data.inputSize()
+                || reference.outputSize() != quantized.outputSize())
+            throw new IllegalArgumentException("models and data do not have the same input and output sizes");
+
+        int n = data.size(), agree = 0, referenceCorrect = 0, quantizedCorrect = 0;
+        double maxError = 0, errorSum = 0;
+
+        Matrix X = new Matrix(data.inputSize(), 1), Y = new Matrix(data.outputSize(), 1);
+        double[] a = new double[reference.outputSize()], b = new double[quantized.outputSize()];
+
+        for (int i = 0; i < n; i++) {
+            // single column matrices are compact, data holds exactly the sample
+            data.get(i, X, Y, 0);
+            reference.predict(X.data, a);
+            quantized.predict(X.data, b);
+
+            int ra = ArrayUtils.argMax(a), qa = ArrayUtils.argMax(b), expected = ArrayUtils.argMax(Y.data);
+            if (ra == qa) agree++;
+            if (ra == expected) referenceCorrect++;
+            if (qa == expected) quantizedCorrect++;
+
+            for (int j = 0; j < a.length; j++) {
+                double error = Math.abs(a[j] - b[j]);
+                maxError = Math.max(maxError, error);
+                errorSum += error;
+            }
+        }
+
+        return new QuantizationReport(n, (double) agree / n, (double) referenceCorrect / n, (double) quantizedCorrect / n,
+                maxError, errorSum / ((double) n * a.length));
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%d samples: %.2f%% same class, accuracy %.2f%% -> %.2f%%, output error max %.4g mean %.4g",
+                samples, 100 * agreement, 100 * referenceAccuracy, 100 * quantizedAccuracy, maxError, meanError);
+    }
+}
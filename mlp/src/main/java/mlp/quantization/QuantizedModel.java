@@ -0,0 +1,177 @@
+package mlp.quantization;
+
+import mlp.Predictor;
+import mlp.activationfunction.ActivationFunction;
+import mlp.matrix.Int8Matrix;
+import mlp.matrix.Matrix;
+
+/**
+ * immutable network with int8 weights and activations for inference only, made by Quantizer
+ * <p>
+ * the weights are quantized per row (see Int8Matrix), the input of every layer with the
+ * scale and zero point calibrated for it, so every layer is one int8 product with int
+ * accumulation. the results are scaled back to double, the bias and the activation function
+ * are applied in double and the activations are quantized again for the next layer.
+ * the output of the last layer is not quantized.
+ * <p>
+ * like InferenceModel, any number of threads can predict concurrently on their own scratch buffers.
+ */
+public final class QuantizedModel implements Predictor {
+    private final int[] layerStructure;
+    private final Int8Matrix[] weight;
+    private final Matrix[] biasRow;
+    private final ActivationFunction activationFunction, outputActivationFunction;
+
+    /**
+     * quantization of the input of every layer
+     */
+    private final double[] inputScale;
+    private final int[] inputZeroPoint;
+
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    QuantizedModel(int[] layerStructure, ActivationFunction activationFunction, ActivationFunction outputActivationFunction,
+                   Int8Matrix[] weight, Matrix[] biasRow, double[] inputScale, int[] inputZeroPoint) {
+        this.layerStructure = layerStructure;
+        this.activationFunction = activationFunction;
+        this.outputActivationFunction = outputActivationFunction;
+        this.weight = weight;
+        this.biasRow = biasRow;
+        this.inputScale = inputScale;
+        this.inputZeroPoint = inputZeroPoint;
+    }
+
+    @Override
+    public void predict(double[] in, double[] out) {
+        checkLength(in.length, inputSize(), "input");
+        checkLength(out.length, outputSize(), "output");
+
+        Scratch s = scratch.get();
+        s.ensure(1);
+        System.arraycopy(in, 0, s.input.data, 0, in.length);
+
+        Matrix y = forward(s, 1);
+        System.arraycopy(y.data, 0, out, 0, out.length);
+    }
+
+    @Override
+    public void predictBatch(double[][] in, double[][] out) {
+        if (in.length != out.length)
+            throw new IllegalArgumentException("inputs and outputs must be of same length");
+
+        int n = in.length;
+        if (n == 0) return;
+
+        Scratch s = scratch.get();
+        s.ensure(n);
+        for (int i = 0; i < n; i++) {
+            checkLength(in[i].length, inputSize(), "input");
+            System.arraycopy(in[i], 0, s.input.data, i * s.input.stride, in[i].length);
+        }
+
+        Matrix y = forward(s, n);
+        for (int i = 0; i < n; i++) {
+            checkLength(out[i].length, outputSize(), "output");
+            System.arraycopy(y.data, i * y.stride, out[i], 0, out[i].length);
+        }
+    }
+
+    /**
+     * forward pass on the n row-major inputs in s.input
+     *
+     * @return outputs, one per row
+     */
+    private Matrix forward(Scratch s, int n) {
+        Int8Matrix.quantize(s.input, inputScale[0], inputZeroPoint[0], s.q);
+
+        for (int l = 0; l < weight.length; l++) {
+            Matrix z = s.z[l];
+            weight[l].dotTransB(s.q, n, inputScale[l], inputZeroPoint[l], z)
+                    .addRowVector(biasRow[l]);
+
+            if (l == weight.length - 1) {
+                z.apply(outputActivationFunction, false);
+            } else {
+                z.apply(activationFunction, false);
+                Int8Matrix.quantize(z, inputScale[l + 1], inputZeroPoint[l + 1], s.q);
+            }
+        }
+
+        return s.z[weight.length - 1];
+    }
+
+    @Override
+    public int inputSize() {
+        return layerStructure[0];
+    }
+
+    @Override
+    public int outputSize() {
+        return layerStructure[layerStructure.length - 1];
+    }
+
+    /**
+     * @return copy of the layer structure
+     */
+    public int[] layerStructure() {
+        return layerStructure.clone();
+    }
+
+    /**
+     * @return quantized weights of a layer
+     */
+    public Int8Matrix weight(int layer) {
+        return weight[layer];
+    }
+
+    /**
+     * @return memory of the quantized weights and their scales, without the biases
+     */
+    public long weightBytes() {
+        long bytes = 0;
+        for (Int8Matrix w : weight)
+            bytes += w.bytes();
+        return bytes;
+    }
+
+    private static void checkLength(int length, int expected, String what) {
+        if (length != expected)
+            throw new IllegalArgumentException(what + " has length " + length + ", expected " + expected);
+    }
+
+    /**
+     * per thread buffers, one sample per row
+     */
+    private class Scratch {
+        /**
+         * inputs as given, the quantized input of the current layer and the outputs of every layer
+         */
+        Matrix input;
+        byte[] q;
+        final Matrix[] z = new Matrix[weight.length];
+        private int capacity;
+
+        /**
+         * make the buffers hold exactly n rows
+         */
+        void ensure(int n) {
+            if (n > capacity) {
+                capacity = Math.max(n, 2 * capacity);
+
+                int widest = 0;
+                for (int l = 0; l < layerStructure.length - 1; l++)
+                    widest = Math.max(widest, layerStructure[l]);
+
+                input = Matrix.zeros(capacity, inputSize());
+                q = new byte[capacity * widest];
+                for (int l = 0; l < z.length; l++)
+                    z[l] = Matrix.zeros(capacity, layerStructure[l + 1]);
+            }
+
+            // compact private buffers, only the row count changes
+            input.rows = n;
+            for (Matrix m : z)
+                m.rows = n;
+        }
+    }
+}
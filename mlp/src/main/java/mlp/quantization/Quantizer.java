@@ -0,0 +1,82 @@
+package mlp.quantization;
+
+import mlp.MLP2;
+import mlp.data.Dataset;
+import mlp.matrix.Int8Matrix;
+import mlp.matrix.Matrix;
+
+/**
+ * post-training quantization of a network to int8
+ * <p>
+ * the weights are quantized per row from their values alone. the activations need a
+ * calibration pass: a sample of the data is fed through the network in double to find the
+ * range of the input of every layer, which is then mapped to -128 .. 127 with a scale and a
+ * zero point (so the 0 .. 1 of sigmoid activations uses all 256 levels).
+ * values outside the calibrated range are clamped, so the sample should be representative.
+ */
+public class Quantizer {
+    private static final int BATCH = 256;
+
+    private Quantizer() {
+    }
+
+    /**
+     * quantize a snapshot of the current weights of a network,
+     * must not run concurrently with a training step of that network
+     *
+     * @param nn          network to quantize
+     * @param calibration data to calibrate the activation ranges on, only the inputs are used
+     * @param samples     number of samples to calibrate on, spread evenly over the data
+     * @return quantized model
+     */
+    public static QuantizedModel quantize(MLP2 nn, Dataset calibration, int samples) {
+        if (calibration.inputSize() != nn.layerStructure[0])
+            throw new IllegalArgumentException("calibration inputs have " + calibration.inputSize() + " values, the network takes " + nn.layerStructure[0]);
+        samples = Math.min(samples, calibration.size());
+        if (samples < 1)
+            throw new IllegalArgumentException("no samples to calibrate on");
+
+        int layers = nn.weight.length;
+
+        // range of the input of every layer, always containing 0
+        double[] min = new double[layers], max = new double[layers];
+
+        Matrix X = new Matrix(calibration.inputSize(), BATCH), Y = new Matrix(calibration.outputSize(), BATCH);
+        for (int start = 0; start < samples; start += BATCH) {
+            int n = Math.min(BATCH, samples - start);
+            for (int j = 0; j < n; j++)
+                calibration.get((int) ((long) (start + j) * calibration.size() / samples), X, Y, j);
+
+            // forward in double on n columns
+            Matrix a = X.columns(0, n);
+            for (int l = 0; l < layers; l++) {
+                for (int i = 0; i < a.rows; i++)
+                    for (int j = 0; j < a.cols; j++) {
+                        double v = a.get(i, j);
+                        min[l] = Math.min(min[l], v);
+                        max[l] = Math.max(max[l], v);
+                    }
+
+                if (l < layers - 1)
+                    a = Matrix.dot(nn.weight[l], a).addColumnVector(nn.bias[l]).apply(nn.activationFunction, false);
+            }
+        }
+
+        double[] scale = new double[layers];
+        int[] zeroPoint = new int[layers];
+        for (int l = 0; l < layers; l++) {
+            scale[l] = max[l] > min[l] ? (max[l] - min[l]) / 255 : 1;
+            zeroPoint[l] = (int) Math.max(-128, Math.min(127, Math.round(-128 - min[l] / scale[l])));
+        }
+
+        Int8Matrix[] weight = new Int8Matrix[layers];
+        Matrix[] biasRow = new Matrix[layers];
+        for (int l = 0; l < layers; l++) {
+            weight[l] = Int8Matrix.quantize(nn.weight[l]);
+            biasRow[l] = Matrix.transpose(nn.bias[l]);
+        }
+
+        return new QuantizedModel(nn.layerStructure.clone(), nn.activationFunction, nn.outputActivationFunction,
+                weight, biasRow, scale, zeroPoint);
+    }
+}
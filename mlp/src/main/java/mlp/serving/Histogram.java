@@ -0,0 +1,106 @@
+package mlp.serving;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * lock free histogram of non negative long values (latencies in nanoseconds, queue depths, batch sizes)
+ * <p>
+ * the buckets are log-linear: values below 16 have their own bucket, above that every
+ * power of two is split into 16 buckets, so percentiles are exact up to 1/16 (6%) of the value
+ * over the whole range of long. recording is a few atomic increments and never allocates.
+ */
+public class Histogram {
+    private static final int SUB_BITS = 4, SUB = 1 << SUB_BITS,
+            BUCKETS = (Long.SIZE - SUB_BITS) * SUB;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder(), sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param value non negative value, negative values are recorded as 0
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+
+        counts.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+
+        long m;
+        while (value > (m = max.get()) && !max.compareAndSet(m, value)) ;
+    }
+
+    static int index(long value) {
+        if (value < SUB)
+            return (int) value;
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB - 1);
+        return (exponent - SUB_BITS + 1) * SUB + sub;
+    }
+
+    /**
+     * @return largest value of a bucket
+     */
+    static long upperBound(int index) {
+        if (index < SUB)
+            return index;
+
+        int exponent = index / SUB + SUB_BITS - 1, sub = index % SUB;
+        long lower = (long) (SUB + sub) << (exponent - SUB_BITS);
+        return lower + (1L << (exponent - SUB_BITS)) - 1;
+    }
+
+    /**
+     * @param p percentile, 0 to 100
+     * @return value that p percent of the recorded values are at most (within the bucket precision),
+     * 0 if nothing was recorded
+     */
+    public long percentile(double p) {
+        if (p < 0 || p > 100)
+            throw new IllegalArgumentException("percentile must be in [0, 100]");
+
+        long total = count(), rank = Math.max(1, (long) Math.ceil(p / 100 * total)), seen = 0;
+        if (total == 0)
+            return 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank)
+                return Math.min(upperBound(i), max());
+        }
+
+        return max();
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long sum() {
+        return sum.sum();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public double mean() {
+        long n = count();
+        return n == 0 ? 0 : (double) sum() / n;
+    }
+
+    /**
+     * forget all values, not atomic with concurrent recording
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++)
+            counts.set(i, 0);
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+}
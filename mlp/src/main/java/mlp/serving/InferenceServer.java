@@ -0,0 +1,292 @@
+package mlp.serving;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import mlp.Predictor;
+import mlp.utils.Log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * small http server around a Predictor (e.g. an InferenceModel) on the loopback address, on the jdk's built in com.sun.net.httpserver
+ * <p>
+ * POST /predict with a json array of numbers (the input) answers with a json array (the output),
+ * GET /metrics gives the histograms in prometheus text format and GET /health answers ok.
+ * a full queue or a prediction that takes longer than the request timeout answers 503,
+ * an input that cannot be parsed or has the wrong length 400, a body too large for an input 413.
+ * <p>
+ * every request is handled on its own virtual thread when the runtime has them (java 21),
+ * else on a cached pool of platform threads. with maxBatch > 1 the requests go through a
+ * MicroBatcher, else every request thread predicts by itself.
+ */
+public class InferenceServer implements Closeable {
+    private static final String JSON = "application/json", TEXT = "text/plain; charset=utf-8";
+
+    /**
+     * number syntax of json, Double.parseDouble also takes NaN, Infinity, hex and suffixes like 1d
+     */
+    private static final Pattern NUMBER = Pattern.compile("-?(0|[1-9][0-9]*)(\\.[0-9]+)?([eE][+-]?[0-9]+)?");
+
+    /**
+     * longest body per input value, enough for a full precision double with exponent and whitespace
+     */
+    private static final int BYTES_PER_VALUE = 64;
+
+    private final Predictor model;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * null if every request is predicted on its own
+     */
+    public final MicroBatcher batcher;
+
+    /**
+     * time from reading a predict request to the answer, including parsing, for every answer
+     */
+    public final Histogram latency = new Histogram();
+
+    /**
+     * answered predict requests per http status
+     */
+    private final Map<Integer, LongAdder> responses = new ConcurrentSkipListMap<>();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final int maxInFlight;
+    private final int maxBody;
+
+    /**
+     * longest time a request waits for its prediction before it is answered with 503
+     */
+    public long timeoutMillis = 10_000;
+
+    /**
+     * @param model          model to serve
+     * @param port           port to listen on, 0 for any free port
+     * @param maxBatch       maximum batch size, 1 to predict every request on its own
+     * @param maxDelayMicros maximum time a request waits for a batch to fill
+     * @param queueCapacity  maximum number of requests that wait for a prediction
+     */
+    public InferenceServer(Predictor model, int port, int maxBatch, long maxDelayMicros, int queueCapacity) throws IOException {
+        if (maxBatch < 1 || queueCapacity < 1)
+            throw new IllegalArgumentException("batch size and queue capacity must be positive");
+
+        this.model = model;
+        this.maxInFlight = queueCapacity;
+        this.maxBody = 1024 + BYTES_PER_VALUE * model.inputSize();
+        this.batcher = maxBatch > 1 ? new MicroBatcher(model, maxBatch, maxDelayMicros, queueCapacity) : null;
+
+        executor = requestExecutor();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(executor);
+        server.createContext("/predict", this::predict);
+        server.createContext("/metrics", this::metrics);
+        server.createContext("/health", exchange -> send(exchange, 200, TEXT, "ok\n"));
+        server.start();
+    }
+
+    /**
+     * @return port the server listens on
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * virtual thread per task executor when there is one, looked up by reflection since the library targets java 11
+     */
+    private static ExecutorService requestExecutor() {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            Log.l("serving requests on virtual threads");
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            Log.l("no virtual threads, serving requests on platform threads");
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "inference request");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    private void predict(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        int status = 500;
+        try {
+            status = answer(exchange);
+        } finally {
+            latency.record(System.nanoTime() - start);
+            responses.computeIfAbsent(status, k -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * @return http status of the answer
+     */
+    private int answer(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod()))
+            return send(exchange, 405, TEXT, "use POST\n");
+
+        double[] in;
+        try (InputStream is = exchange.getRequestBody()) {
+            String length = exchange.getRequestHeaders().getFirst("Content-Length");
+            if (length != null && Long.parseLong(length.trim()) > maxBody)
+                return send(exchange, 413, TEXT, "body larger than " + maxBody + " bytes\n");
+
+            // chunked bodies have no length, read at most one byte more than allowed
+            byte[] body = is.readNBytes(maxBody + 1);
+            if (body.length > maxBody)
+                return send(exchange, 413, TEXT, "body larger than " + maxBody + " bytes\n");
+
+            in = parseArray(new String(body, StandardCharsets.UTF_8));
+            if (in.length != model.inputSize())
+                throw new IllegalArgumentException("input has length " + in.length + ", expected " + model.inputSize());
+        } catch (IllegalArgumentException e) {
+            return send(exchange, 400, TEXT, e.getMessage() + "\n");
+        }
+
+        double[] out;
+        Future<double[]> result = null;
+        try {
+            if (batcher != null) {
+                result = batcher.submit(in);
+                out = result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } else {
+                out = predictDirect(in);
+            }
+        } catch (RejectedExecutionException e) {
+            return send(exchange, 503, TEXT, e.getMessage() + "\n");
+        } catch (TimeoutException e) {
+            result.cancel(false);
+            return send(exchange, 503, TEXT, "prediction timed out\n");
+        } catch (ExecutionException | InterruptedException | RuntimeException e) {
+            // details stay in the log, not in the answer
+            Log.l(e);
+            return send(exchange, 500, TEXT, "prediction failed\n");
+        }
+
+        return send(exchange, 200, JSON, toJson(out));
+    }
+
+    private double[] predictDirect(double[] in) {
+        // same admission limit as the batcher queue
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            throw new RejectedExecutionException("too many requests");
+        }
+
+        try {
+            double[] out = new double[model.outputSize()];
+            model.predict(in, out);
+            return out;
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void metrics(HttpExchange exchange) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        summary(sb, "mlp_request_latency_seconds", latency, 1e-9);
+        if (batcher != null) {
+            summary(sb, "mlp_batch_latency_seconds", batcher.latency, 1e-9);
+            summary(sb, "mlp_queue_wait_seconds", batcher.queueWait, 1e-9);
+            summary(sb, "mlp_queue_depth", batcher.queueDepth, 1);
+            summary(sb, "mlp_batch_size", batcher.batchSize, 1);
+            sb.append("mlp_queued ").append(batcher.queued()).append('\n');
+        }
+        sb.append("# TYPE mlp_responses_total counter\n");
+        responses.forEach((status, n) ->
+                sb.append("mlp_responses_total{status=\"").append(status).append("\"} ").append(n.sum()).append('\n'));
+        send(exchange, 200, TEXT, sb.toString());
+    }
+
+    private static void summary(StringBuilder sb, String name, Histogram h, double scale) {
+        sb.append("# TYPE ").append(name).append(" summary\n");
+        for (double q : new double[]{0.5, 0.9, 0.99, 0.999})
+            sb.append(String.format(Locale.ROOT, "%s{quantile=\"%s\"} %s%n", name, q, h.percentile(q * 100) * scale));
+        sb.append(String.format(Locale.ROOT, "%s_sum %s%n", name, h.sum() * scale));
+        sb.append(name).append("_count ").append(h.count()).append('\n');
+    }
+
+    /**
+     * @return status
+     */
+    private static int send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+        return status;
+    }
+
+    /**
+     * parse a flat json array of finite numbers
+     */
+    static double[] parseArray(String s) {
+        s = s.trim();
+        if (s.length() < 2 || s.charAt(0) != '[' || s.charAt(s.length() - 1) != ']')
+            throw new IllegalArgumentException("expected a json array of numbers");
+
+        String inner = s.substring(1, s.length() - 1).trim();
+        if (inner.isEmpty())
+            return new double[0];
+
+        String[] parts = inner.split(",", -1);
+        double[] values = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            String part = parts[i].trim();
+            if (!NUMBER.matcher(part).matches())
+                throw new IllegalArgumentException("expected a json array of numbers, got \"" + part + "\" at index " + i);
+            values[i] = Double.parseDouble(part);
+            // 1e400 is valid json but no double
+            if (!Double.isFinite(values[i]))
+                throw new IllegalArgumentException("number out of range at index " + i);
+        }
+
+        return values;
+    }
+
+    static String toJson(double[] values) {
+        StringBuilder sb = new StringBuilder(values.length * 12).append('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) sb.append(',');
+            // json has no NaN or infinity
+            sb.append(Double.isFinite(values[i]) ? Double.toString(values[i]) : "null");
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * stop the server, waits at most a second for running requests, then the batcher
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        if (batcher != null)
+            batcher.close();
+    }
+}
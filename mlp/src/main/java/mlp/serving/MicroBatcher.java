@@ -0,0 +1,199 @@
+package mlp.serving;
+
+import mlp.Predictor;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * coalesces concurrent single predictions into batch predictions
+ * <p>
+ * requests are queued, one batcher thread takes the oldest request and waits for more
+ * until the batch is full (maxBatch) or the oldest request has waited maxDelay,
+ * then predicts the whole batch with one forward pass (matrix products instead of one
+ * matrix-vector product per request) and completes the requests.
+ * under load batches fill up without waiting, when idle a request waits at most maxDelay.
+ * <p>
+ * the queue is bounded, submit rejects requests when it is full.
+ */
+public class MicroBatcher implements Closeable {
+    private final Predictor model;
+    private final int maxBatch;
+    private final long maxDelayNanos;
+
+    private final BlockingQueue<Request> queue;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * time from submit to the result, time spent in the queue,
+     * queue length when a batch is started and size of the batches
+     */
+    public final Histogram latency = new Histogram(), queueWait = new Histogram(),
+            queueDepth = new Histogram(), batchSize = new Histogram();
+
+    /**
+     * @param model          model, only used by the batcher thread
+     * @param maxBatch       maximum number of requests in a batch
+     * @param maxDelayMicros maximum time the oldest request of a batch waits for more requests
+     * @param queueCapacity  maximum number of waiting requests
+     */
+    public MicroBatcher(Predictor model, int maxBatch, long maxDelayMicros, int queueCapacity) {
+        if (maxBatch < 1 || maxDelayMicros < 0 || queueCapacity < 1)
+            throw new IllegalArgumentException("batch size and queue capacity must be positive, the delay not negative");
+
+        this.model = model;
+        this.maxBatch = maxBatch;
+        this.maxDelayNanos = maxDelayMicros * 1000;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        thread = new Thread(this::run, "micro batcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * queue a prediction
+     *
+     * @param input input of the model
+     * @return output of the model, completed by the batcher thread
+     * @throws RejectedExecutionException if the queue is full or the batcher is closed
+     */
+    public CompletableFuture<double[]> submit(double[] input) {
+        if (input.length != model.inputSize())
+            throw new IllegalArgumentException("input has length " + input.length + ", expected " + model.inputSize());
+        if (!running)
+            throw new RejectedExecutionException("batcher is closed");
+
+        Request request = new Request(input);
+        if (!queue.offer(request))
+            throw new RejectedExecutionException("queue is full");
+
+        // close may have happened since the check above and the batcher thread may have drained
+        // the queue already, then nobody would complete the request. if the batcher took it, it completes it
+        if (!running && queue.remove(request))
+            throw new RejectedExecutionException("batcher is closed");
+
+        return request;
+    }
+
+    /**
+     * @return number of waiting requests
+     */
+    public int queued() {
+        return queue.size();
+    }
+
+    private void run() {
+        Request[] batch = new Request[maxBatch];
+        // one buffer set per batch size, reused
+        List<double[][]> ins = new ArrayList<>(), outs = new ArrayList<>();
+        for (int n = 1; n <= maxBatch; n++) {
+            ins.add(new double[n][]);
+            outs.add(new double[n][]);
+        }
+
+        while (running || !queue.isEmpty()) {
+            int n = collect(batch);
+            if (n == 0) continue;
+
+            long start = System.nanoTime();
+            double[][] x = ins.get(n - 1), y = outs.get(n - 1);
+            for (int i = 0; i < n; i++) {
+                x[i] = batch[i].input;
+                y[i] = new double[model.outputSize()];
+                queueWait.record(start - batch[i].submitted);
+            }
+
+            try {
+                model.predictBatch(x, y);
+            } catch (RuntimeException e) {
+                for (int i = 0; i < n; i++)
+                    batch[i].completeExceptionally(e);
+                continue;
+            } finally {
+                batchSize.record(n);
+            }
+
+            long end = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                latency.record(end - batch[i].submitted);
+                batch[i].complete(y[i]);
+                batch[i] = null;
+                x[i] = y[i] = null;
+            }
+        }
+
+        // requests that came in while closing
+        for (Request r; (r = queue.poll()) != null; )
+            r.completeExceptionally(new RejectedExecutionException("batcher is closed"));
+    }
+
+    /**
+     * wait for the first request, then for more until the batch is full or the first one waited too long.
+     * an interrupt (close) ends the waiting, the requests taken so far are still returned
+     *
+     * @return number of requests in batch
+     */
+    private int collect(Request[] batch) {
+        Request first;
+        try {
+            first = queue.poll(100, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            return 0;
+        }
+        if (first == null)
+            return 0;
+
+        queueDepth.record(queue.size() + 1);
+        batch[0] = first;
+        int n = 1;
+
+        long deadline = first.submitted + maxDelayNanos;
+        while (n < maxBatch) {
+            Request r = queue.poll();
+            if (r == null) {
+                long wait = deadline - System.nanoTime();
+                try {
+                    if (wait <= 0 || (r = queue.poll(wait, TimeUnit.NANOSECONDS)) == null)
+                        break;
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+            batch[n++] = r;
+        }
+
+        return n;
+    }
+
+    /**
+     * stop accepting requests, finish the queued ones and stop the batcher thread,
+     * which is woken if it is waiting for requests
+     */
+    @Override
+    public void close() {
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Request extends CompletableFuture<double[]> {
+        final double[] input;
+        final long submitted = System.nanoTime();
+
+        Request(double[] input) {
+            this.input = input;
+        }
+    }
+}
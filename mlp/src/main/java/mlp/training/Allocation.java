@@ -0,0 +1,40 @@
+package mlp.training;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * allocation counter of the current thread, as far as the jvm supports it
+ */
+public class Allocation {
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    private Allocation() {
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean t = (com.sun.management.ThreadMXBean) threads;
+            if (t.isThreadAllocatedMemorySupported() && t.isThreadAllocatedMemoryEnabled())
+                return t;
+        }
+
+        return null;
+    }
+
+    /**
+     * @return bytes the current thread allocated since it started, -1 if not supported
+     */
+    public static long bytes() {
+        return THREADS != null ? THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+    }
+
+    /**
+     * @return bytes allocated since start (a value of bytes()), -1 if not supported
+     */
+    public static long since(long start) {
+        return start < 0 ? -1 : bytes() - start;
+    }
+}
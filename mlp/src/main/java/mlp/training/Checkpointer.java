@@ -0,0 +1,162 @@
+package mlp.training;
+
+import mlp.Checkpoint;
+import mlp.MLP2;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * writes checkpoints of a training network every n steps and/or every n milliseconds
+ * (and at the end of every epoch), to resume with Checkpoint.loadLatest after a crash
+ * <p>
+ * the training state is copied on the training thread (a memory copy of the weights)
+ * and written to disk on a background thread, so training does not wait for the disk.
+ * if the previous checkpoint is still being written when the next one of the step or time
+ * interval is due, the next one is skipped, as is the one at the end of an epoch if the
+ * step was just written. only the newest checkpoints (by write time) are kept, so older
+ * checkpoints of earlier runs in the same directory are deleted first.
+ * close waits for the last write.
+ */
+public class Checkpointer implements TrainingListener, Closeable {
+    private final Path directory;
+    private final int everySteps, keep;
+    private final long everyNanos;
+    private final boolean atEpochEnd;
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "checkpoint writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Future<?> pending;
+    private long last = System.nanoTime();
+    private long lastStep = -1;
+    private volatile int written;
+    private int skipped;
+
+    /**
+     * @param directory  directory for the checkpoint files, created if needed
+     * @param everySteps write a checkpoint every n training steps, 0 to not count steps
+     * @param everyMillis write a checkpoint if the last one is at least that old, 0 to not count time
+     * @param atEpochEnd also write a checkpoint after every epoch
+     * @param keep       number of checkpoints to keep, older ones are deleted
+     */
+    public Checkpointer(Path directory, int everySteps, long everyMillis, boolean atEpochEnd, int keep) throws IOException {
+        if (everySteps < 0 || everyMillis < 0)
+            throw new IllegalArgumentException("intervals must not be negative");
+        if (keep < 1)
+            throw new IllegalArgumentException("at least one checkpoint must be kept");
+
+        Files.createDirectories(directory);
+
+        this.directory = directory;
+        this.everySteps = everySteps;
+        this.everyNanos = everyMillis * 1_000_000;
+        this.atEpochEnd = atEpochEnd;
+        this.keep = keep;
+    }
+
+    @Override
+    public void stepEnd(MLP2 nn, StepMetrics step) {
+        if (everySteps > 0 && nn.step % everySteps == 0
+                || everyNanos > 0 && System.nanoTime() - last >= everyNanos)
+            if (pending == null || pending.isDone())
+                checkpoint(nn);
+            else
+                skipped++;
+    }
+
+    @Override
+    public void epochEnd(MLP2 nn, EpochMetrics epoch) {
+        // the last step of the epoch may have written this position already
+        if (atEpochEnd && nn.step != lastStep)
+            checkpoint(nn);
+    }
+
+    /**
+     * take a checkpoint now, waits for the previous one to be written first
+     */
+    public void checkpoint(MLP2 nn) {
+        rethrow();
+
+        ByteBuffer snapshot = Checkpoint.snapshot(nn);
+        Path path = Checkpoint.path(directory, nn.step);
+        last = System.nanoTime();
+        lastStep = nn.step;
+
+        pending = writer.submit(() -> {
+            Checkpoint.write(snapshot, path);
+            deleteOld();
+            return null;
+        });
+    }
+
+    private void deleteOld() throws IOException {
+        List<Path> paths = Checkpoint.list(directory);
+        for (int i = keep; i < paths.size(); i++)
+            Files.deleteIfExists(paths.get(i));
+
+        written++;
+    }
+
+    /**
+     * throw the error of the last write, if it failed
+     */
+    private void rethrow() {
+        if (pending == null) return;
+
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for a checkpoint", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw new UncheckedIOException("writing a checkpoint failed", (IOException) e.getCause());
+            throw new IllegalStateException("writing a checkpoint failed", e.getCause());
+        } finally {
+            pending = null;
+        }
+    }
+
+    /**
+     * @return number of checkpoints written and number skipped because a write was still running
+     */
+    public int written() {
+        return written;
+    }
+
+    public int skipped() {
+        return skipped;
+    }
+
+    /**
+     * wait for the last checkpoint to be written and stop the writer thread
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            rethrow();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            writer.shutdown();
+            try {
+                writer.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package mlp.training;
+
+import mlp.MLP2;
+
+/**
+ * prints a line with loss, throughput and data wait of every n-th epoch to System.out
+ */
+public class ConsoleListener implements TrainingListener {
+    private final int every;
+
+    public ConsoleListener() {
+        this(1);
+    }
+
+    /**
+     * @param every print every n-th epoch
+     */
+    public ConsoleListener(int every) {
+        if (every < 1)
+            throw new IllegalArgumentException("every must be at least 1");
+
+        this.every = every;
+    }
+
+    @Override
+    public void epochEnd(MLP2 nn, EpochMetrics epoch) {
+        if (epoch.epoch % every != 0) return;
+
+        System.out.printf("epoch %d: loss %.6g, %.0f samples/s, %.3g ms, waited %.3g ms for data%n",
+                epoch.epoch, epoch.loss, epoch.samplesPerSecond(), epoch.nanos / 1e6, epoch.dataWaitNanos / 1e6);
+    }
+}
@@ -0,0 +1,162 @@
+package mlp.training;
+
+import mlp.MLP2;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * appends the metrics of every epoch (and optionally of every n-th step)
+ * to CSV files while training runs, e.g. for plot_loss.ipynb
+ * <p>
+ * records are collected in a buffer of bounded size that is written out when it is full,
+ * at the end of every epoch and at least every flushMillis, always as whole lines,
+ * so the files can be read (tail -f) during training and a crash loses at most
+ * the records of the last flush interval.
+ * <p>
+ * epoch file columns:
+ * <pre>
+ * epoch,steps,samples,loss,samples_per_second,nanos,data_wait_nanos,load_nanos,allocated_bytes
+ * </pre>
+ * step file columns:
+ * <pre>
+ * epoch,step,samples,loss,gradient_norm,nanos,forward_nanos,backward_nanos,update_nanos,allocated_bytes,rolled_back
+ * </pre>
+ */
+public class CsvMetricsWriter implements TrainingListener, Closeable {
+    public static final String EPOCH_HEADER = "epoch,steps,samples,loss,samples_per_second,nanos,data_wait_nanos,load_nanos,allocated_bytes",
+            STEP_HEADER = "epoch,step,samples,loss,gradient_norm,nanos,forward_nanos,backward_nanos,update_nanos,allocated_bytes,rolled_back";
+
+    /**
+     * records are written out when a buffer holds this many characters
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Writer epochs, steps;
+    private final StringBuilder epochBuffer = new StringBuilder(), stepBuffer = new StringBuilder();
+    private final int stepEvery;
+    private final long flushNanos;
+    private long lastFlush = System.nanoTime();
+
+    /**
+     * write the epochs only
+     *
+     * @param epochs epoch file, replaced if it exists
+     */
+    public CsvMetricsWriter(Path epochs) throws IOException {
+        this(epochs, null, 1, 1000, false);
+    }
+
+    /**
+     * @param epochs      epoch file
+     * @param steps       step file, null to not record steps
+     * @param stepEvery   record every n-th step
+     * @param flushMillis write out buffered records at least this often
+     * @param append      append to existing files (when resuming training),
+     *                    otherwise they are replaced
+     */
+    public CsvMetricsWriter(Path epochs, Path steps, int stepEvery, long flushMillis, boolean append) throws IOException {
+        if (stepEvery < 1)
+            throw new IllegalArgumentException("stepEvery must be at least 1");
+
+        this.stepEvery = stepEvery;
+        flushNanos = flushMillis * 1_000_000;
+
+        this.epochs = open(epochs, EPOCH_HEADER, append);
+        try {
+            this.steps = steps != null ? open(steps, STEP_HEADER, append) : null;
+        } catch (IOException e) {
+            this.epochs.close();
+            throw e;
+        }
+    }
+
+    private static Writer open(Path path, String header, boolean append) throws IOException {
+        boolean empty = !append || !Files.exists(path) || Files.size(path) == 0;
+
+        Writer writer = new OutputStreamWriter(new FileOutputStream(path.toFile(), append), StandardCharsets.UTF_8);
+        if (empty) {
+            writer.write(header);
+            writer.write('\n');
+            writer.flush();
+        }
+
+        return writer;
+    }
+
+    @Override
+    public void stepEnd(MLP2 nn, StepMetrics m) {
+        if (steps == null || m.step % stepEvery != 0) return;
+
+        stepBuffer.append(m.epoch).append(',')
+                .append(m.step).append(',')
+                .append(m.samples).append(',')
+                .append(m.loss).append(',')
+                .append(m.gradientNorm).append(',')
+                .append(m.nanos).append(',')
+                .append(m.forwardNanos).append(',')
+                .append(m.backwardNanos).append(',')
+                .append(m.updateNanos).append(',')
+                .append(m.allocatedBytes).append(',')
+                .append(m.rolledBack ? 1 : 0).append('\n');
+
+        if (stepBuffer.length() >= BUFFER_SIZE || System.nanoTime() - lastFlush >= flushNanos)
+            flush();
+    }
+
+    @Override
+    public void epochEnd(MLP2 nn, EpochMetrics m) {
+        epochBuffer.append(m.epoch).append(',')
+                .append(m.steps).append(',')
+                .append(m.samples).append(',')
+                .append(m.loss).append(',')
+                .append(m.samplesPerSecond()).append(',')
+                .append(m.nanos).append(',')
+                .append(m.dataWaitNanos).append(',')
+                .append(m.loadNanos).append(',')
+                .append(m.allocatedBytes).append('\n');
+
+        flush();
+    }
+
+    /**
+     * write out all buffered records
+     */
+    public void flush() {
+        try {
+            write(epochs, epochBuffer);
+            if (steps != null)
+                write(steps, stepBuffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        lastFlush = System.nanoTime();
+    }
+
+    private static void write(Writer writer, StringBuilder buffer) throws IOException {
+        if (buffer.length() == 0) return;
+
+        writer.append(buffer);
+        writer.flush();
+        buffer.setLength(0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            epochs.close();
+            if (steps != null)
+                steps.close();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package mlp.training;
+
+import jdk.jfr.*;
+
+/**
+ * JFR event of a training epoch, its duration is the duration of the epoch
+ * (see StepEvent for recording)
+ */
+@Name("mlp.TrainingEpoch")
+@Label("Training Epoch")
+@Description("one epoch of MLP2 training on a dataset")
+@Category({"MLP", "Training"})
+public class EpochEvent extends Event {
+    /**
+     * tells whether the event is recorded without creating one
+     */
+    public static final EventType TYPE = EventType.getEventType(EpochEvent.class);
+
+    @Label("Epoch")
+    public int epoch;
+
+    @Label("Steps")
+    public int steps;
+
+    @Label("Samples")
+    public long samples;
+
+    @Label("Loss")
+    public double loss;
+
+    @Label("Samples per Second")
+    public double samplesPerSecond;
+
+    @Label("Data Wait")
+    @Timespan
+    public long dataWait;
+
+    /**
+     * copy the metrics into the event
+     *
+     * @return this
+     */
+    public EpochEvent set(EpochMetrics m) {
+        epoch = m.epoch;
+        steps = m.steps;
+        samples = m.samples;
+        loss = m.loss;
+        samplesPerSecond = m.samplesPerSecond();
+        dataWait = m.dataWaitNanos;
+        return this;
+    }
+}
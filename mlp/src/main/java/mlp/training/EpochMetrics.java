@@ -0,0 +1,39 @@
+package mlp.training;
+
+/**
+ * metrics of one epoch of training on a dataset
+ */
+public class EpochMetrics {
+    public int epoch;
+
+    /**
+     * number of training steps (mini batches) and samples of the epoch
+     */
+    public int steps;
+    public long samples;
+
+    /**
+     * mean loss of the samples
+     */
+    public double loss;
+
+    /**
+     * time of the epoch, in nanoseconds
+     */
+    public long nanos;
+
+    /**
+     * time training waited for the next batch and time the batches took to load
+     * (in the background if prefetched), in nanoseconds
+     */
+    public long dataWaitNanos, loadNanos;
+
+    /**
+     * bytes allocated by the training thread during the epoch, -1 if the jvm cannot tell
+     */
+    public long allocatedBytes;
+
+    public double samplesPerSecond() {
+        return samples * 1e9 / nanos;
+    }
+}
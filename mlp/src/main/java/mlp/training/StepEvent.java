@@ -0,0 +1,68 @@
+package mlp.training;
+
+import jdk.jfr.*;
+
+/**
+ * JFR event of a training step, its duration is the duration of the step
+ * <p>
+ * recorded with e.g. java -XX:StartFlightRecording:filename=training.jfr ...,
+ * enabled by default, which can be switched off with the setting mlp.TrainingStep#enabled=false
+ */
+@Name("mlp.TrainingStep")
+@Label("Training Step")
+@Description("one mini batch of MLP2 training")
+@Category({"MLP", "Training"})
+public class StepEvent extends Event {
+    /**
+     * tells whether the event is recorded without creating one
+     */
+    public static final EventType TYPE = EventType.getEventType(StepEvent.class);
+
+    @Label("Epoch")
+    public int epoch;
+
+    @Label("Step")
+    public long step;
+
+    @Label("Samples")
+    public int samples;
+
+    @Label("Loss")
+    public double loss;
+
+    @Label("Gradient Norm")
+    public double gradientNorm;
+
+    @Label("Forward")
+    @Timespan
+    public long forward;
+
+    @Label("Backward")
+    @Timespan
+    public long backward;
+
+    @Label("Update")
+    @Timespan
+    public long update;
+
+    @Label("Rolled Back")
+    public boolean rolledBack;
+
+    /**
+     * copy the metrics into the event
+     *
+     * @return this
+     */
+    public StepEvent set(StepMetrics m) {
+        epoch = m.epoch;
+        step = m.step;
+        samples = m.samples;
+        loss = m.loss;
+        gradientNorm = m.gradientNorm;
+        forward = m.forwardNanos;
+        backward = m.backwardNanos;
+        update = m.updateNanos;
+        rolledBack = m.rolledBack;
+        return this;
+    }
+}
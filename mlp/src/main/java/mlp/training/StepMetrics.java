@@ -0,0 +1,50 @@
+package mlp.training;
+
+/**
+ * metrics of one training step, one mini batch
+ * <p>
+ * with parallel shards the forward and backward times are summed over the shards
+ * (so they can be larger than the time of the step), the allocation is the one
+ * of the training thread only
+ */
+public class StepMetrics {
+    /**
+     * epoch the step belongs to, and number of the step since the network was created
+     */
+    public int epoch;
+    public long step;
+
+    /**
+     * number of samples in the batch
+     */
+    public int samples;
+
+    /**
+     * mean loss of the samples
+     */
+    public double loss;
+
+    /**
+     * l2 norm of the mean gradient of all weights and biases
+     */
+    public double gradientNorm;
+
+    /**
+     * time of the whole step and of its parts, in nanoseconds
+     */
+    public long nanos, forwardNanos, backwardNanos, updateNanos;
+
+    /**
+     * bytes allocated by the training thread during the step, -1 if the jvm cannot tell
+     */
+    public long allocatedBytes;
+
+    /**
+     * true if the step was rolled back because of NaN or infinity (see NumericMode)
+     */
+    public boolean rolledBack;
+
+    public double samplesPerSecond() {
+        return samples * 1e9 / nanos;
+    }
+}
@@ -0,0 +1,32 @@
+package mlp.training;
+
+import mlp.MLP2;
+
+/**
+ * gets the metrics of training steps and epochs of a network (see MLP2.addListener)
+ * <p>
+ * the metrics are measured only while at least one listener is attached
+ * (or the JFR events are recorded), so training without listeners has no overhead.
+ * the metrics objects are reused, they are only valid during the call.
+ * listeners are called on the training thread, slow work should be handed off.
+ */
+public interface TrainingListener {
+    /**
+     * called after every training step (one mini batch),
+     * after the weights were updated
+     *
+     * @param nn   network
+     * @param step metrics of the step
+     */
+    default void stepEnd(MLP2 nn, StepMetrics step) {
+    }
+
+    /**
+     * called after every epoch of MLP2.fit on a dataset
+     *
+     * @param nn    network
+     * @param epoch metrics of the epoch
+     */
+    default void epochEnd(MLP2 nn, EpochMetrics epoch) {
+    }
+}
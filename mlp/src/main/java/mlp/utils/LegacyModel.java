@@ -0,0 +1,158 @@
+package mlp.utils;
+
+import mlp.MLP2;
+import mlp.activationfunction.ActivationFunction;
+import mlp.activationfunction.ActivationFunctions;
+import mlp.matrix.Matrix;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamField;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * reads nn.ser, the java serialized MLP2 of the versions before the model file (see ModelFile)
+ * <p>
+ * MLP2 and Matrix have changed since and no longer match the serialized classes,
+ * so their fields are read into stand-ins of the old classes and copied into a new network.
+ * the oldest files have no output activation function, the last layer used the activation function.
+ * other classes than those of the old network are rejected.
+ */
+class LegacyModel {
+    private LegacyModel() {
+    }
+
+    static MLP2 read(Path path) throws IOException {
+        Object o;
+        try (ObjectInputStream in = new Input(new BufferedInputStream(Files.newInputStream(path)))) {
+            o = in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(path + " is not a serialized network: " + e.getMessage(), e);
+        }
+
+        if (o instanceof OldestNetwork)
+            o = ((OldestNetwork) o).network();
+        if (!(o instanceof Network))
+            throw new IOException(path + " is not a serialized network");
+
+        Network old = (Network) o;
+        try {
+            MLP2 nn = new MLP2(old.layerStructure, activation(old.activationFunction), activation(old.outputActivationFunction),
+                    old.learningRate, old.biasLearningRate);
+            for (int i = 0; i < nn.weight.length; i++) {
+                nn.weight[i].set(new Matrix(((OldMatrix) old.weight[i]).data));
+                nn.bias[i].set(new Matrix(((OldMatrix) old.bias[i]).data));
+            }
+            return nn;
+        } catch (RuntimeException e) {
+            throw new IOException(path + " has a corrupted network: " + e, e);
+        }
+    }
+
+    /**
+     * @return the shared instance of the activation function
+     */
+    private static ActivationFunction activation(Object g) {
+        return ActivationFunctions.byId(ActivationFunctions.id((ActivationFunction) g));
+    }
+
+    /**
+     * fields of the old MLP2, with the same names
+     */
+    private static class Network implements Serializable {
+        Object[] weight, bias;
+        Object activationFunction, outputActivationFunction;
+        int[] layerStructure;
+        double learningRate, biasLearningRate;
+    }
+
+    /**
+     * fields of the oldest MLP2, without output activation function
+     */
+    private static class OldestNetwork implements Serializable {
+        Object[] weight, bias;
+        Object activationFunction;
+        int[] layerStructure;
+        double learningRate, biasLearningRate;
+
+        Network network() {
+            Network n = new Network();
+            n.weight = weight;
+            n.bias = bias;
+            n.activationFunction = n.outputActivationFunction = activationFunction;
+            n.layerStructure = layerStructure;
+            n.learningRate = learningRate;
+            n.biasLearningRate = biasLearningRate;
+            return n;
+        }
+    }
+
+    /**
+     * fields of the old Matrix, an array per row
+     */
+    private static class OldMatrix implements Serializable {
+        double[][] data;
+        int rows, cols;
+    }
+
+    private static class Input extends ObjectInputStream {
+        Input(InputStream in) throws IOException {
+            super(in);
+        }
+
+        /**
+         * replace the descriptors of the old classes by those of the stand-ins,
+         * the activation functions have no fields and are still the same classes
+         */
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+            ObjectStreamClass stream = super.readClassDescriptor();
+            String name = stream.getName();
+            switch (name) {
+                case "mlp.MLP2":
+                    return stream.getField("outputActivationFunction") != null
+                            ? matching(stream, Network.class) : matching(stream, OldestNetwork.class);
+                case "mlp.matrix.Matrix":
+                    return matching(stream, OldMatrix.class);
+                case "[Lmlp.matrix.Matrix;":
+                    return ObjectStreamClass.lookup(OldMatrix[].class);
+                case "[I":
+                case "[D":
+                case "[[D":
+                    return stream;
+                default:
+                    if (name.startsWith("mlp.activationfunction.")) {
+                        Class<?> c = Class.forName(name, false, LegacyModel.class.getClassLoader());
+                        if (ActivationFunction.class.isAssignableFrom(c) && !c.isInterface())
+                            return ObjectStreamClass.lookup(c);
+                    }
+                    throw new InvalidClassException(name, "not part of a serialized network");
+            }
+        }
+
+        /**
+         * @return descriptor of the stand-in if it has the fields of the stream
+         */
+        private static ObjectStreamClass matching(ObjectStreamClass stream, Class<?> standIn) throws InvalidClassException {
+            ObjectStreamClass local = ObjectStreamClass.lookup(standIn);
+            ObjectStreamField[] fields = stream.getFields();
+            if (fields.length != local.getFields().length)
+                throw new InvalidClassException(stream.getName(), "unknown version with fields " + Arrays.toString(fields));
+
+            for (ObjectStreamField f : fields) {
+                ObjectStreamField l = local.getField(f.getName());
+                if (l == null || l.isPrimitive() != f.isPrimitive() || f.isPrimitive() && l.getTypeCode() != f.getTypeCode())
+                    throw new InvalidClassException(stream.getName(), "unknown version with field " + f.getName());
+            }
+
+            return local;
+        }
+    }
+}
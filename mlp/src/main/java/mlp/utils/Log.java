@@ -2,7 +2,15 @@ package mlp.utils;
 
 
 public class Log {
-    public static final boolean DEBUG = true;
+    /**
+     * switched off with the system property mlp.debug=false
+     */
+    public static final boolean DEBUG = !"false".equals(System.getProperty("mlp.debug"));
+
+    /**
+     * walks only the frames up to the caller, not the whole stack
+     */
+    private static final StackWalker WALKER = StackWalker.getInstance();
 
     public static Object[] m(Object... os) {
         for (Object o : os)
@@ -34,13 +42,10 @@ public class Log {
     }
 
     private static String getCallerClassName() {
-        StackTraceElement[] stElements = Thread.currentThread().getStackTrace();
-        for (int i = 1; i < stElements.length; i++) {
-            StackTraceElement ste = stElements[i];
-            if (!ste.getClassName().equals(Log.class.getName()) && ste.getClassName().indexOf("java.lang.Thread") != 0) {
-                return ste.getClassName() + "." + ste.getMethodName() + ": " + ste.getLineNumber();
-            }
-        }
-        return "UNKNOWN";
+        return WALKER.walk(frames -> frames
+                .filter(f -> !f.getClassName().equals(Log.class.getName()))
+                .findFirst()
+                .map(f -> f.getClassName() + "." + f.getMethodName() + ": " + f.getLineNumber())
+                .orElse("UNKNOWN"));
     }
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+package mlp.utils;
+
+import mlp.InferenceModel;
+import mlp.MLP2;
+import mlp.ModelFile;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class NNUtils {
+    private static final String DEFAULT_LOSS_FILE_NAME = "loss.txt",
+            DEFAULT_NN_FILE_NAME = "nn.bin",
+            LEGACY_NN_FILE_NAME = "nn.ser";
+
+    public static void save(MLP2 nn, double[] loss) {
+        save(nn);
+        writeLossToFile(loss, DEFAULT_LOSS_FILE_NAME);
+    }
+
+    /**
+     * save the network only, e.g. if the loss was written by a CsvMetricsWriter during training
+     */
+    public static void save(MLP2 nn) {
+        try {
+            ModelFile.save(nn, Path.of(DEFAULT_NN_FILE_NAME));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * load the saved network, without nn.bin the java serialized nn.ser of earlier versions
+     * is read, convert it once with ModelFile.save(NNUtils.load(), Path.of("nn.bin"))
+     */
+    public static MLP2 load() {
+        try {
+            if (legacy())
+                return LegacyModel.read(Path.of(LEGACY_NN_FILE_NAME));
+            return ModelFile.load(Path.of(DEFAULT_NN_FILE_NAME));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * load the saved network straight into an inference model, see load for nn.ser
+     */
+    public static InferenceModel loadInferenceModel() {
+        try {
+            if (legacy())
+                return new InferenceModel(LegacyModel.read(Path.of(LEGACY_NN_FILE_NAME)));
+            return ModelFile.loadInferenceModel(Path.of(DEFAULT_NN_FILE_NAME));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static boolean legacy() {
+        if (Files.exists(Path.of(DEFAULT_NN_FILE_NAME)) || !Files.exists(Path.of(LEGACY_NN_FILE_NAME)))
+            return false;
+
+        Log.l("no " + DEFAULT_NN_FILE_NAME + ", reading the java serialized " + LEGACY_NN_FILE_NAME);
+        return true;
+    }
+    
+    /**
+     * write the loss history space separated, streamed through a buffered writer
+     */
+    public static void writeLossToFile(double[] loss, String fileName) {
+        try (Writer writer = Files.newBufferedWriter(Path.of(fileName), StandardCharsets.UTF_8)) {
+            for (double d : loss)
+                writer.append(Double.toString(d)).append(' ');
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
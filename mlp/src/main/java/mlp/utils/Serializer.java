@@ -0,0 +1,42 @@
+package mlp.utils;
+
+import java.io.*;
+import java.nio.file.*;
+
+public class Serializer {
+    /**
+     * the object is written to a temporary file that replaces the file when it is complete,
+     * so a crash while writing does not destroy the previous file
+     */
+    public static void serialize(Object obj, String fileName) throws RuntimeException {
+        Path path = Path.of(fileName).toAbsolutePath();
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (FileOutputStream fos = new FileOutputStream(tmp.toFile());
+             ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(fos))) {
+            oos.writeObject(obj);
+            oos.flush();
+            fos.getFD().sync();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        try {
+            try {
+                Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static Object deserialize(String fileName) throws RuntimeException {
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(fileName)))) {
+            return ois.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
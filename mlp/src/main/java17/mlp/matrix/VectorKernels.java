@@ -0,0 +1,495 @@
+package mlp.matrix;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+import mlp.activationfunction.*;
+
+/**
+ * SIMD kernels using the jdk.incubator.vector API with the preferred (widest) vector size,
+ * so AVX2 processes 4 and AVX-512 8 doubles per instruction
+ * <p>
+ * only loaded by Kernels if the module is present at runtime,
+ * compiling this class needs --add-modules jdk.incubator.vector.
+ * the loops process full vectors and finish the tail with the scalar code.
+ */
+final class VectorKernels extends Kernels {
+    private static final VectorSpecies<Double> S = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Float> F = FloatVector.SPECIES_PREFERRED;
+    private static final int L = S.length(), FL = F.length();
+
+    @Override
+    String name() {
+        return "vector " + S;
+    }
+
+    @Override
+    void add(double[] a, int ao, double s, int len) {
+        int i = 0;
+        for (int n = S.loopBound(len); i < n; i += L)
+            DoubleVector.fromArray(S, a, ao + i).add(s).intoArray(a, ao + i);
+        super.add(a, ao + i, s, len - i);
+    }
+
+    @Override
+    void add(double[] a, int ao, double[] b, int bo, int len) {
+        int i = 0;
+        for (int n = S.loopBound(len); i < n; i += L)
+            DoubleVector.fromArray(S, a, ao + i).add(DoubleVector.fromArray(S, b, bo + i)).intoArray(a, ao + i);
+        super.add(a, ao + i, b, bo + i, len - i);
+    }
+
+    @Override
+    void subtract(double[] a, int ao, double[] b, int bo, int len) {
+        int i = 0;
+        for (int n = S.loopBound(len); i < n; i += L)
+            DoubleVector.fromArray(S, a, ao + i).sub(DoubleVector.fromArray(S, b, bo + i)).intoArray(a, ao + i);
+        super.subtract(a, ao + i, b, bo + i, len - i);
+    }
+
+    @Override
+    void multiply(double[] a, int ao, double s, int len) {
+        int i = 0;
+        for (int n = S.loopBound(len); i < n; i += L)
+            DoubleVector.fromArray(S, a, ao + i).mul(s).intoArray(a, ao + i);
+        super.multiply(a, ao + i, s, len - i);
+    }
+
+    @Override
+    void multiply(double[] a, int ao, double[] b, int bo, int len) {
+        int i = 0;
+        for (int n = S.loopBound(len); i < n; i += L)
+            DoubleVector.fromArray(S, a, ao + i).mul(DoubleVector.fromArray(S, b, bo + i)).intoArray(a, ao + i);
+        super.multiply(a, ao + i, b, bo + i, len - i);
+    }
+
+    @Override
+    void axpy(double[] a, int ao, double s, double[] b, int bo, int len) {
+        int i = 0;
+        DoubleVector sv = DoubleVector.broadcast(S, s);
+        for (int n = S.loopBound(len); i < n; i += L)
+            DoubleVector.fromArray(S, b, bo + i).fma(sv, DoubleVector.fromArray(S, a, ao + i)).intoArray(a, ao + i);
+        super.axpy(a, ao + i, s, b, bo + i, len - i);
+    }
+
+    @Override
+    double dot(double[] a, int ao, double[] b, int bo, int len) {
+        int i = 0;
+        DoubleVector acc = DoubleVector.zero(S);
+        for (int n = S.loopBound(len); i < n; i += L)
+            acc = DoubleVector.fromArray(S, a, ao + i).fma(DoubleVector.fromArray(S, b, bo + i), acc);
+        return acc.reduceLanes(VectorOperators.ADD) + super.dot(a, ao + i, b, bo + i, len - i);
+    }
+
+    @Override
+    double sumOfSquares(double[] a, int ao, int len) {
+        int i = 0;
+        DoubleVector acc = DoubleVector.zero(S);
+        for (int n = S.loopBound(len); i < n; i += L) {
+            DoubleVector v = DoubleVector.fromArray(S, a, ao + i);
+            acc = v.fma(v, acc);
+        }
+        return acc.reduceLanes(VectorOperators.ADD) + super.sumOfSquares(a, ao + i, len - i);
+    }
+
+    /**
+     * vectorized versions of the common activation functions,
+     * everything else uses the bulk methods of the function.
+     * sigmoid and tanh stay scalar: the vector EXP and TANH round differently before and after
+     * the JIT compiles them, so training would depend on when that happens
+     * (Math.exp and Math.tanh give the same result in every tier)
+     */
+    @Override
+    void activate(ActivationFunction g, double[] src, double[] dst, int off, int len) {
+        int i = 0, n = S.loopBound(len);
+
+        if (g instanceof ReLU) {
+            for (; i < n; i += L)
+                DoubleVector.fromArray(S, src, off + i).max(0.).intoArray(dst, off + i);
+        } else if (g instanceof LeakyReLU) {
+            for (; i < n; i += L) {
+                DoubleVector v = DoubleVector.fromArray(S, src, off + i);
+                v.max(v.mul(LeakyReLU.ALPHA)).intoArray(dst, off + i);
+            }
+        } else if (g instanceof Heaviside) {
+            for (; i < n; i += L) {
+                VectorMask<Double> negative = DoubleVector.fromArray(S, src, off + i).compare(VectorOperators.LT, 0.);
+                DoubleVector.broadcast(S, 1.).blend(0., negative).intoArray(dst, off + i);
+            }
+        }
+
+        super.activate(g, src, dst, off + i, len - i);
+    }
+
+    @Override
+    void derive(ActivationFunction g, double[] src, double[] dst, int off, int len) {
+        int i = 0, n = S.loopBound(len);
+
+        if (g instanceof ReLU) {
+            for (; i < n; i += L) {
+                VectorMask<Double> positive = DoubleVector.fromArray(S, src, off + i).compare(VectorOperators.GE, 0.);
+                DoubleVector.zero(S).blend(1., positive).intoArray(dst, off + i);
+            }
+        } else if (g instanceof LeakyReLU) {
+            // z > 0 exactly if the output is > 0, so the same loop works on z
+            deriveFromOutput(g, src, dst, off, len);
+            return;
+        }
+
+        super.derive(g, src, dst, off + i, len - i);
+    }
+
+    @Override
+    void deriveFromOutput(ActivationFunction g, double[] src, double[] dst, int off, int len) {
+        int i = 0, n = S.loopBound(len);
+
+        if (g instanceof ReLU) {
+            for (; i < n; i += L) {
+                VectorMask<Double> positive = DoubleVector.fromArray(S, src, off + i).compare(VectorOperators.GT, 0.);
+                DoubleVector.zero(S).blend(1., positive).intoArray(dst, off + i);
+            }
+        } else if (g instanceof LeakyReLU) {
+            for (; i < n; i += L) {
+                VectorMask<Double> positive = DoubleVector.fromArray(S, src, off + i).compare(VectorOperators.GT, 0.);
+                DoubleVector.broadcast(S, LeakyReLU.ALPHA).blend(1., positive).intoArray(dst, off + i);
+            }
+        } else if (g instanceof Sigmoid) {
+            for (; i < n; i += L) {
+                DoubleVector a = DoubleVector.fromArray(S, src, off + i);
+                a.mul(a.neg().add(1.)).intoArray(dst, off + i);
+            }
+        } else if (g instanceof HyperbolicTangent) {
+            for (; i < n; i += L) {
+                DoubleVector a = DoubleVector.fromArray(S, src, off + i);
+                a.mul(a).neg().add(1.).intoArray(dst, off + i);
+            }
+        }
+
+        super.deriveFromOutput(g, src, dst, off + i, len - i);
+    }
+
+    /**
+     * register tiled micro kernel: a strip of four rows and L columns of c
+     * stays in four vector registers for the whole pass over kc,
+     * each step is one load of pb and four fused multiply adds
+     */
+    @Override
+    void gemmKernel(double[] pa, double[] pb, double[] cd, int c0, int cs, int mc, int nc, int kc) {
+        int i = 0, n = S.loopBound(nc);
+
+        for (; i + 3 < mc; i += 4) {
+            int r0 = c0 + i * cs,
+                    r1 = r0 + cs,
+                    r2 = r1 + cs,
+                    r3 = r2 + cs,
+                    a0 = i * kc,
+                    a1 = a0 + kc,
+                    a2 = a1 + kc,
+                    a3 = a2 + kc;
+
+            int j = 0;
+            for (; j < n; j += L) {
+                DoubleVector acc0 = DoubleVector.fromArray(S, cd, r0 + j),
+                        acc1 = DoubleVector.fromArray(S, cd, r1 + j),
+                        acc2 = DoubleVector.fromArray(S, cd, r2 + j),
+                        acc3 = DoubleVector.fromArray(S, cd, r3 + j);
+
+                for (int p = 0; p < kc; p++) {
+                    DoubleVector y = DoubleVector.fromArray(S, pb, p * nc + j);
+                    acc0 = DoubleVector.broadcast(S, pa[a0 + p]).fma(y, acc0);
+                    acc1 = DoubleVector.broadcast(S, pa[a1 + p]).fma(y, acc1);
+                    acc2 = DoubleVector.broadcast(S, pa[a2 + p]).fma(y, acc2);
+                    acc3 = DoubleVector.broadcast(S, pa[a3 + p]).fma(y, acc3);
+                }
+
+                acc0.intoArray(cd, r0 + j);
+                acc1.intoArray(cd, r1 + j);
+                acc2.intoArray(cd, r2 + j);
+                acc3.intoArray(cd, r3 + j);
+            }
+
+            // remaining columns
+            for (; j < nc; j++) {
+                double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+                for (int p = 0; p < kc; p++) {
+                    double y = pb[p * nc + j];
+                    s0 += pa[a0 + p] * y;
+                    s1 += pa[a1 + p] * y;
+                    s2 += pa[a2 + p] * y;
+                    s3 += pa[a3 + p] * y;
+                }
+                cd[r0 + j] += s0;
+                cd[r1 + j] += s1;
+                cd[r2 + j] += s2;
+                cd[r3 + j] += s3;
+            }
+        }
+
+        // remaining rows one at a time
+        for (; i < mc; i++) {
+            int cr = c0 + i * cs, ar = i * kc;
+
+            for (int p = 0; p < kc; p++)
+                axpy(cd, cr, pa[ar + p], pb, p * nc, nc);
+        }
+    }
+
+    /*
+     * single precision versions, with twice as many lanes per vector
+     */
+
+    @Override
+    void add(float[] a, int ao, float s, int len) {
+        int i = 0;
+        for (int n = F.loopBound(len); i < n; i += FL)
+            FloatVector.fromArray(F, a, ao + i).add(s).intoArray(a, ao + i);
+        super.add(a, ao + i, s, len - i);
+    }
+
+    @Override
+    void add(float[] a, int ao, float[] b, int bo, int len) {
+        int i = 0;
+        for (int n = F.loopBound(len); i < n; i += FL)
+            FloatVector.fromArray(F, a, ao + i).add(FloatVector.fromArray(F, b, bo + i)).intoArray(a, ao + i);
+        super.add(a, ao + i, b, bo + i, len - i);
+    }
+
+    @Override
+    void subtract(float[] a, int ao, float[] b, int bo, int len) {
+        int i = 0;
+        for (int n = F.loopBound(len); i < n; i += FL)
+            FloatVector.fromArray(F, a, ao + i).sub(FloatVector.fromArray(F, b, bo + i)).intoArray(a, ao + i);
+        super.subtract(a, ao + i, b, bo + i, len - i);
+    }
+
+    @Override
+    void multiply(float[] a, int ao, float s, int len) {
+        int i = 0;
+        for (int n = F.loopBound(len); i < n; i += FL)
+            FloatVector.fromArray(F, a, ao + i).mul(s).intoArray(a, ao + i);
+        super.multiply(a, ao + i, s, len - i);
+    }
+
+    @Override
+    void multiply(float[] a, int ao, float[] b, int bo, int len) {
+        int i = 0;
+        for (int n = F.loopBound(len); i < n; i += FL)
+            FloatVector.fromArray(F, a, ao + i).mul(FloatVector.fromArray(F, b, bo + i)).intoArray(a, ao + i);
+        super.multiply(a, ao + i, b, bo + i, len - i);
+    }
+
+    @Override
+    void axpy(float[] a, int ao, float s, float[] b, int bo, int len) {
+        int i = 0;
+        FloatVector sv = FloatVector.broadcast(F, s);
+        for (int n = F.loopBound(len); i < n; i += FL)
+            FloatVector.fromArray(F, b, bo + i).fma(sv, FloatVector.fromArray(F, a, ao + i)).intoArray(a, ao + i);
+        super.axpy(a, ao + i, s, b, bo + i, len - i);
+    }
+
+    @Override
+    float dot(float[] a, int ao, float[] b, int bo, int len) {
+        int i = 0;
+        FloatVector acc = FloatVector.zero(F);
+        for (int n = F.loopBound(len); i < n; i += FL)
+            acc = FloatVector.fromArray(F, a, ao + i).fma(FloatVector.fromArray(F, b, bo + i), acc);
+        return acc.reduceLanes(VectorOperators.ADD) + super.dot(a, ao + i, b, bo + i, len - i);
+    }
+
+    @Override
+    void activate(ActivationFunction g, float[] src, float[] dst, int off, int len) {
+        int i = 0, n = F.loopBound(len);
+
+        if (g instanceof ReLU) {
+            for (; i < n; i += FL)
+                FloatVector.fromArray(F, src, off + i).max(0f).intoArray(dst, off + i);
+        } else if (g instanceof LeakyReLU) {
+            for (; i < n; i += FL) {
+                FloatVector v = FloatVector.fromArray(F, src, off + i);
+                v.max(v.mul((float) LeakyReLU.ALPHA)).intoArray(dst, off + i);
+            }
+        }
+
+        super.activate(g, src, dst, off + i, len - i);
+    }
+
+    @Override
+    void deriveFromOutput(ActivationFunction g, float[] src, float[] dst, int off, int len) {
+        int i = 0, n = F.loopBound(len);
+
+        if (g instanceof ReLU) {
+            for (; i < n; i += FL) {
+                VectorMask<Float> positive = FloatVector.fromArray(F, src, off + i).compare(VectorOperators.GT, 0f);
+                FloatVector.zero(F).blend(1f, positive).intoArray(dst, off + i);
+            }
+        } else if (g instanceof LeakyReLU) {
+            for (; i < n; i += FL) {
+                VectorMask<Float> positive = FloatVector.fromArray(F, src, off + i).compare(VectorOperators.GT, 0f);
+                FloatVector.broadcast(F, (float) LeakyReLU.ALPHA).blend(1f, positive).intoArray(dst, off + i);
+            }
+        } else if (g instanceof Sigmoid) {
+            for (; i < n; i += FL) {
+                FloatVector a = FloatVector.fromArray(F, src, off + i);
+                a.mul(a.neg().add(1f)).intoArray(dst, off + i);
+            }
+        } else if (g instanceof HyperbolicTangent) {
+            for (; i < n; i += FL) {
+                FloatVector a = FloatVector.fromArray(F, src, off + i);
+                a.mul(a).neg().add(1f).intoArray(dst, off + i);
+            }
+        }
+
+        super.deriveFromOutput(g, src, dst, off + i, len - i);
+    }
+
+    /**
+     * single precision register tiled micro kernel: a strip of four rows and FL columns of c
+     * stays in four vector registers for the whole pass over kc,
+     * each step is one load of pb and four fused multiply adds
+     */
+    @Override
+    void gemmKernel(float[] pa, float[] pb, float[] cd, int c0, int cs, int mc, int nc, int kc) {
+        int i = 0, n = F.loopBound(nc);
+
+        for (; i + 3 < mc; i += 4) {
+            int r0 = c0 + i * cs,
+                    r1 = r0 + cs,
+                    r2 = r1 + cs,
+                    r3 = r2 + cs,
+                    a0 = i * kc,
+                    a1 = a0 + kc,
+                    a2 = a1 + kc,
+                    a3 = a2 + kc;
+
+            int j = 0;
+            for (; j < n; j += FL) {
+                FloatVector acc0 = FloatVector.fromArray(F, cd, r0 + j),
+                        acc1 = FloatVector.fromArray(F, cd, r1 + j),
+                        acc2 = FloatVector.fromArray(F, cd, r2 + j),
+                        acc3 = FloatVector.fromArray(F, cd, r3 + j);
+
+                for (int p = 0; p < kc; p++) {
+                    FloatVector y = FloatVector.fromArray(F, pb, p * nc + j);
+                    acc0 = FloatVector.broadcast(F, pa[a0 + p]).fma(y, acc0);
+                    acc1 = FloatVector.broadcast(F, pa[a1 + p]).fma(y, acc1);
+                    acc2 = FloatVector.broadcast(F, pa[a2 + p]).fma(y, acc2);
+                    acc3 = FloatVector.broadcast(F, pa[a3 + p]).fma(y, acc3);
+                }
+
+                acc0.intoArray(cd, r0 + j);
+                acc1.intoArray(cd, r1 + j);
+                acc2.intoArray(cd, r2 + j);
+                acc3.intoArray(cd, r3 + j);
+            }
+
+            // remaining columns
+            for (; j < nc; j++) {
+                float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+                for (int p = 0; p < kc; p++) {
+                    float y = pb[p * nc + j];
+                    s0 += pa[a0 + p] * y;
+                    s1 += pa[a1 + p] * y;
+                    s2 += pa[a2 + p] * y;
+                    s3 += pa[a3 + p] * y;
+                }
+                cd[r0 + j] += s0;
+                cd[r1 + j] += s1;
+                cd[r2 + j] += s2;
+                cd[r3 + j] += s3;
+            }
+        }
+
+        // remaining rows one at a time
+        for (; i < mc; i++) {
+            int cr = c0 + i * cs, ar = i * kc;
+
+            for (int p = 0; p < kc; p++)
+                axpy(cd, cr, pa[ar + p], pb, p * nc, nc);
+        }
+    }
+
+    /*
+     * int8 products, a quarter vector of bytes is widened to a full vector of ints,
+     * multiplied and added lane wise, the lanes are summed once per dot product
+     */
+
+    /**
+     * species of the int8 products, in their own class so they are only created on first use
+     * and hardware without a matching byte shape (128 bit vectors would need 32 bit of bytes)
+     * only falls back to the scalar int8 products, not to scalar kernels everywhere
+     */
+    private static final class Int8 {
+        static final VectorSpecies<Integer> I = IntVector.SPECIES_PREFERRED;
+
+        /**
+         * bytes that widen to one vector of I, null if there is no such shape
+         */
+        static final VectorSpecies<Byte> B = I.vectorBitSize() / 4 >= 64
+                ? VectorSpecies.of(byte.class, VectorShape.forBitSize(I.vectorBitSize() / 4)) : null;
+        static final int BL = B == null ? 0 : B.length();
+    }
+
+    @Override
+    void dotInt8(byte[] a, int ao, int as, byte[] b, int bo, int bs, double[] c, int co, int cs, int n, int m, int k) {
+        if (Int8.B == null) {
+            super.dotInt8(a, ao, as, b, bo, bs, c, co, cs, n, m, k);
+            return;
+        }
+
+        int i = 0, e = Int8.B.loopBound(k);
+
+        for (; i + 3 < n; i += 4) {
+            int a0 = ao + i * as,
+                    a1 = a0 + as,
+                    a2 = a1 + as,
+                    a3 = a2 + as,
+                    c0 = co + i * cs;
+
+            for (int r = 0; r < m; r++) {
+                int br = bo + r * bs, p = 0;
+                IntVector acc0 = IntVector.zero(Int8.I), acc1 = acc0, acc2 = acc0, acc3 = acc0;
+
+                for (; p < e; p += Int8.BL) {
+                    IntVector y = widen(b, br + p);
+                    acc0 = widen(a, a0 + p).mul(y).add(acc0);
+                    acc1 = widen(a, a1 + p).mul(y).add(acc1);
+                    acc2 = widen(a, a2 + p).mul(y).add(acc2);
+                    acc3 = widen(a, a3 + p).mul(y).add(acc3);
+                }
+
+                c[c0 + r] = acc0.reduceLanes(VectorOperators.ADD) + super.dot(a, a0 + p, b, br + p, k - p);
+                c[c0 + cs + r] = acc1.reduceLanes(VectorOperators.ADD) + super.dot(a, a1 + p, b, br + p, k - p);
+                c[c0 + 2 * cs + r] = acc2.reduceLanes(VectorOperators.ADD) + super.dot(a, a2 + p, b, br + p, k - p);
+                c[c0 + 3 * cs + r] = acc3.reduceLanes(VectorOperators.ADD) + super.dot(a, a3 + p, b, br + p, k - p);
+            }
+        }
+
+        for (; i < n; i++) {
+            int ar = ao + i * as, cr = co + i * cs;
+
+            for (int r = 0; r < m; r++)
+                c[cr + r] = dot(a, ar, b, bo + r * bs, k);
+        }
+    }
+
+    @Override
+    int dot(byte[] a, int ao, byte[] b, int bo, int len) {
+        if (Int8.B == null)
+            return super.dot(a, ao, b, bo, len);
+
+        int i = 0;
+        IntVector acc = IntVector.zero(Int8.I);
+        for (int n = Int8.B.loopBound(len); i < n; i += Int8.BL)
+            acc = widen(a, ao + i).mul(widen(b, bo + i)).add(acc);
+        return acc.reduceLanes(VectorOperators.ADD) + super.dot(a, ao + i, b, bo + i, len - i);
+    }
+
+    private static IntVector widen(byte[] a, int offset) {
+        return (IntVector) ByteVector.fromArray(Int8.B, a, offset).convertShape(VectorOperators.B2I, Int8.I, 0);
+    }
+}
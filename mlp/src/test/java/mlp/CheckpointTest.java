@@ -0,0 +1,168 @@
+package mlp;
+
+import mlp.activationfunction.ActivationFunctions;
+import mlp.data.Dataset;
+import mlp.optimizer.Adam;
+import mlp.optimizer.Optimizer;
+import mlp.optimizer.RMSProp;
+import mlp.optimizer.SGD;
+import mlp.training.Checkpointer;
+import mlp.training.StepMetrics;
+import mlp.training.TrainingListener;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * training resumed from a checkpoint ends with the same weights as training without a crash
+ */
+class CheckpointTest {
+    /**
+     * 16 batches per epoch
+     */
+    private static final Dataset DATA = MLP2Test.data(500, 10, 3, new Random(1));
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void resumeIsBitIdentical() throws IOException {
+        List<Supplier<Optimizer>> optimizers = List.of(() -> new SGD(0.9, true), RMSProp::new, () -> Adam.adamW(0.01));
+
+        int run = 0;
+        for (Supplier<Optimizer> optimizer : optimizers)
+            // first step, inside an epoch, last step of an epoch and first of the next
+            for (int crash : new int[]{1, 7, 16, 17}) {
+                Path dir = Files.createDirectory(directory.resolve("run" + run++));
+                resume(optimizer, crash, dir);
+            }
+    }
+
+    private static void resume(Supplier<Optimizer> optimizer, int crashStep, Path dir) throws IOException {
+        MLP2 original = new MLP2(new int[]{10, 8, 3}, ActivationFunctions.SIGMOID, ActivationFunctions.IDENTITY, 1e-2, 0.5);
+        original.optimizer = optimizer.get();
+        Checkpoint.save(original, dir.resolve("init.mlpc"));
+        MLP2 crashing = Checkpoint.load(dir.resolve("init.mlpc"));
+
+        original.fit(DATA, 32, 3);
+
+        crashing.addListener(new TrainingListener() {
+            @Override
+            public void stepEnd(MLP2 nn, StepMetrics step) {
+                if (nn.step != crashStep) return;
+                try {
+                    Checkpoint.save(nn, Checkpoint.path(dir, nn.step));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                throw new IllegalStateException("crash");
+            }
+        });
+        assertThrows(IllegalStateException.class, () -> crashing.fit(DATA, 32, 3));
+
+        MLP2 resumed = Checkpoint.loadLatest(dir);
+        assertNotNull(resumed);
+        assertEquals(crashStep, resumed.step);
+        resumed.fit(DATA, 32, 3 - resumed.epoch);
+
+        assertEquals(original.epoch, resumed.epoch);
+        assertEquals(original.batch, resumed.batch);
+        MLP2Test.assertSameWeights(original, resumed);
+    }
+
+    @Test
+    void resumingNeedsTheSameBatchSize() throws IOException {
+        MLP2 nn = new MLP2(new int[]{10, 8, 3}, ActivationFunctions.SIGMOID, ActivationFunctions.IDENTITY, 1e-2, 0.5);
+        nn.addListener(new TrainingListener() {
+            @Override
+            public void stepEnd(MLP2 nn, StepMetrics step) {
+                if (nn.step == 5)
+                    throw new IllegalStateException("crash");
+            }
+        });
+        assertThrows(IllegalStateException.class, () -> nn.fit(DATA, 32, 1));
+        Checkpoint.save(nn, directory.resolve("crash.mlpc"));
+
+        MLP2 resumed = Checkpoint.load(directory.resolve("crash.mlpc"));
+        assertEquals(5, resumed.batch);
+        assertEquals(32, resumed.batchSize);
+        assertThrows(IllegalArgumentException.class, () -> resumed.fit(DATA, 16, 1));
+
+        // finished epochs continue with any batch size
+        resumed.fit(DATA, 32, 1);
+        resumed.fit(DATA, 16, 1);
+        assertEquals(2, resumed.epoch);
+    }
+
+    @Test
+    void version1CheckpointsAreRead() throws IOException {
+        MLP2 nn = new MLP2(new int[]{10, 8, 3}, ActivationFunctions.SIGMOID, ActivationFunctions.IDENTITY, 1e-2, 0.5);
+        nn.fit(DATA, 32, 1);
+
+        // version 1 is version 2 without the batch size after magic, version, epoch and batch
+        ByteBuffer v2 = Checkpoint.snapshot(nn);
+        ByteBuffer v1 = ByteBuffer.allocate(v2.remaining() - Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        v1.put(v2.duplicate().limit(16)).put(v2.duplicate().position(20).limit(v2.limit() - 4));
+        v1.putInt(4, 1);
+        CRC32 crc = new CRC32();
+        crc.update(v1.duplicate().flip());
+        v1.putInt((int) crc.getValue());
+        Files.write(directory.resolve("v1.mlpc"), v1.array());
+
+        MLP2 loaded = Checkpoint.load(directory.resolve("v1.mlpc"));
+        assertEquals(0, loaded.batchSize);
+        assertEquals(nn.epoch, loaded.epoch);
+        MLP2Test.assertSameWeights(nn, loaded);
+    }
+
+    @Test
+    void checkpointsOfAnEarlierRunAreOlder() throws IOException {
+        MLP2 stale = new MLP2(new int[]{10, 8, 3}, ActivationFunctions.SIGMOID, ActivationFunctions.IDENTITY, 1e-2, 0.5);
+        stale.step = 5000;
+        Path stalePath = Checkpoint.path(directory, 5000);
+        Checkpoint.save(stale, stalePath);
+        Files.setLastModifiedTime(stalePath, FileTime.fromMillis(System.currentTimeMillis() - 86_400_000L));
+
+        MLP2 nn = new MLP2(new int[]{10, 8, 3}, ActivationFunctions.SIGMOID, ActivationFunctions.IDENTITY, 1e-2, 0.5);
+        try (Checkpointer checkpointer = new Checkpointer(directory, 4, 0, true, 2)) {
+            nn.addListener(checkpointer);
+            nn.fit(DATA, 32, 2);
+        }
+
+        assertEquals(nn.step, Checkpoint.loadLatest(directory).step);
+        assertFalse(Files.exists(stalePath), "the stale checkpoint is the oldest and deleted first");
+    }
+
+    @Test
+    void corruptedCheckpointsAreSkipped() throws IOException {
+        MLP2 nn = new MLP2(new int[]{10, 8, 3}, ActivationFunctions.SIGMOID, ActivationFunctions.IDENTITY, 1e-2, 0.5);
+        nn.fit(DATA, 32, 1);
+        Checkpoint.save(nn, Checkpoint.path(directory, nn.step));
+        nn.fit(DATA, 32, 1);
+        Path newest = Checkpoint.path(directory, nn.step);
+        Checkpoint.save(nn, newest);
+
+        byte[] bytes = Files.readAllBytes(newest);
+        Files.write(newest, Arrays.copyOf(bytes, bytes.length - 7));
+
+        assertThrows(IOException.class, () -> Checkpoint.load(newest));
+        assertEquals(16, Checkpoint.loadLatest(directory).step);
+    }
+}
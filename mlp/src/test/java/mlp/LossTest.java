@@ -0,0 +1,91 @@
+package mlp;
+
+import mlp.matrix.Matrix;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * softmax cross entropy: the delta is the gradient of the loss with respect to the logits
+ */
+class LossTest {
+    private static final double H = 1e-6;
+
+    private final Random random = new Random(7);
+
+    @Test
+    void gradientMatchesFiniteDifferences() {
+        Matrix logits = random(5, 4, 3), targets = new Matrix(5, 4);
+        for (int j = 0; j < 4; j++)
+            targets.set(random.nextInt(5), j, 1);
+
+        assertGradient(logits, targets);
+    }
+
+    @Test
+    void gradientMatchesFiniteDifferencesForSoftTargets() {
+        Matrix logits = random(6, 3, 3), targets = new Matrix(6, 3);
+        for (int j = 0; j < 3; j++) {
+            double[] p = Loss.softmax(random.doubles(6).toArray());
+            for (int i = 0; i < 6; i++)
+                targets.set(i, j, p[i]);
+        }
+
+        assertGradient(logits, targets);
+    }
+
+    @Test
+    void largeLogitsDoNotOverflow() {
+        Matrix logits = new Matrix(new double[][]{{1000}, {-1000}, {999}}), targets = new Matrix(new double[][]{{0}, {0}, {1}});
+        Matrix delta = new Matrix(3, 1);
+
+        double loss = logits.softmaxCrossEntropy(targets, delta, new double[1], new double[1]);
+
+        assertEquals(Math.log(1 + Math.exp(1)), loss, 1e-12);
+        assertTrue(delta.isFinite());
+    }
+
+    @Test
+    void softmaxSumsToOne() {
+        double[] p = Loss.softmax(new double[]{3, -2, 700, 0.5});
+
+        double sum = 0;
+        for (double x : p)
+            sum += x;
+        assertEquals(1, sum, 1e-15);
+    }
+
+    /**
+     * central differences of the loss summed over the batch, one logit at a time
+     */
+    private static void assertGradient(Matrix logits, Matrix targets) {
+        int rows = logits.rows, cols = logits.cols;
+        Matrix delta = new Matrix(rows, cols), scratch = new Matrix(rows, cols);
+        double[] max = new double[cols], sum = new double[cols];
+
+        logits.softmaxCrossEntropy(targets, delta, max, sum);
+
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++) {
+                double x = logits.get(i, j);
+                logits.set(i, j, x + H);
+                double plus = logits.softmaxCrossEntropy(targets, scratch, max, sum);
+                logits.set(i, j, x - H);
+                double minus = logits.softmaxCrossEntropy(targets, scratch, max, sum);
+                logits.set(i, j, x);
+
+                assertEquals((plus - minus) / (2 * H), delta.get(i, j), 1e-7, "at " + i + ", " + j);
+            }
+    }
+
+    private Matrix random(int rows, int cols, double range) {
+        Matrix m = new Matrix(rows, cols);
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                m.set(i, j, (random.nextDouble() * 2 - 1) * range);
+        return m;
+    }
+}
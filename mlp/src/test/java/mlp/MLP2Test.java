@@ -0,0 +1,114 @@
+package mlp;
+
+import mlp.activationfunction.ActivationFunctions;
+import mlp.data.ArrayDataset;
+import mlp.data.Dataset;
+import mlp.optimizer.Adam;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * data parallel training: sharded batches give the same result however the shards are scheduled
+ */
+class MLP2Test {
+    /**
+     * 300 samples, batches of 32 and a short last batch of 12
+     */
+    private static final Dataset DATA = data(300, 10, 3, new Random(1));
+
+    @Test
+    void shardedTrainingIsDeterministic() {
+        MLP2 a = network(), b = copy(a);
+
+        try (a; b) {
+            a.setParallelism(3);
+            b.setParallelism(3);
+            a.fit(DATA, 32, 3);
+            b.fit(DATA, 32, 3);
+        }
+
+        assertSameWeights(a, b);
+    }
+
+    @Test
+    void ownAndCallerPoolsGiveTheSameResult() {
+        MLP2 a = network(), b = copy(a);
+        ForkJoinPool pool = new ForkJoinPool(2);
+
+        try (a) {
+            a.setParallelism(3);
+            b.setParallelism(3, pool);
+            a.fit(DATA, 32, 2);
+            b.fit(DATA, 32, 2);
+        } finally {
+            pool.shutdown();
+        }
+
+        assertSameWeights(a, b);
+    }
+
+    @Test
+    void shardedTrainingMatchesSingleThreaded() {
+        MLP2 a = network(), b = copy(a);
+
+        try (b) {
+            b.setParallelism(4);
+            a.fit(DATA, 32, 1);
+            b.fit(DATA, 32, 1);
+        }
+
+        // the shard gradients are summed in another order
+        for (int i = 0; i < a.weight.length; i++) {
+            assertArrayEquals(a.weight[i].data, b.weight[i].data, 1e-9);
+            assertArrayEquals(a.bias[i].data, b.bias[i].data, 1e-9);
+        }
+    }
+
+    @Test
+    void parallelismMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> network().setParallelism(0));
+    }
+
+    static Dataset data(int samples, int inputs, int classes, Random random) {
+        double[][] in = new double[samples][inputs], out = new double[samples][classes];
+        for (int i = 0; i < samples; i++) {
+            for (int j = 0; j < inputs; j++)
+                in[i][j] = random.nextDouble();
+            out[i][i % classes] = 1;
+        }
+        return new ArrayDataset(in, out);
+    }
+
+    private static MLP2 network() {
+        MLP2 nn = new MLP2(new int[]{10, 16, 8, 3}, ActivationFunctions.SIGMOID, ActivationFunctions.IDENTITY, 1e-2, 1e-2);
+        nn.optimizer = new Adam();
+        return nn;
+    }
+
+    /**
+     * same weights, sample order and optimizer configuration
+     */
+    private static MLP2 copy(MLP2 nn) {
+        MLP2 copy = network();
+        for (int i = 0; i < nn.weight.length; i++) {
+            copy.weight[i].set(nn.weight[i]);
+            copy.bias[i].set(nn.bias[i]);
+        }
+        copy.seed = nn.seed;
+        return copy;
+    }
+
+    static void assertSameWeights(MLP2 expected, MLP2 actual) {
+        assertEquals(expected.step, actual.step);
+        for (int i = 0; i < expected.weight.length; i++) {
+            assertArrayEquals(expected.weight[i].data, actual.weight[i].data, "weights of layer " + i);
+            assertArrayEquals(expected.bias[i].data, actual.bias[i].data, "biases of layer " + i);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package mlp;
+
+import mlp.activationfunction.ActivationFunctions;
+import mlp.matrix.Arena;
+import mlp.optimizer.Adam;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * saving and loading networks as model files
+ */
+class ModelFileTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripKeepsWeightsAndConfiguration() throws IOException {
+        MLP2 nn = trained();
+        Path path = directory.resolve("nn.bin");
+        ModelFile.save(nn, path);
+
+        MLP2 loaded = ModelFile.load(path);
+
+        assertArrayEquals(nn.layerStructure, loaded.layerStructure);
+        assertSame(nn.activationFunction, loaded.activationFunction);
+        assertSame(nn.outputActivationFunction, loaded.outputActivationFunction);
+        assertEquals(nn.learningRate, loaded.learningRate);
+        assertEquals(nn.biasLearningRate, loaded.biasLearningRate);
+        assertSame(Loss.SOFTMAX_CROSS_ENTROPY, loaded.lossFunction);
+        assertSame(Precision.DOUBLE, loaded.precision);
+        for (int i = 0; i < nn.weight.length; i++) {
+            assertArrayEquals(nn.weight[i].data, loaded.weight[i].data);
+            assertArrayEquals(nn.bias[i].data, loaded.bias[i].data);
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of(path), files.collect(Collectors.toList()), "temporary file left");
+        }
+    }
+
+    @Test
+    void floatFilesKeepFloatWeights() throws IOException {
+        MLP2 nn = trained();
+        nn.precision = Precision.FLOAT;
+        Path path = directory.resolve("nn.bin");
+        ModelFile.save(nn, path);
+
+        MLP2 loaded = ModelFile.load(path);
+
+        assertSame(Precision.FLOAT, loaded.precision);
+        for (int i = 0; i < nn.weight.length; i++)
+            for (int j = 0; j < nn.weight[i].data.length; j++)
+                assertEquals((float) nn.weight[i].data[j], loaded.weight[i].data[j]);
+    }
+
+    @Test
+    void inferenceModelsPredictLikeTheNetwork() throws IOException {
+        MLP2 nn = trained();
+        Path path = directory.resolve("nn.bin");
+        ModelFile.save(nn, path);
+
+        double[] in = new Random(3).doubles(10).toArray(), expected = new double[3], out = new double[3];
+        nn.exportInferenceModel().predict(in, expected);
+
+        ModelFile.loadInferenceModel(path).predict(in, out);
+        assertArrayEquals(expected, out, 1e-12);
+
+        try (Arena arena = new Arena()) {
+            ModelFile.loadInferenceModel(path, arena).predict(in, out);
+            assertArrayEquals(expected, out, 1e-12);
+        }
+    }
+
+    @Test
+    void corruptedFilesAreRejected() throws IOException {
+        Path path = directory.resolve("nn.bin");
+        ModelFile.save(trained(), path);
+
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(path, bytes);
+
+        assertThrows(IOException.class, () -> ModelFile.load(path));
+    }
+
+    private static MLP2 trained() {
+        MLP2 nn = new MLP2(new int[]{10, 12, 3}, ActivationFunctions.HYPERBOLIC_TANGENT, ActivationFunctions.IDENTITY, 1e-2, 1e-2);
+        nn.lossFunction = Loss.SOFTMAX_CROSS_ENTROPY;
+        nn.optimizer = new Adam();
+        nn.fit(MLP2Test.data(100, 10, 3, new Random(2)), 16, 2);
+        return nn;
+    }
+}
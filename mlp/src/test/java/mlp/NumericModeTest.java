@@ -0,0 +1,114 @@
+package mlp;
+
+import mlp.activationfunction.ActivationFunctions;
+import mlp.data.ArrayDataset;
+import mlp.data.Dataset;
+import mlp.optimizer.Adam;
+import mlp.optimizer.Optimizer;
+import mlp.optimizer.RMSProp;
+import mlp.optimizer.SGD;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * steps with finite gradients whose update overflows the parameters
+ */
+class NumericModeTest {
+    private static final List<Supplier<Optimizer>> OPTIMIZERS =
+            List.of(SGD::new, () -> new SGD(0.9, true), RMSProp::new, Adam::new);
+
+    /**
+     * inputs around 1000, so the gradients are large but finite
+     */
+    private static final Dataset DATA = data(new Random(1));
+
+    @Test
+    void rollbackUndoesOverflowingSteps() {
+        for (Supplier<Optimizer> optimizer : OPTIMIZERS) {
+            MLP2 nn = network(optimizer.get(), NumericMode.ROLLBACK), before = copy(nn);
+
+            nn.fit(DATA, 10, 1);
+            assertSameParameters(before, nn);
+            assertEquals(0, nn.optimizer.steps(), nn.optimizer.name());
+
+            // the network and the optimizer state are still usable
+            nn.learningRate = nn.biasLearningRate = 1e-9;
+            nn.fit(DATA, 10, 1);
+            assertEquals(DATA.size() / 10, nn.optimizer.steps(), nn.optimizer.name());
+            assertFinite(nn);
+            assertFalse(nn.weight[0].data[0] == before.weight[0].data[0], "no step was taken");
+        }
+    }
+
+    @Test
+    void failThrowsAndLeavesTheNetworkUnchanged() {
+        for (Supplier<Optimizer> optimizer : OPTIMIZERS) {
+            MLP2 nn = network(optimizer.get(), NumericMode.FAIL), before = copy(nn);
+
+            assertThrows(ArithmeticException.class, () -> nn.fit(DATA, 10, 1));
+            assertSameParameters(before, nn);
+            assertEquals(0, nn.optimizer.steps(), nn.optimizer.name());
+        }
+    }
+
+    @Test
+    void clampKeepsTheParametersFinite() {
+        for (Supplier<Optimizer> optimizer : OPTIMIZERS) {
+            MLP2 nn = network(optimizer.get(), NumericMode.CLAMP);
+
+            nn.fit(DATA, 10, 1);
+            assertFinite(nn);
+        }
+    }
+
+    private static Dataset data(Random random) {
+        double[][] in = new double[50][4], out = new double[50][2];
+        for (int i = 0; i < in.length; i++) {
+            for (int j = 0; j < 4; j++)
+                in[i][j] = 1000 * random.nextDouble();
+            out[i][i % 2] = 1;
+        }
+        return new ArrayDataset(in, out);
+    }
+
+    /**
+     * one linear layer, the largest learning rate overflows every update
+     */
+    private static MLP2 network(Optimizer optimizer, NumericMode mode) {
+        MLP2 nn = new MLP2(new int[]{4, 2}, ActivationFunctions.IDENTITY, ActivationFunctions.IDENTITY,
+                Double.MAX_VALUE, Double.MAX_VALUE);
+        nn.optimizer = optimizer;
+        nn.numericMode = mode;
+        return nn;
+    }
+
+    private static MLP2 copy(MLP2 nn) {
+        MLP2 copy = network(new SGD(), nn.numericMode);
+        for (int i = 0; i < nn.weight.length; i++) {
+            copy.weight[i].set(nn.weight[i]);
+            copy.bias[i].set(nn.bias[i]);
+        }
+        return copy;
+    }
+
+    private static void assertSameParameters(MLP2 expected, MLP2 actual) {
+        for (int i = 0; i < expected.weight.length; i++) {
+            assertArrayEquals(expected.weight[i].data, actual.weight[i].data, actual.optimizer.name());
+            assertArrayEquals(expected.bias[i].data, actual.bias[i].data, actual.optimizer.name());
+        }
+    }
+
+    private static void assertFinite(MLP2 nn) {
+        for (int i = 0; i < nn.weight.length; i++)
+            assertTrue(nn.weight[i].isFinite() && nn.bias[i].isFinite(), nn.optimizer.name());
+    }
+}
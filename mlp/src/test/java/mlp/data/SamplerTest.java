@@ -0,0 +1,130 @@
+package mlp.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * sample orders: reproducible for a seed, independent between epochs
+ */
+class SamplerTest {
+    @Test
+    void epochsGetIndependentStreams() {
+        for (long seed : new long[]{0, 1, -1, 42}) {
+            // the next epoch must not be the same stream shifted by a few values
+            long[] first = Sampler.random(seed, 0).longs(64).toArray();
+            long[] second = Sampler.random(seed, 1).longs(64).toArray();
+
+            for (int shift = 0; shift < 32; shift++)
+                assertFalse(Arrays.equals(Arrays.copyOfRange(first, shift, shift + 32), Arrays.copyOfRange(second, 0, 32)),
+                        "epoch 1 is epoch 0 shifted by " + shift + " for seed " + seed);
+        }
+    }
+
+    @Test
+    void differentEpochsGiveDifferentPermutations() {
+        Sampler sampler = new RandomSampler(1000, 0);
+        int[][] orders = new int[5][1000];
+        for (int e = 0; e < orders.length; e++) {
+            sampler.order(e, orders[e]);
+            assertPermutation(orders[e]);
+        }
+
+        for (int a = 0; a < orders.length; a++)
+            for (int b = a + 1; b < orders.length; b++) {
+                // about one position of 1000 agrees by chance, not hundreds
+                assertTrue(agreeing(orders[a], orders[b]) < 20, "epochs " + a + " and " + b);
+            }
+    }
+
+    @Test
+    void sameSeedGivesSamePermutation() {
+        int[] labels = labels(new int[]{500, 300, 200});
+        Sampler[][] samplers = {
+                {new RandomSampler(1000, 7), new RandomSampler(1000, 7), new RandomSampler(1000, 8)},
+                {new StratifiedSampler(labels, 7), new StratifiedSampler(labels, 7), new StratifiedSampler(labels, 8)},
+                {new WeightedSampler(new double[]{1, 2, 3, 4}, 1000, 7), new WeightedSampler(new double[]{1, 2, 3, 4}, 1000, 7),
+                        new WeightedSampler(new double[]{1, 2, 3, 4}, 1000, 8)}
+        };
+
+        for (Sampler[] s : samplers) {
+            int[] a = new int[s[0].size()], b = new int[s[1].size()], other = new int[s[2].size()];
+            s[0].order(3, a);
+            s[1].order(3, b);
+            s[2].order(3, other);
+
+            assertArrayEquals(a, b);
+            assertFalse(Arrays.equals(a, other));
+        }
+    }
+
+    @Test
+    void stratifiedBatchesFollowClassProportions() {
+        int[] counts = {500, 300, 200}, labels = labels(counts);
+        Sampler sampler = new StratifiedSampler(labels, 3);
+        int[] order = new int[labels.length];
+
+        for (int epoch = 0; epoch < 3; epoch++) {
+            sampler.order(epoch, order);
+            assertPermutation(order);
+
+            // batches of 20: 10, 6 and 4 samples of the classes, give or take one
+            for (int from = 0; from < order.length; from += 20) {
+                int[] batch = new int[counts.length];
+                for (int i = from; i < from + 20; i++)
+                    batch[labels[order[i]]]++;
+
+                for (int c = 0; c < counts.length; c++)
+                    assertEquals(counts[c] * 20 / labels.length, batch[c], 1, "class " + c + " in batch at " + from);
+            }
+        }
+    }
+
+    @Test
+    void weightedSamplerDrawsInProportionToWeights() {
+        Sampler sampler = new WeightedSampler(new double[]{1, 0, 3}, 40000, 5);
+        int[] order = new int[sampler.size()], drawn = new int[3];
+        sampler.order(0, order);
+        for (int i : order)
+            drawn[i]++;
+
+        assertEquals(0, drawn[1]);
+        assertEquals(10000, drawn[0], 400);
+        assertEquals(30000, drawn[2], 400);
+
+        int[] next = new int[sampler.size()];
+        sampler.order(1, next);
+        assertNotEquals(Arrays.toString(order), Arrays.toString(next));
+    }
+
+    /**
+     * labels of the samples of every class, class after class
+     */
+    private static int[] labels(int[] counts) {
+        int[] labels = new int[Arrays.stream(counts).sum()];
+        for (int c = 0, i = 0; c < counts.length; c++)
+            for (int k = 0; k < counts[c]; k++)
+                labels[i++] = c;
+        return labels;
+    }
+
+    private static void assertPermutation(int[] order) {
+        int[] sorted = order.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length; i++)
+            assertEquals(i, sorted[i]);
+    }
+
+    private static int agreeing(int[] a, int[] b) {
+        int n = 0;
+        for (int i = 0; i < a.length; i++)
+            if (a[i] == b[i]) n++;
+        return n;
+    }
+}
@@ -0,0 +1,122 @@
+package mlp.matrix;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * the blocked matrix products against the naive triple loop
+ */
+class GemmTest {
+    /**
+     * m, k, n: small, not a multiple of the micro kernel, across MC, KC and NC, vector times matrix
+     */
+    private static final int[][] SHAPES = {
+            {1, 1, 1}, {3, 5, 7}, {17, 9, 33}, {65, 257, 513}, {130, 300, 1}, {1, 300, 600}
+    };
+
+    private final Random random = new Random(42);
+
+    @Test
+    void dotEqualsNaiveLoop() {
+        for (int[] s : SHAPES) {
+            Matrix a = random(s[0], s[1]), b = random(s[1], s[2]);
+            assertClose(naive(a, b), Matrix.dot(a, b), s[1]);
+        }
+    }
+
+    @Test
+    void transposedProductsEqualNaiveLoop() {
+        for (int[] s : SHAPES) {
+            Matrix a = random(s[0], s[1]), b = random(s[1], s[2]);
+            Matrix at = Matrix.transpose(a), bt = Matrix.transpose(b);
+            Matrix expected = naive(a, b);
+
+            assertClose(expected, Matrix.dotTransA(at, b), s[1]);
+            assertClose(expected, Matrix.dotTransB(a, bt), s[1]);
+        }
+    }
+
+    @Test
+    void accumulateAddsToDestination() {
+        Matrix a = random(70, 260), b = random(260, 40), c = random(70, 40);
+        Matrix expected = naive(a, b).add(c);
+
+        assertClose(expected, Matrix.dot(a, b, c, true), 260);
+    }
+
+    @Test
+    void viewsWithStride() {
+        Matrix big = random(100, 300);
+        Matrix a = big.view(3, 5, 67, 260), b = big.view(20, 17, 80, 90);
+        Matrix b2 = random(260, 90);
+
+        assertClose(naive(a, b2), Matrix.dot(a, b2), 260);
+        assertClose(naive(a.view(0, 0, 67, 80), b), Matrix.dot(a.view(0, 0, 67, 80), b), 80);
+    }
+
+    @Test
+    void offHeapOperandsEqualHeap() {
+        try (Arena arena = new Arena()) {
+            for (int[] s : SHAPES) {
+                Matrix a = random(s[0], s[1]), b = random(s[1], s[2]);
+                OffHeapMatrix offA = arena.copyOf(a), offBt = arena.copyOf(Matrix.transpose(b));
+                Matrix expected = naive(a, b);
+
+                assertClose(expected, Matrix.dot(offA, b, new Matrix(s[0], s[2]), false), s[1]);
+                assertClose(expected, Matrix.dotTransB(a, offBt, new Matrix(s[0], s[2]), false), s[1]);
+            }
+        }
+    }
+
+    @Test
+    void closedArenaThrows() {
+        Arena arena = new Arena();
+        OffHeapMatrix a = arena.copyOf(random(4, 4));
+        arena.close();
+
+        assertThrows(IllegalStateException.class, () -> Matrix.dot(a, random(4, 4), new Matrix(4, 4), false));
+        assertThrows(IllegalStateException.class, () -> a.get(0, 0));
+    }
+
+    @Test
+    void shapeMismatchThrows() {
+        assertThrows(ShapeMismatchException.class, () -> Matrix.dot(random(3, 4), random(5, 6)));
+        assertThrows(ShapeMismatchException.class, () -> Matrix.dot(random(3, 4), random(4, 6), new Matrix(3, 5), false));
+    }
+
+    private Matrix random(int rows, int cols) {
+        Matrix m = new Matrix(rows, cols);
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                m.set(i, j, random.nextDouble() * 2 - 1);
+        return m;
+    }
+
+    private static Matrix naive(Matrix a, Matrix b) {
+        Matrix c = new Matrix(a.rows, b.cols);
+        for (int i = 0; i < a.rows; i++)
+            for (int j = 0; j < b.cols; j++) {
+                double sum = 0;
+                for (int p = 0; p < a.cols; p++)
+                    sum += a.get(i, p) * b.get(p, j);
+                c.set(i, j, sum);
+            }
+        return c;
+    }
+
+    /**
+     * the blocked products sum in a different order, the error grows with the length k of the sums
+     */
+    private static void assertClose(Matrix expected, Matrix actual, int k) {
+        assertEquals(expected.rows, actual.rows);
+        assertEquals(expected.cols, actual.cols);
+
+        for (int i = 0; i < expected.rows; i++)
+            for (int j = 0; j < expected.cols; j++)
+                assertEquals(expected.get(i, j), actual.get(i, j), 1e-14 * k + 1e-15, "at " + i + ", " + j);
+    }
+}
@@ -0,0 +1,103 @@
+package mlp.quantization;
+
+import mlp.MLP2;
+import mlp.activationfunction.ActivationFunctions;
+import mlp.data.ArrayDataset;
+import mlp.data.Dataset;
+import mlp.matrix.Int8Matrix;
+import mlp.matrix.Matrix;
+import mlp.optimizer.Adam;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * error bounds of int8 quantization
+ */
+class QuantizerTest {
+    private final Random random = new Random(11);
+
+    @Test
+    void weightsAreOffByAtMostHalfAStep() {
+        Matrix m = new Matrix(9, 300);
+        for (int i = 0; i < m.rows; i++)
+            for (int j = 0; j < m.cols; j++)
+                m.set(i, j, random.nextGaussian() * (i + 1));
+        m.row(4).fill(0);
+
+        Int8Matrix q = Int8Matrix.quantize(m);
+        Matrix d = q.dequantize();
+
+        for (int i = 0; i < m.rows; i++) {
+            int largest = 0;
+            for (int j = 0; j < m.cols; j++) {
+                assertEquals(m.get(i, j), d.get(i, j), q.scale[i] / 2 * (1 + 1e-12), "at " + i + ", " + j);
+                largest = Math.max(largest, Math.abs(q.data[i * m.cols + j]));
+            }
+            // every row uses the whole range, except the zero row
+            assertEquals(i == 4 ? 0 : 127, largest);
+        }
+    }
+
+    @Test
+    void int8ProductIsExact() {
+        // longer than any vector and not a multiple of one
+        int n = 5, rows = 7, cols = 1003, zeroPoint = -37;
+        byte[] x = new byte[n * cols], w = new byte[rows * cols];
+        random.nextBytes(x);
+        random.nextBytes(w);
+        // the extremes, where 8 bit products overflow 16 bits when summed pairwise
+        x[0] = -128;
+        w[0] = -128;
+        double[] scale = random.doubles(rows).toArray();
+        double xScale = 0.013;
+
+        Matrix dest = new Int8Matrix(w, rows, cols, scale).dotTransB(x, n, xScale, zeroPoint, new Matrix(n, rows));
+
+        for (int i = 0; i < n; i++)
+            for (int r = 0; r < rows; r++) {
+                long dot = 0, rowSum = 0;
+                for (int p = 0; p < cols; p++) {
+                    dot += x[i * cols + p] * w[r * cols + p];
+                    rowSum += w[r * cols + p];
+                }
+                assertEquals((dot - (double) zeroPoint * rowSum) * xScale * scale[r], dest.get(i, r), 0, "at " + i + ", " + r);
+            }
+    }
+
+    @Test
+    void quantizedModelStaysCloseToTheNetwork() {
+        Dataset data = clusters(600, 20, 4);
+        MLP2 nn = new MLP2(new int[]{20, 32, 16, 4}, ActivationFunctions.SIGMOID, ActivationFunctions.SIGMOID, 1e-2, 1e-2);
+        nn.optimizer = new Adam();
+        nn.fit(data, 32, 20);
+
+        QuantizedModel quantized = Quantizer.quantize(nn, data, 200);
+        QuantizationReport report = QuantizationReport.compare(nn.exportInferenceModel(), quantized, data);
+
+        assertTrue(report.maxError < 0.05, report.toString());
+        assertTrue(report.meanError < 0.002, report.toString());
+        assertTrue(report.agreement >= 0.98, report.toString());
+    }
+
+    /**
+     * samples around one center per class
+     */
+    private Dataset clusters(int samples, int inputs, int classes) {
+        double[][] centers = new double[classes][inputs];
+        for (double[] c : centers)
+            for (int j = 0; j < inputs; j++)
+                c[j] = random.nextDouble();
+
+        double[][] in = new double[samples][inputs], out = new double[samples][classes];
+        for (int i = 0; i < samples; i++) {
+            for (int j = 0; j < inputs; j++)
+                in[i][j] = centers[i % classes][j] + random.nextGaussian() * 0.2;
+            out[i][i % classes] = 1;
+        }
+        return new ArrayDataset(in, out);
+    }
+}
@@ -0,0 +1,171 @@
+package mlp.serving;
+
+import mlp.InferenceModel;
+import mlp.MLP2;
+import mlp.Predictor;
+import mlp.activationfunction.ActivationFunctions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * the server on a loopback port, with and without micro batching
+ */
+class InferenceServerTest {
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+    private static final InferenceModel MODEL = new InferenceModel(
+            new MLP2(new int[]{4, 8, 3}, ActivationFunctions.SIGMOID, ActivationFunctions.IDENTITY, 1e-2, 0.5));
+
+    @Test
+    void predictAnswersTheModelOutput() throws Exception {
+        for (int maxBatch : new int[]{1, 8})
+            try (InferenceServer server = new InferenceServer(MODEL, 0, maxBatch, 1000, 16)) {
+                double[] in = {0.1, -0.2, 0.3, 0.4}, expected = new double[3];
+                MODEL.predict(in, expected);
+
+                HttpResponse<String> response = post(server, InferenceServer.toJson(in)).join();
+                assertEquals(200, response.statusCode());
+                assertEquals("application/json", response.headers().firstValue("Content-Type").orElse(null));
+                assertArrayEquals(expected, InferenceServer.parseArray(response.body()), 1e-12);
+            }
+    }
+
+    @Test
+    void badInputsAnswer400Or413() throws Exception {
+        try (InferenceServer server = new InferenceServer(MODEL, 0, 8, 1000, 16)) {
+            assertEquals(400, post(server, "[1,2,3]").join().statusCode());
+            assertEquals(400, post(server, "[1,2,3,4,5]").join().statusCode());
+            for (String number : new String[]{"NaN", "Infinity", "0x1p3", "1d", "1e400", "+1", ".5", "01", ""})
+                assertEquals(400, post(server, "[1,2,3," + number + "]").join().statusCode(), number);
+
+            // larger than the limit of 1024 + 64 bytes per value, with a length and chunked
+            String large = "[" + " ".repeat(4096) + "1,2,3,4]";
+            assertEquals(413, post(server, large).join().statusCode());
+            HttpRequest chunked = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + "/predict"))
+                    .POST(HttpRequest.BodyPublishers.ofInputStream(() -> new ByteArrayInputStream(large.getBytes(StandardCharsets.UTF_8))))
+                    .build();
+            assertEquals(413, CLIENT.send(chunked, HttpResponse.BodyHandlers.ofString()).statusCode());
+            assertEquals(200, post(server, "[ 1, -0.5e-3 ,2E+2,0 ]").join().statusCode());
+        }
+    }
+
+    @Test
+    void fullQueueAnswers503() throws Exception {
+        // batched: one request in the model, one in the queue of capacity 1, the third is rejected
+        Blocking model = new Blocking();
+        try (InferenceServer server = new InferenceServer(model, 0, 2, 0, 1)) {
+            CompletableFuture<HttpResponse<String>> first = post(server, "[1,2,3,4]");
+            model.entered.await();
+            CompletableFuture<HttpResponse<String>> second = post(server, "[1,2,3,4]");
+            while (server.batcher.queued() == 0)
+                Thread.sleep(1);
+
+            assertEquals(503, post(server, "[1,2,3,4]").join().statusCode());
+            model.release.countDown();
+            assertEquals(200, first.join().statusCode());
+            assertEquals(200, second.join().statusCode());
+        }
+
+        // unbatched: at most queueCapacity requests predict at once
+        model = new Blocking();
+        try (InferenceServer server = new InferenceServer(model, 0, 1, 0, 1)) {
+            CompletableFuture<HttpResponse<String>> first = post(server, "[1,2,3,4]");
+            model.entered.await();
+
+            assertEquals(503, post(server, "[1,2,3,4]").join().statusCode());
+            model.release.countDown();
+            assertEquals(200, first.join().statusCode());
+        }
+    }
+
+    @Test
+    void batchedAndUnbatchedAnswerTheSame() throws Exception {
+        Random random = new Random(1);
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < 64; i++)
+            inputs.add(InferenceServer.toJson(random.doubles(4, -1, 1).toArray()));
+
+        try (InferenceServer batched = new InferenceServer(MODEL, 0, 16, 2000, 64);
+             InferenceServer unbatched = new InferenceServer(MODEL, 0, 1, 0, 64)) {
+            // concurrent, so that the batches fill up
+            List<CompletableFuture<HttpResponse<String>>> a = new ArrayList<>(), b = new ArrayList<>();
+            for (String input : inputs) {
+                a.add(post(batched, input));
+                b.add(post(unbatched, input));
+            }
+
+            for (int i = 0; i < inputs.size(); i++) {
+                HttpResponse<String> x = a.get(i).join(), y = b.get(i).join();
+                assertEquals(200, x.statusCode());
+                assertEquals(200, y.statusCode());
+                assertArrayEquals(InferenceServer.parseArray(y.body()), InferenceServer.parseArray(x.body()), 1e-12);
+            }
+            assertTrue(batched.batcher.batchSize.count() < inputs.size(), "no request was batched");
+        }
+    }
+
+    @Test
+    void submitAfterCloseIsRejected() {
+        MicroBatcher batcher = new MicroBatcher(MODEL, 4, 1000, 4);
+        batcher.close();
+        assertThrows(RejectedExecutionException.class, () -> batcher.submit(new double[4]));
+    }
+
+    private static CompletableFuture<HttpResponse<String>> post(InferenceServer server, String body) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + "/predict"))
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+        return CLIENT.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * sums the input, blocks every prediction until released
+     */
+    private static class Blocking implements Predictor {
+        final CountDownLatch entered = new CountDownLatch(1), release = new CountDownLatch(1);
+
+        @Override
+        public void predict(double[] in, double[] out) {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            for (double v : in)
+                out[0] += v;
+        }
+
+        @Override
+        public void predictBatch(double[][] in, double[][] out) {
+            for (int i = 0; i < in.length; i++)
+                predict(in[i], out[i]);
+        }
+
+        @Override
+        public int inputSize() {
+            return 4;
+        }
+
+        @Override
+        public int outputSize() {
+            return 1;
+        }
+    }
+}
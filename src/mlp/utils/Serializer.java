@@ -1,21 +0,0 @@
-package mlp.utils;
-
-import java.io.*;
-
-public class Serializer {
-    public static void serialize(Object obj, String fileName) throws RuntimeException {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(fileName))) {
-            oos.writeObject(obj);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
-    public static Object deserialize(String fileName) throws RuntimeException {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(fileName))) {
-            return ois.readObject();
-        } catch (IOException | ClassNotFoundException e) {
-            throw new RuntimeException(e);
-        }
-    }
-}